@@ -5,10 +5,12 @@ import java.time.LocalDate;
 import java.time.Month;
 import java.util.Arrays;
 import java.util.List;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
 import javafx.scene.control.ComboBox;
+import logic.EntityType;
 import logic.FileTransferMessage;
 import logic.SendObject;
 
@@ -25,7 +27,6 @@ public class AdminScreenController extends Controller{
 	@FXML Button backButton;
 	@FXML private ComboBox<Integer> yearComboBox;
 	@FXML private ComboBox<Month> monthComboBox;
-	private boolean response = false;
 	private final List<Month> months = Arrays.asList(Month.JANUARY, Month.FEBRUARY, Month.MARCH, Month.APRIL, Month.MAY, Month.JUNE,
 			Month.JULY, Month.AUGUST, Month.SEPTEMBER, Month.OCTOBER, Month.NOVEMBER, Month.DECEMBER);
     @FXML
@@ -54,17 +55,17 @@ public class AdminScreenController extends Controller{
 	
 	/**
      * Handles the action of opening the reservation report screen.
-     * Loads the corresponding UI and sends a request to the server to retrieve all reservations.
+     * Loads the corresponding UI and loads all the reservations from the server, page by page.
      */
 	@FXML
 	public void openReservationReport() {
 		try {
-			setscreen("Reservations Report", "ReportReservationScreenUI.fxml", "AdminScreen.fxml", "Admin Menu",
-					openReservationReportButton);
-			// Send request to the server
-			SendObject<String> request = new SendObject<>("Get", "all reservations");
-			client.sendToServerSafely(request);
-			
+			Controller report = setscreen("Reservations Report", "ReportReservationScreenUI.fxml", "AdminScreen.fxml",
+					"Admin Menu", openReservationReportButton);
+			if (report == null)
+				return;
+			// Load the reservations page by page, the table is filled while the rest is loading
+			loadPages(report, EntityType.RESERVATION, "Received all reservations", "Received more reservations");
 
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -73,16 +74,17 @@ public class AdminScreenController extends Controller{
 
 	/**
      * Handles the action of opening the subscribers report screen.
-     * Loads the corresponding UI and sends a request to the server to retrieve all subscribers.
+     * Loads the corresponding UI and loads all the subscribers from the server, page by page.
      */
 	@FXML
 	public void openSubscribersReport() {
 		try {
-			setscreen("Subscribers Report", "ReportSubscriberUI.fxml", "AdminScreen.fxml", "Admin Menu",
-					openSubscribersReportButton);
-			// Send request to the server
-			SendObject<String> request = new SendObject<>("Get", "all subscribers");
-			client.sendToServerSafely(request);
+			Controller report = setscreen("Subscribers Report", "ReportSubscriberUI.fxml", "AdminScreen.fxml",
+					"Admin Menu", openSubscribersReportButton);
+			if (report == null)
+				return;
+			// Load the subscribers page by page, the table is filled while the rest is loading
+			loadPages(report, EntityType.SUBSCRIBER, "Received all subscribers", "Received more subscribers");
 
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -96,13 +98,17 @@ public class AdminScreenController extends Controller{
 	@FXML
 	public void openActiveSessionsReport() {
 		try {
-			setscreen("Active Sessions Report", "ReportActiveSessionsUI.fxml", "AdminScreen.fxml", "Admin Menu",
-					openActiveSessionsReportButton);
-			// Send request to the server
+			Controller report = setscreen("Active Sessions Report", "ReportActiveSessionsUI.fxml", "AdminScreen.fxml",
+					"Admin Menu", openActiveSessionsReportButton);
+			if (report == null)
+				return;
+			// Send both requests at once, the report gets the replies after one round trip
 			SendObject<String> request = new SendObject<>("Get", "all parking sessions");
-			client.sendToServerSafely(request);
 			SendObject<String> request2 = new SendObject<>("Get", "all parking spots");
-			client.sendToServerSafely(request2);
+			client.requestAll(request, request2).thenAccept(replies -> {
+				for (SendObject<?> reply : replies)
+					report.handleServerMessage(reply);
+			});
 
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -110,20 +116,20 @@ public class AdminScreenController extends Controller{
 	}
 	
 	/**
-	 * Shows the chosen monthly report if exist, otherwise shows an alert
+	 * Shows the chosen monthly report if exist, otherwise shows an alert.
+	 * The reply is handled when it arrives, the screen is not blocked while the server prepares the report
 	 */
 	public void handleMonthlyReport() {
-			SendObject<String> request = new SendObject<>("Get", "MonthlyReport_"+monthComboBox.getValue()+"_"+yearComboBox.getValue());
-			client.sendToServerSafely(request);
-			try{
-				Util.waitForServerResponse(10000, ()->response);
-				File file = new File("reports/","MonthlyReport_"+monthComboBox.getValue()+"_"+yearComboBox.getValue()+".pdf");
-				if(!file.exists()) {
-					throw new Exception();
+			String reportName = "MonthlyReport_"+monthComboBox.getValue()+"_"+yearComboBox.getValue();
+			client.request(new SendObject<>("Get", reportName)).whenComplete((reply, error) -> Platform.runLater(() -> {
+				if (error == null && reply.getObj() instanceof FileTransferMessage
+						&& "MonthlyReportPDF".equals(reply.getObjectMessage())) {
+					Util.getPDF(reply);
+					if (new File("reports/", reportName + ".pdf").exists())
+						return;
 				}
-			}catch(Exception e) {
 				ShowAlert.showAlert("Error", "Such file doesn't exist", AlertType.ERROR);
-			}
+			}));
 	}
 
 	/**
@@ -145,7 +151,6 @@ public class AdminScreenController extends Controller{
 			if(sendobject.getObj() instanceof FileTransferMessage&&sendobject.getObjectMessage().equals("MonthlyReportPDF")) {
 				Util.getPDF(message);
 			}
-			response = true;
 		}
 	}
     
@@ -2,6 +2,7 @@ package clientControllers;
 
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
+import logic.EntityType;
 import logic.SendObject;
 
 /**
@@ -31,16 +32,17 @@ public class AttendentScreenController extends Controller {
 
 	/**
      * Handles the action of opening the reservation report screen.
-     * Loads the corresponding UI and sends a request to the server to fetch all reservations.
+     * Loads the corresponding UI and loads all the reservations from the server, page by page.
      */
 	@FXML
 	public void openReservationReport() {
 		try {
-			setscreen("Reservations Report", "ViewReservationScreenUI.fxml", "AttendantScreen.fxml", "Attendant Menu",
-					openReservationReportButton);
-			// Send request to the server
-			SendObject<String> request = new SendObject<>("Get", "all reservations");
-			client.sendToServerSafely(request);
+			Controller report = setscreen("Reservations Report", "ViewReservationScreenUI.fxml", "AttendantScreen.fxml",
+					"Attendant Menu", openReservationReportButton);
+			if (report == null)
+				return;
+			// Load the reservations page by page, the table is filled while the rest is loading
+			loadPages(report, EntityType.RESERVATION, "Received all reservations", "Received more reservations");
 
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -49,16 +51,17 @@ public class AttendentScreenController extends Controller {
 
 	/**
      * Handles the action of opening the subscribers report screen.
-     * Loads the corresponding UI and sends a request to the server to fetch all subscribers.
+     * Loads the corresponding UI and loads all the subscribers from the server, page by page.
      */
 	@FXML
 	public void openSubscribersReport() {
 		try {
-			setscreen("Subscribers Report", "ViewSubscriberUI.fxml", "AttendantScreen.fxml", "Attendant Menu",
-					openSubscribersReportButton);
-			// Send request to the server
-			SendObject<String> request = new SendObject<>("Get", "all subscribers");
-			client.sendToServerSafely(request);
+			Controller report = setscreen("Subscribers Report", "ViewSubscriberUI.fxml", "AttendantScreen.fxml",
+					"Attendant Menu", openSubscribersReportButton);
+			if (report == null)
+				return;
+			// Load the subscribers page by page, the table is filled while the rest is loading
+			loadPages(report, EntityType.SUBSCRIBER, "Received all subscribers", "Received more subscribers");
 
 		} catch (Exception e) {
 			e.printStackTrace();
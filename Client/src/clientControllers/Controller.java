@@ -1,7 +1,11 @@
 package clientControllers;
 
 import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
+import javafx.application.Platform;
 import javafx.event.EventHandler;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -26,6 +30,9 @@ public abstract class Controller {
     protected BParkClient client;
     protected Boolean isConsole = false;
     protected String ip;
+    protected long lastChangeVersion = 0; // Version of the last change applied from the server
+    protected static final int PAGE_SIZE = 200; // Rows in every page of the report tables
+    private volatile int pageLoad = 0; // Generation of the last page by page load of this screen, older loads are ignored
 
     /**
      * Sets the back navigation handler.
@@ -104,6 +111,56 @@ public abstract class Controller {
         System.err.println("test");
     }
 
+    /**
+     * Returns only the changes that were not applied yet by this controller,
+     * and remembers the version of the newest one.
+     *
+     * @param changes The changes received from the server, ordered by version.
+     * @return The changes with a version newer than the last applied change.
+     */
+    protected List<ChangeEvent> newChanges(List<ChangeEvent> changes) {
+        List<ChangeEvent> fresh = new ArrayList<>();
+        for (ChangeEvent change : changes) {
+            if (change.getVersion() > lastChangeVersion) {
+                fresh.add(change);
+                lastChangeVersion = change.getVersion();
+            }
+        }
+        return fresh;
+    }
+
+    /**
+     * Loads a table page by page and gives the report the rows of every page as they arrive.
+     * The first page replaces the rows of the report, as if it was the reply to a "Get" request
+     * of the whole table, every next page is merged into them.
+     *
+     * Every load of a report gets a new generation. When a load starts before the last one of
+     * the same report ended (e.g. the Refresh button), the pages of the older load are dropped
+     * and it stops asking for pages. The check runs on the JavaFX thread, where the loads start.
+     *
+     * @param report      The report screen.
+     * @param type        The table to load.
+     * @param message     The message of the first page, the report replaces its rows.
+     * @param moreMessage The message of every next page, the report merges the rows.
+     */
+    protected void loadPages(Controller report, EntityType type, String message, String moreMessage) {
+        int generation = ++report.pageLoad;
+        Util.<Serializable>loadPages(client, type, PAGE_SIZE, (page, first) -> {
+            if (generation != report.pageLoad)
+                return false;
+            SendObject<ArrayList<Serializable>> reply =
+                    new SendObject<>(first ? message : moreMessage, new ArrayList<>(page));
+            Platform.runLater(() -> {
+                if (generation == report.pageLoad)
+                    report.handleServerMessage(reply);
+            });
+            return true;
+        }).exceptionally(e -> {
+            e.printStackTrace();
+            return null;
+        });
+    }
+
     /**
      * Switches the current view to a new screen while preserving client and subscriber context.
      * Also configures the back navigation to return to the previous screen.
@@ -113,8 +170,9 @@ public abstract class Controller {
      * @param returnFxml   The FXML file to return to when navigating back.
      * @param return_name  The title of the return screen.
      * @param sourceButton The button that triggered the screen transition.
+     * @return The controller of the new screen, or null if the screen could not be loaded.
      */
-    protected void setscreen(String screen_name, String fxml, String returnFxml, String return_name, Button sourceButton) {
+    protected Controller setscreen(String screen_name, String fxml, String returnFxml, String return_name, Button sourceButton) {
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/clientUI/"+fxml));
             Parent root = loader.load();
@@ -162,10 +220,12 @@ public abstract class Controller {
                     ex.printStackTrace();
                 }
             });
+            return c;
 
         } catch (Exception e) {
             e.printStackTrace();
             System.out.println("cant");
+            return null;
         }
     }
 
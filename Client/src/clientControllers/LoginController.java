@@ -281,6 +281,29 @@ public class LoginController {
         });
 
         client.setMessageListener(msg -> controller.handleServerMessage(msg));
+        subscribeToTopics(sub);
+    }
+
+    /**
+     * Registers the topics of changes the opened screen needs, so the server
+     * does not send this client changes it never displays.
+     *
+     * @param sub the logged in subscriber, or null for guest access
+     */
+    private void subscribeToTopics(subscriber sub) {
+        if (sub == null) {
+            client.subscribe("spots");
+            return;
+        }
+        switch (sub.getRole()) {
+            case SUBSCRIBER -> {
+                if (consoleCheckBox.isSelected())
+                    client.subscribe("spots", "my-sessions:" + sub.getId(), "my-reservations:" + sub.getId());
+                else
+                    client.subscribe("my-sessions:" + sub.getId(), "my-reservations:" + sub.getId());
+            }
+            case ATTENDANT, MANAGER -> client.subscribe("admin-all");
+        }
     }
 
     /**
@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import javafx.application.Platform;
@@ -13,6 +14,7 @@ import javafx.scene.chart.BarChart;
 import javafx.scene.chart.XYChart;
 import javafx.scene.control.Button;
 import javafx.scene.control.Alert.AlertType;
+import logic.EntityType;
 import logic.Reservation;
 import logic.SendObject;
 
@@ -90,10 +92,9 @@ public class ReportReservationController extends ViewReservationController {
 				}
 			});
 		}
-		if(refreshButton != null) { // Refreshes reservation list
+		if(refreshButton != null) { // Reloads the reservation list page by page
 			refreshButton.setOnAction(e ->{
-				SendObject<String> request = new SendObject<>("Get", "all reservations");
-				client.sendToServerSafely(request);
+				loadPages(this, EntityType.RESERVATION, "Received all reservations", "Received more reservations");
 			});
 		}
 	}
@@ -107,7 +108,15 @@ public class ReportReservationController extends ViewReservationController {
 		updateBarChart(); // Add chart functionality
 	}
 
-	
+    /**
+     * Merges a page of reservations and updates the bar chart with the daily reservation counts.
+     */
+	@Override
+	public void addReservations(List<Reservation> page) {
+		super.addReservations(page);
+		updateBarChart();
+	}
+
 	private void updateBarChart() {
 	    reservationsBarChart.getData().clear(); // Clear existing data
 
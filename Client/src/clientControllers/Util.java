@@ -9,8 +9,16 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.file.Files;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiPredicate;
 import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 
 import javax.imageio.ImageIO;
 
@@ -19,7 +27,12 @@ import javafx.scene.chart.Chart;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.image.WritableImage;
+import logic.ChangeEvent;
+import logic.ChangeType;
+import logic.EntityType;
 import logic.FileTransferMessage;
+import logic.Page;
+import logic.PageRequest;
 import logic.SendObject;
 import ocsf.client.BParkClient;
 
@@ -164,4 +177,113 @@ public class Util {
 		}
 	}
 
+	/**
+	 * Applies the changes sent by the server to a local copy of a list.
+	 * Only changes of the given entity type are applied, inserted or updated entities
+	 * replace the entity with the same key, deleted entities are removed.
+	 * 
+	 * @param local   The current local list (not changed)
+	 * @param changes The changes received from the server, ordered by version
+	 * @param type    The entity type held by the list
+	 * @param keyOf   Returns the key (id) of an entity in the list
+	 * @return A new list with the changes applied
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> List<T> applyChanges(List<T> local, List<ChangeEvent> changes, EntityType type,
+			ToIntFunction<T> keyOf) {
+		Map<Integer, T> byKey = new LinkedHashMap<>();
+		if (local != null) {
+			for (T item : local)
+				byKey.put(keyOf.applyAsInt(item), item);
+		}
+		for (ChangeEvent change : changes) {
+			if (change.getEntityType() != type)
+				continue;
+			if (change.getChangeType() == ChangeType.DELETE)
+				byKey.remove(change.getKey());
+			else
+				byKey.put(change.getKey(), (T) change.getEntity());
+		}
+		return new ArrayList<>(byKey.values());
+	}
+
+	/**
+	 * Returns the position of every entity of a list by its key, for {@link #mergeByKey}.
+	 * 
+	 * @param local The local list
+	 * @param keyOf Returns the key (id) of an entity in the list
+	 * @return The key -> position map
+	 */
+	public static <T> Map<Integer, Integer> indexByKey(List<T> local, ToIntFunction<T> keyOf) {
+		Map<Integer, Integer> positions = new HashMap<>();
+		for (int i = 0; i < local.size(); i++)
+			positions.put(keyOf.applyAsInt(local.get(i)), i);
+		return positions;
+	}
+
+	/**
+	 * Merges a page of entities into a local list by key, the same upsert as {@link #applyChanges}:
+	 * an entity whose key is already in the list replaces it in place, the others are appended.
+	 * Only the page is walked, the list is not copied.
+	 * 
+	 * @param local     The local list (changed)
+	 * @param positions The positions of the entities of the list by key (changed)
+	 * @param page      The entities to merge
+	 * @param keyOf     Returns the key (id) of an entity in the list
+	 * @return The entities that were appended, fewer than the page if some replaced an entity
+	 */
+	public static <T> List<T> mergeByKey(List<T> local, Map<Integer, Integer> positions, List<T> page,
+			ToIntFunction<T> keyOf) {
+		List<T> appended = new ArrayList<>();
+		for (T item : page) {
+			int key = keyOf.applyAsInt(item);
+			Integer position = positions.get(key);
+			if (position != null) {
+				local.set(position, item);
+			} else {
+				positions.put(key, local.size());
+				local.add(item);
+				appended.add(item);
+			}
+		}
+		return appended;
+	}
+
+	/**
+	 * Loads a table from the server page by page. The next page is asked only after the
+	 * previous one arrived, so the server never reads the whole table for one request
+	 * and the screen is filled while the rest is loading.
+	 * 
+	 * @param client   The client connected to the server
+	 * @param type     The table to load
+	 * @param pageSize The number of rows in every page
+	 * @param onPage   Called after every page with the rows of that page only, and true for the first page.
+	 *                 Returns false to stop loading (e.g. when a newer load replaced this one)
+	 * @return A future completed with the number of rows loaded when the last page arrived or the load was stopped
+	 */
+	public static <T> CompletableFuture<Integer> loadPages(BParkClient client, EntityType type, int pageSize,
+			BiPredicate<List<T>, Boolean> onPage) {
+		CompletableFuture<Integer> done = new CompletableFuture<>();
+		requestPage(client, PageRequest.first(type, pageSize), 0, onPage, done);
+		return done;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> void requestPage(BParkClient client, PageRequest request, int loaded,
+			BiPredicate<List<T>, Boolean> onPage, CompletableFuture<Integer> done) {
+		client.request(new SendObject<PageRequest>("Get page", request)).whenComplete((reply, error) -> {
+			if (error != null || reply == null || !(reply.getObj() instanceof Page<?>)) {
+				done.completeExceptionally(error != null ? error : new IOException("Page not received: " + request));
+				return;
+			}
+			Page<?> page = (Page<?>) reply.getObj();
+			boolean more = onPage.test((List<T>) page.getItems(), request.getAfterId() == 0);
+			int total = loaded + page.getItems().size();
+			if (more && page.hasMore())
+				requestPage(client, page.next(request.getLimit()), total, onPage, done);
+			else
+				done.complete(total);
+		});
+	}
+
 }
\ No newline at end of file
@@ -15,6 +15,8 @@ import javafx.scene.control.DatePicker;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.Alert.AlertType;
+import logic.ChangeEvent;
+import logic.EntityType;
 import logic.FileTransferMessage;
 import logic.ParkingSpot;
 import logic.Parkingsession;
@@ -147,7 +149,17 @@ public class ViewActiveSessionsController extends Controller {
 	@SuppressWarnings("unchecked")
 	public void handleServerMessage(Object msg) {
 		if (msg instanceof SendObject<?>) {
-			if (((SendObject<?>) msg).getObj() instanceof List<?>) {
+			if ("Changes".equals(((SendObject<?>) msg).getObjectMessage())) {
+				// Apply only the changed sessions and spots to the local lists
+				List<ChangeEvent> changes = (List<ChangeEvent>) ((SendObject<?>) msg).getObj();
+				Platform.runLater(() -> {
+					List<ChangeEvent> fresh = newChanges(changes);
+					parkingSpots = Util.applyChanges(parkingSpots, fresh, EntityType.PARKING_SPOT,
+							ParkingSpot::getSpotId);
+					setSessions(Util.applyChanges(allSessions, fresh, EntityType.PARKING_SESSION,
+							Parkingsession::getSessionId));
+				});
+			} else if (((SendObject<?>) msg).getObj() instanceof List<?>) {
 				List<?> updated = (List<?>) ((SendObject<?>) msg).getObj();
 				if (!updated.isEmpty() && updated.get(0) instanceof Parkingsession) {
 					Platform.runLater(() -> setSessions((List<Parkingsession>) updated));
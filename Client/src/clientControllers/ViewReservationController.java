@@ -3,7 +3,9 @@ package clientControllers;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -16,6 +18,8 @@ import javafx.scene.control.ComboBox;
 import javafx.scene.control.ListCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
+import logic.ChangeEvent;
+import logic.EntityType;
 import logic.FileTransferMessage;
 import logic.Reservation;
 import logic.SendObject;
@@ -65,6 +69,7 @@ public class ViewReservationController extends Controller {
 
 	protected List<Reservation> allReservations = new ArrayList<>();
 	protected List<Reservation> filteredReservations = new ArrayList<>();
+	private Map<Integer, Integer> reservationPositions = new HashMap<>(); // Position in allReservations by id
 
 	protected final List<String> months = Arrays.asList("All", "January", "February", "March", "April", "May", "June",
 			"July", "August", "September", "October", "November", "December");
@@ -132,32 +137,59 @@ public class ViewReservationController extends Controller {
      */
 	public void setReservations(List<Reservation> reservations) {
 		this.allReservations = reservations;
+		reservationPositions = Util.indexByKey(allReservations, Reservation::getId);
 		filterReservations();
 	}
 
+    /**
+     * Merges a page of reservations into the list by id and shows the new ones that pass the
+     * filter, without filtering the reservations that are already shown again. A reservation
+     * that is already in the list (e.g. it was inserted by a change while the pages were
+     * loading) is replaced instead of shown twice.
+     *
+     * @param page The reservations to add.
+     */
+	public void addReservations(List<Reservation> page) {
+		List<Reservation> appended = Util.mergeByKey(allReservations, reservationPositions, page, Reservation::getId);
+		if (appended.size() < page.size()) {
+			filterReservations(); // Some of them replaced reservations already shown
+			return;
+		}
+		List<Reservation> matching = appended.stream().filter(this::matchesFilter).collect(Collectors.toList());
+		filteredReservations.addAll(matching);
+		reservationTable.getItems().addAll(matching);
+	}
+
     /**
      * Filters the reservations based on the selected month and year.
      * Updates the table view with the filtered reservations.
      */
 	protected void filterReservations() {
-		String selectedMonth = monthComboBox.getValue();
-		Integer selectedYear = yearComboBox.getValue();
-
-		filteredReservations = allReservations.stream().filter(res -> {
-			boolean monthOk = true, yearOk = true;
-			if (selectedMonth != null && !"All".equals(selectedMonth)) {
-				int monthIndex = months.indexOf(selectedMonth);
-				monthOk = res.getDate().getMonthValue() == monthIndex;
-			}
-			if (selectedYear != null && selectedYear != 0) {
-				yearOk = res.getDate().getYear() == selectedYear;
-			}
-			return monthOk && yearOk;
-		}).collect(Collectors.toList());
+		filteredReservations = allReservations.stream().filter(this::matchesFilter).collect(Collectors.toList());
 
 		reservationTable.getItems().setAll(filteredReservations);
 	}
 
+    /**
+     * Checks a reservation against the selected month and year.
+     *
+     * @param res The reservation to check.
+     * @return true if the reservation is in the selected month and year.
+     */
+	private boolean matchesFilter(Reservation res) {
+		String selectedMonth = monthComboBox.getValue();
+		Integer selectedYear = yearComboBox.getValue();
+		boolean monthOk = true, yearOk = true;
+		if (selectedMonth != null && !"All".equals(selectedMonth)) {
+			int monthIndex = months.indexOf(selectedMonth);
+			monthOk = res.getDate().getMonthValue() == monthIndex;
+		}
+		if (selectedYear != null && selectedYear != 0) {
+			yearOk = res.getDate().getYear() == selectedYear;
+		}
+		return monthOk && yearOk;
+	}
+
     /**
      * Sorts the reservations by date in ascending order.
      */
@@ -189,7 +221,16 @@ public class ViewReservationController extends Controller {
 	@Override
 	public void handleServerMessage(Object msg) {
 		if (msg instanceof SendObject<?>) {
-			if (((SendObject<?>) msg).getObj() instanceof List<?>) {
+			if ("Changes".equals(((SendObject<?>) msg).getObjectMessage())) {
+				// Apply only the changed reservations to the local list
+				List<ChangeEvent> changes = (List<ChangeEvent>) ((SendObject<?>) msg).getObj();
+				Platform.runLater(() -> setReservations(Util.applyChanges(allReservations, newChanges(changes),
+						EntityType.RESERVATION, Reservation::getId)));
+			} else if ("Received more reservations".equals(((SendObject<?>) msg).getObjectMessage())) {
+				// The next page of the table, added to the reservations already shown
+				List<Reservation> page = (List<Reservation>) ((SendObject<?>) msg).getObj();
+				Platform.runLater(() -> addReservations(page));
+			} else if (((SendObject<?>) msg).getObj() instanceof List<?>) {
 				List<?> updated = (List<?>) ((SendObject<?>) msg).getObj();
 				if (!updated.isEmpty() && updated.get(0) instanceof Reservation) {
 					Platform.runLater(() -> setReservations((List<Reservation>) updated));
@@ -4,7 +4,9 @@ import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import javafx.application.Platform;
@@ -20,6 +22,8 @@ import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
 import javafx.scene.control.cell.PropertyValueFactory;
+import logic.ChangeEvent;
+import logic.EntityType;
 import logic.FileTransferMessage;
 import logic.Parkingsession;
 import logic.Role;
@@ -63,6 +67,7 @@ public class ViewSubscriberController extends Controller {
 
 	protected List<subscriber> allSubscribers = new ArrayList<>();
 	protected List<subscriber> filteredSubscribers = new ArrayList<>();
+	private Map<Integer, Integer> subscriberPositions = new HashMap<>(); // Position in allSubscribers by id
 	protected final List<String> roles = Arrays.asList("All", "MANAGER", "SUBSCRIBER", "ATTENDANT");
 
 	@FXML
@@ -188,17 +193,24 @@ public class ViewSubscriberController extends Controller {
 	 * role in the combo box. Updates the table view with the filtered list.
 	 */
 	protected void filterSubscribers() {
-		String selectedRole = roleComboBox.getValue();
-
-		filteredSubscribers = allSubscribers.stream().filter(sub -> {
-			if (selectedRole == null || selectedRole.equals("All"))
-				return true;
-			return sub.getRole().name().equals(selectedRole);
-		}).collect(Collectors.toList());
+		filteredSubscribers = allSubscribers.stream().filter(this::matchesFilter).collect(Collectors.toList());
 
 		subscriberTable.getItems().setAll(filteredSubscribers);
 	}
 
+	/**
+	 * Checks a subscriber against the role selected in the combo box.
+	 * 
+	 * @param sub The subscriber to check.
+	 * @return true if the subscriber has the selected role, or all roles are selected.
+	 */
+	private boolean matchesFilter(subscriber sub) {
+		String selectedRole = roleComboBox.getValue();
+		if (selectedRole == null || selectedRole.equals("All"))
+			return true;
+		return sub.getRole().name().equals(selectedRole);
+	}
+
     /**
      * Sorts the subscriber table by subscriber ID in ascending order.
      */
@@ -216,9 +228,29 @@ public class ViewSubscriberController extends Controller {
      */
 	public void setSubscribers(List<subscriber> subscribers) {
 		this.allSubscribers = subscribers;
+		subscriberPositions = Util.indexByKey(allSubscribers, subscriber::getId);
 		filterSubscribers();
 	}
 
+    /**
+     * Merges a page of subscribers into the list by id and shows the new ones that pass the
+     * filter, without filtering the subscribers that are already shown again. A subscriber
+     * that is already in the list (e.g. it was inserted by a change while the pages were
+     * loading) is replaced instead of shown twice.
+     * 
+     * @param page The subscribers to add.
+     */
+	public void addSubscribers(List<subscriber> page) {
+		List<subscriber> appended = Util.mergeByKey(allSubscribers, subscriberPositions, page, subscriber::getId);
+		if (appended.size() < page.size()) {
+			filterSubscribers(); // Some of them replaced subscribers already shown
+			return;
+		}
+		List<subscriber> matching = appended.stream().filter(this::matchesFilter).collect(Collectors.toList());
+		filteredSubscribers.addAll(matching);
+		subscriberTable.getItems().addAll(matching);
+	}
+
     /**
      * Sets the list of parking session history and updates the history table.
      * 
@@ -243,8 +275,19 @@ public class ViewSubscriberController extends Controller {
 	public void handleServerMessage(Object msg) {
 		if (msg instanceof SendObject<?>) {
 			SendObject<?> so = (SendObject<?>) msg;
+			// Apply only the changed subscribers to the local list
+			if ("Changes".equals(so.getObjectMessage())) {
+				List<ChangeEvent> changes = (List<ChangeEvent>) so.getObj();
+				Platform.runLater(() -> setSubscribers(Util.applyChanges(allSubscribers, newChanges(changes),
+						EntityType.SUBSCRIBER, subscriber::getId)));
+			}
+			// The next page of the table, added to the subscribers already shown
+			else if ("Received more subscribers".equals(so.getObjectMessage())) {
+				List<subscriber> page = (List<subscriber>) so.getObj();
+				Platform.runLater(() -> addSubscribers(page));
+			}
 			// Handle subscriber list updates
-			if (so.getObj() instanceof List<?> && !so.getObjectMessage().equals("Parkingsession list of subscriber")) {
+			else if (so.getObj() instanceof List<?> && !so.getObjectMessage().equals("Parkingsession list of subscriber")) {
 				List<?> updated = (List<?>) so.getObj();
 				if (!updated.isEmpty() && updated.get(0) instanceof subscriber) {
 					Platform.runLater(() -> setSubscribers((List<subscriber>) updated));
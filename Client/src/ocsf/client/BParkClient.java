@@ -1,6 +1,13 @@
 package ocsf.client;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import clientControllers.ShowAlert;
 import javafx.application.Platform;
@@ -12,6 +19,10 @@ import logic.*;
 public class BParkClient extends ObservableClient {
 
 	private MessageListener messageListener;
+	private final AtomicLong nextRequestId = new AtomicLong();
+	private final Map<Long, CompletableFuture<SendObject<?>>> pendingRequests = new ConcurrentHashMap<>(); // Requests waiting for a reply
+	private volatile WireCodec codec; // Codec confirmed by the server, null for plain Java serialization
+	private volatile WireCodec requestedCodec = CompactBinaryCodec.INSTANCE; // Codec asked for, the confirmation may already use it
 
 	/**
 	 * @param host
@@ -37,6 +48,14 @@ public class BParkClient extends ObservableClient {
 	@Override
 	protected void handleMessageFromServer(Object msg) {
 		try {
+			if (msg instanceof byte[]) // Message encoded with the negotiated codec
+				msg = (codec != null ? codec : requestedCodec).decode((byte[]) msg);
+			if (msg instanceof SendObject<?> && "Codec".equals(((SendObject<?>) msg).getObjectMessage())) {
+				// The server confirmed the codec, the next messages are sent with it
+				WireCodec confirmed = WireCodec.forName(String.valueOf(((SendObject<?>) msg).getObj()));
+				codec = confirmed == JavaSerializationCodec.INSTANCE ? null : confirmed;
+				return; // Handled by the client itself, not by the screens
+			}
 			if(msg instanceof Exception) {
 				Exception e = (Exception)msg;
 				if(e.getMessage().equals("Server Shutdown"))
@@ -48,6 +67,15 @@ public class BParkClient extends ObservableClient {
 						System.exit(0);
 					});
 			}
+			else if (requestIdOf(msg) != null) {
+				// A reply to a request sent with request(), completes it instead of going to the listener
+				SendObject<?> reply = (SendObject<?>) msg;
+				CompletableFuture<SendObject<?>> future = pendingRequests.remove(reply.getRequestId());
+				if (future != null)
+					future.complete(reply);
+				else if (messageListener != null)
+					messageListener.onMessage(msg);
+			}
 			else if (messageListener != null) {
 				messageListener.onMessage(msg);
 			}
@@ -57,18 +85,127 @@ public class BParkClient extends ObservableClient {
 		}
 	}
 
+	/**
+	 * @param msg 
+	 * @return the request id of a SendObject, null if it has none
+	 */
+	private static Long requestIdOf(Object msg) {
+		return msg instanceof SendObject<?> ? ((SendObject<?>) msg).getRequestId() : null;
+	}
+
 	/**
 	 * @param msg 
 	 * Safely sends a message to the server with error handling
 	 */
 	public void sendToServerSafely(Object msg) {
 		try {
-			sendToServer(msg);
+			send(msg);
 		} catch (IOException e) {
 			System.err.println("Failed to send message to server: " + e.getMessage());
 		}
 	}
 
+	/**
+	 * @param msg 
+	 * @throws IOException 
+	 * Sends a message with the negotiated codec, or as a Java object before a codec was confirmed
+	 */
+	private void send(Object msg) throws IOException {
+		WireCodec current = codec;
+		sendToServer(current != null ? current.encode(msg) : msg);
+	}
+
+	/**
+	 * @param codecName 
+	 * Asks the server to use a codec for this connection (see {@link WireCodec}).
+	 * Messages stay Java objects until the server confirms, a server without codec support never does
+	 */
+	public void negotiateCodec(String codecName) {
+		if (WireCodec.forName(codecName) == null || WireCodec.JAVA.equalsIgnoreCase(codecName))
+			return;
+		requestedCodec = WireCodec.forName(codecName);
+		this.sendToServerSafely(new SendObject<String>("Codec", codecName));
+	}
+
+	/**
+	 * @param request 
+	 * @return a future completed with the reply of the server (on the connection thread)
+	 * Sends a request with a new request id. Several requests can be sent without waiting,
+	 * each reply completes the future of its own request. When the future is completed another
+	 * way (cancelled, orTimeout) the request stops waiting, a late reply goes to the listener
+	 */
+	public CompletableFuture<SendObject<?>> request(SendObject<?> request) {
+		long requestId = nextRequestId.incrementAndGet();
+		CompletableFuture<SendObject<?>> future = new CompletableFuture<>();
+		pendingRequests.put(requestId, future);
+		future.whenComplete((reply, error) -> pendingRequests.remove(requestId, future));
+		request.setRequestId(requestId);
+		try {
+			send(request);
+		} catch (IOException e) {
+			pendingRequests.remove(requestId);
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/**
+	 * @param requests 
+	 * @return a future completed with the replies, in the order of the requests
+	 * Sends all the requests at once, so they complete in one round trip instead of one per request
+	 */
+	public CompletableFuture<List<SendObject<?>>> requestAll(SendObject<?>... requests) {
+		List<CompletableFuture<SendObject<?>>> futures = new ArrayList<>();
+		for (SendObject<?> request : requests)
+			futures.add(request(request));
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+			List<SendObject<?>> replies = new ArrayList<>();
+			for (CompletableFuture<SendObject<?>> future : futures)
+				replies.add(future.join());
+			return replies;
+		});
+	}
+
+	/**
+	 * Fails the requests that are still waiting when the connection closes
+	 */
+	@Override
+	protected void connectionClosed() {
+		failPendingRequests(new IOException("Connection closed"));
+		super.connectionClosed();
+	}
+
+	/**
+	 * @param exception 
+	 * Fails the requests that are still waiting when the connection breaks
+	 */
+	@Override
+	protected void connectionException(Exception exception) {
+		failPendingRequests(exception);
+		super.connectionException(exception);
+	}
+
+	/**
+	 * @param cause 
+	 * Completes all the waiting requests with an exception
+	 */
+	private void failPendingRequests(Exception cause) {
+		for (Long requestId : pendingRequests.keySet()) {
+			CompletableFuture<SendObject<?>> future = pendingRequests.remove(requestId);
+			if (future != null)
+				future.completeExceptionally(cause);
+		}
+	}
+
+	/**
+	 * @param topics 
+	 * Registers the topics of changes this client wants to receive from the server,
+	 * e.g. "spots", "my-sessions:2001" or "admin-all". Replaces former topics
+	 */
+	public void subscribe(String... topics) {
+		this.sendToServerSafely(new SendObject<ArrayList<String>>("Subscribe", new ArrayList<>(Arrays.asList(topics))));
+	}
+
 	/**
 	 * @param subscriber sub
 	 * @throws Exception 
@@ -77,6 +214,7 @@ public class BParkClient extends ObservableClient {
 	public void start(subscriber sub) throws Exception {
 		try {
 			openConnection();
+			negotiateCodec(System.getProperty("bpark.codec", WireCodec.COMPACT));
 			this.sendToServerSafely(new SendObject<subscriber>("connect",sub));
 		} catch (IOException e) {
 			System.err.println("Failed to open connection: " + e.getMessage());
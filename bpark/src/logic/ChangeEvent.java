@@ -0,0 +1,82 @@
+package logic;
+
+import java.io.Serializable;
+
+/**
+ * Represents a single change (delta) of an entity, published by the server after a write.
+ * Every event carries a version number that increases monotonically across the whole server,
+ * so clients can apply events in order and ignore events they have already applied.
+ * 
+ * Clients receive these events in a {@link SendObject} with the message "Changes" and apply
+ * them to their local copy of the lists instead of reloading the full tables.
+ */
+@SuppressWarnings("serial")
+public class ChangeEvent implements Serializable {
+	private final long version;
+	private final EntityType entityType;
+	private final ChangeType changeType;
+	private final int key;
+	private final Serializable entity;
+
+	/**
+	 * Constructs a new ChangeEvent.
+	 *
+	 * @param version    the version number of the change
+	 * @param entityType the type of the changed entity
+	 * @param changeType the kind of change (INSERT, UPDATE, DELETE)
+	 * @param key        the id of the changed entity
+	 * @param entity     the entity after the change (null for DELETE)
+	 */
+	public ChangeEvent(long version, EntityType entityType, ChangeType changeType, int key, Serializable entity) {
+		this.version = version;
+		this.entityType = entityType;
+		this.changeType = changeType;
+		this.key = key;
+		this.entity = entity;
+	}
+
+	/**
+	 * Returns the version number of the change
+	 * 
+	 * @return the version
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns the type of the changed entity
+	 * 
+	 * @return the entity type
+	 */
+	public EntityType getEntityType() {
+		return entityType;
+	}
+
+	/**
+	 * Returns the kind of change
+	 * 
+	 * @return the change type
+	 */
+	public ChangeType getChangeType() {
+		return changeType;
+	}
+
+	/**
+	 * Returns the id of the changed entity
+	 * 
+	 * @return the entity id
+	 */
+	public int getKey() {
+		return key;
+	}
+
+	/**
+	 * Returns the entity after the change, null if it was deleted
+	 * 
+	 * @return the entity
+	 */
+	public Serializable getEntity() {
+		return entity;
+	}
+}
@@ -0,0 +1,14 @@
+package logic;
+
+/**
+ * Represents the kind of change that happened to an entity in the database.
+ * 
+ * INSERT - A new row was created.
+ * UPDATE - An existing row was changed.
+ * DELETE - A row was removed.
+ */
+public enum ChangeType {
+    INSERT,
+    UPDATE,
+    DELETE
+}
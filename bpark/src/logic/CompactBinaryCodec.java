@@ -0,0 +1,416 @@
+package logic;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Schema based binary codec for the messages of BPark.
+ *
+ * Every value starts with a one byte tag, the domain classes are written field by field in a
+ * fixed order, so no class descriptors are sent. Integers are written as variable length
+ * numbers (small ids take one or two bytes), dates as epoch milliseconds / epoch days and the
+ * enums as their ordinal. Values of other classes fall back to Java serialization.
+ *
+ * When a field is added to one of the domain classes, it must be added here in both
+ * writeEntity and readValue.
+ */
+public class CompactBinaryCodec implements WireCodec {
+	public static final CompactBinaryCodec INSTANCE = new CompactBinaryCodec();
+
+	private static final int NULL = 0;
+	private static final int SEND_OBJECT = 1;
+	private static final int STRING = 2;
+	private static final int INTEGER = 3;
+	private static final int LONG = 4;
+	private static final int DOUBLE = 5;
+	private static final int BOOLEAN = 6;
+	private static final int LIST = 7;
+	private static final int BYTES = 8;
+	private static final int LOCAL_DATE = 9;
+	private static final int DATE = 10;
+	private static final int TIMESTAMP = 11;
+	private static final int PARKING_SESSION = 20;
+	private static final int RESERVATION = 21;
+	private static final int SUBSCRIBER = 22;
+	private static final int PARKING_SPOT = 23;
+	private static final int CHANGE_EVENT = 24;
+	private static final int FILE_TRANSFER = 25;
+	private static final int PAGE_REQUEST = 26;
+	private static final int PAGE = 27;
+	private static final int JAVA_OBJECT = 127;
+
+	@Override
+	public String getName() {
+		return COMPACT;
+	}
+
+	@Override
+	public byte[] encode(Object msg) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		DataOutputStream out = new DataOutputStream(bytes);
+		writeValue(out, msg);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	@Override
+	public Object decode(byte[] data) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+		return readValue(in);
+	}
+
+	// Writing -----------------------------------------------------------------
+
+	/**
+	 * Writes a value with its tag
+	 */
+	private void writeValue(DataOutputStream out, Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(NULL);
+		} else if (value instanceof SendObject<?>) {
+			SendObject<?> sendObject = (SendObject<?>) value;
+			out.writeByte(SEND_OBJECT);
+			writeString(out, sendObject.getObjectMessage());
+			Long requestId = sendObject.getRequestId();
+			writeVarLong(out, requestId == null ? 0 : requestId + 1);
+			writeValue(out, sendObject.getObj());
+		} else if (value instanceof String) {
+			out.writeByte(STRING);
+			writeString(out, (String) value);
+		} else if (value instanceof Integer) {
+			out.writeByte(INTEGER);
+			writeVarLong(out, zigZag((Integer) value));
+		} else if (value instanceof Long) {
+			out.writeByte(LONG);
+			writeVarLong(out, zigZag((Long) value));
+		} else if (value instanceof Double) {
+			out.writeByte(DOUBLE);
+			out.writeDouble((Double) value);
+		} else if (value instanceof Boolean) {
+			out.writeByte(BOOLEAN);
+			out.writeBoolean((Boolean) value);
+		} else if (value instanceof List<?>) {
+			out.writeByte(LIST);
+			writeList(out, (List<?>) value);
+		} else if (value instanceof byte[]) {
+			out.writeByte(BYTES);
+			writeBytes(out, (byte[]) value);
+		} else if (value instanceof LocalDate) {
+			out.writeByte(LOCAL_DATE);
+			writeVarLong(out, zigZag(((LocalDate) value).toEpochDay()));
+		} else if (value instanceof Timestamp) {
+			out.writeByte(TIMESTAMP);
+			writeVarLong(out, zigZag(((Timestamp) value).getTime()));
+		} else if (value.getClass() == Date.class) {
+			out.writeByte(DATE);
+			writeVarLong(out, zigZag(((Date) value).getTime()));
+		} else if (!writeEntity(out, value)) {
+			out.writeByte(JAVA_OBJECT);
+			writeBytes(out, JavaSerializationCodec.INSTANCE.encode(value));
+		}
+	}
+
+	/**
+	 * Writes a domain object with its tag
+	 *
+	 * @return false if the value is not a domain object
+	 */
+	private boolean writeEntity(DataOutputStream out, Object value) throws IOException {
+		if (value instanceof Parkingsession) {
+			Parkingsession session = (Parkingsession) value;
+			out.writeByte(PARKING_SESSION);
+			writeVarInt(out, session.getSessionId());
+			writeVarInt(out, session.getSubscriberId());
+			writeVarInt(out, session.getSpotId());
+			writeVarInt(out, session.getParkingCode());
+			writeDate(out, session.getInTime());
+			writeDate(out, session.getOutTime());
+			out.writeByte((session.isExtended() ? 1 : 0) | (session.isLate() ? 2 : 0) | (session.getActive() ? 4 : 0));
+		} else if (value instanceof Reservation) {
+			Reservation reservation = (Reservation) value;
+			out.writeByte(RESERVATION);
+			writeVarInt(out, reservation.getId());
+			writeVarInt(out, reservation.getSubscriberId());
+			writeVarInt(out, reservation.getSpot());
+			writeVarLong(out, reservation.getDate() == null ? 0 : zigZag(reservation.getDate().toEpochDay()) + 1);
+			writeString(out, reservation.getStartTime());
+			writeString(out, reservation.getEndTime());
+			writeVarInt(out, reservation.getCode());
+		} else if (value instanceof subscriber) {
+			subscriber sub = (subscriber) value;
+			out.writeByte(SUBSCRIBER);
+			writeVarInt(out, sub.getId());
+			writeString(out, sub.getName());
+			writeString(out, sub.getPhone());
+			writeString(out, sub.getEmail());
+			writeEnum(out, sub.getRole());
+			out.writeBoolean(sub.getLoggedIn());
+			writeList(out, sub.getHistory());
+			writeString(out, sub.getTag());
+			writeVarInt(out, sub.getCode());
+		} else if (value instanceof ParkingSpot) {
+			ParkingSpot spot = (ParkingSpot) value;
+			out.writeByte(PARKING_SPOT);
+			writeVarInt(out, spot.getSpotId());
+			writeEnum(out, spot.getStatus());
+		} else if (value instanceof ChangeEvent) {
+			ChangeEvent change = (ChangeEvent) value;
+			out.writeByte(CHANGE_EVENT);
+			writeVarLong(out, zigZag(change.getVersion()));
+			writeEnum(out, change.getEntityType());
+			writeEnum(out, change.getChangeType());
+			writeVarInt(out, change.getKey());
+			writeValue(out, change.getEntity());
+		} else if (value instanceof FileTransferMessage) {
+			FileTransferMessage file = (FileTransferMessage) value;
+			out.writeByte(FILE_TRANSFER);
+			writeString(out, file.getFilename());
+			writeBytes(out, file.getData());
+		} else if (value instanceof PageRequest) {
+			PageRequest request = (PageRequest) value;
+			out.writeByte(PAGE_REQUEST);
+			writeEnum(out, request.getEntityType());
+			writeVarInt(out, request.getAfterId());
+			writeVarInt(out, request.getLimit());
+		} else if (value instanceof Page<?>) {
+			Page<?> page = (Page<?>) value;
+			out.writeByte(PAGE);
+			writeEnum(out, page.getEntityType());
+			writeList(out, page.getItems());
+			writeVarInt(out, page.getNextAfterId());
+			out.writeBoolean(page.hasMore());
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	private void writeList(DataOutputStream out, Collection<?> list) throws IOException {
+		if (list == null) {
+			writeVarInt(out, 0);
+			return;
+		}
+		writeVarInt(out, list.size() + 1);
+		for (Object element : list)
+			writeValue(out, element);
+	}
+
+	private void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			writeVarInt(out, 0);
+			return;
+		}
+		byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(out, utf8.length + 1);
+		out.write(utf8);
+	}
+
+	private void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+		if (value == null) {
+			writeVarInt(out, 0);
+			return;
+		}
+		writeVarInt(out, value.length + 1);
+		out.write(value);
+	}
+
+	private void writeDate(DataOutputStream out, Date value) throws IOException {
+		if (value == null)
+			out.writeByte(NULL);
+		else
+			writeValue(out, value instanceof Timestamp ? value : new Date(value.getTime()));
+	}
+
+	private void writeEnum(DataOutputStream out, Enum<?> value) throws IOException {
+		writeVarInt(out, value == null ? 0 : value.ordinal() + 1);
+	}
+
+	/**
+	 * Writes a non negative int, 7 bits per byte
+	 */
+	private void writeVarInt(DataOutputStream out, int value) throws IOException {
+		writeVarLong(out, value & 0xFFFFFFFFL);
+	}
+
+	private void writeVarLong(DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	/**
+	 * Maps signed numbers to unsigned ones so small negative numbers stay short
+	 */
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	// Reading -----------------------------------------------------------------
+
+	/**
+	 * Reads a value written by writeValue
+	 */
+	private Object readValue(DataInputStream in) throws IOException {
+		int tag = in.readUnsignedByte();
+		switch (tag) {
+		case NULL:
+			return null;
+		case SEND_OBJECT: {
+			String message = readString(in);
+			long requestId = readVarLong(in);
+			SendObject<Serializable> sendObject = new SendObject<>(message, (Serializable) readValue(in));
+			if (requestId != 0)
+				sendObject.setRequestId(requestId - 1);
+			return sendObject;
+		}
+		case STRING:
+			return readString(in);
+		case INTEGER:
+			return (int) unZigZag(readVarLong(in));
+		case LONG:
+			return unZigZag(readVarLong(in));
+		case DOUBLE:
+			return in.readDouble();
+		case BOOLEAN:
+			return in.readBoolean();
+		case LIST:
+			return readList(in);
+		case BYTES:
+			return readBytes(in);
+		case LOCAL_DATE:
+			return LocalDate.ofEpochDay(unZigZag(readVarLong(in)));
+		case DATE:
+			return new Date(unZigZag(readVarLong(in)));
+		case TIMESTAMP:
+			return new Timestamp(unZigZag(readVarLong(in)));
+		case PARKING_SESSION: {
+			int sessionId = readVarInt(in);
+			int subscriberId = readVarInt(in);
+			int spotId = readVarInt(in);
+			int parkingCode = readVarInt(in);
+			Date inTime = (Date) readValue(in);
+			Date outTime = (Date) readValue(in);
+			int flags = in.readUnsignedByte();
+			return new Parkingsession(sessionId, subscriberId, spotId, parkingCode, inTime, outTime,
+					(flags & 1) != 0, (flags & 2) != 0, (flags & 4) != 0);
+		}
+		case RESERVATION: {
+			int id = readVarInt(in);
+			int subscriberId = readVarInt(in);
+			int spotId = readVarInt(in);
+			long epochDay = readVarLong(in);
+			LocalDate date = epochDay == 0 ? null : LocalDate.ofEpochDay(unZigZag(epochDay - 1));
+			String startTime = readString(in);
+			String endTime = readString(in);
+			int code = readVarInt(in);
+			Reservation reservation = new Reservation(subscriberId, spotId, date, startTime, endTime, code);
+			reservation.setId(id);
+			return reservation;
+		}
+		case SUBSCRIBER: {
+			int id = readVarInt(in);
+			String name = readString(in);
+			String phone = readString(in);
+			String email = readString(in);
+			Role role = readEnum(in, Role.values());
+			boolean loggedIn = in.readBoolean();
+			List<Parkingsession> history = readList(in);
+			String rfidTag = readString(in);
+			int code = readVarInt(in);
+			return new subscriber(id, name, phone, email, role, loggedIn, history, rfidTag, code);
+		}
+		case PARKING_SPOT:
+			return new ParkingSpot(readVarInt(in), readEnum(in, SpotStatus.values()));
+		case CHANGE_EVENT: {
+			long version = unZigZag(readVarLong(in));
+			EntityType entityType = readEnum(in, EntityType.values());
+			ChangeType changeType = readEnum(in, ChangeType.values());
+			int key = readVarInt(in);
+			return new ChangeEvent(version, entityType, changeType, key, (Serializable) readValue(in));
+		}
+		case FILE_TRANSFER:
+			return new FileTransferMessage(readString(in), readBytes(in));
+		case PAGE_REQUEST:
+			return new PageRequest(readEnum(in, EntityType.values()), readVarInt(in), readVarInt(in));
+		case PAGE: {
+			EntityType entityType = readEnum(in, EntityType.values());
+			List<Serializable> items = readList(in);
+			return new Page<>(entityType, items, readVarInt(in), in.readBoolean());
+		}
+		case JAVA_OBJECT:
+			return JavaSerializationCodec.INSTANCE.decode(readBytes(in));
+		default:
+			throw new StreamCorruptedException("unknown tag " + tag);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> ArrayList<T> readList(DataInputStream in) throws IOException {
+		int size = readVarInt(in);
+		if (size == 0)
+			return null;
+		ArrayList<T> list = new ArrayList<>(size - 1);
+		for (int i = 1; i < size; i++)
+			list.add((T) readValue(in));
+		return list;
+	}
+
+	private String readString(DataInputStream in) throws IOException {
+		byte[] utf8 = readBytes(in);
+		return utf8 == null ? null : new String(utf8, StandardCharsets.UTF_8);
+	}
+
+	private byte[] readBytes(DataInputStream in) throws IOException {
+		int length = readVarInt(in);
+		if (length == 0)
+			return null;
+		byte[] value = new byte[length - 1];
+		in.readFully(value);
+		return value;
+	}
+
+	private <E extends Enum<E>> E readEnum(DataInputStream in, E[] values) throws IOException {
+		int ordinal = readVarInt(in);
+		if (ordinal == 0)
+			return null;
+		if (ordinal > values.length)
+			throw new StreamCorruptedException("unknown enum ordinal " + (ordinal - 1));
+		return values[ordinal - 1];
+	}
+
+	private int readVarInt(DataInputStream in) throws IOException {
+		return (int) readVarLong(in);
+	}
+
+	private long readVarLong(DataInputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.read();
+			if (b < 0)
+				throw new EOFException();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new StreamCorruptedException("variable length number is too long");
+	}
+}
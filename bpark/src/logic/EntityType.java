@@ -0,0 +1,16 @@
+package logic;
+
+/**
+ * Represents the types of entities that are published in the change feed.
+ * 
+ * RESERVATION     - A {@link Reservation}, keyed by its reservation id.
+ * SUBSCRIBER      - A {@link subscriber}, keyed by its subscriber id.
+ * PARKING_SESSION - A {@link Parkingsession}, keyed by its session id.
+ * PARKING_SPOT    - A {@link ParkingSpot}, keyed by its spot id.
+ */
+public enum EntityType {
+    RESERVATION,
+    SUBSCRIBER,
+    PARKING_SESSION,
+    PARKING_SPOT
+}
@@ -0,0 +1,37 @@
+package logic;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Codec that uses Java serialization, the same format OCSF uses for the messages themselves
+ */
+public class JavaSerializationCodec implements WireCodec {
+	public static final JavaSerializationCodec INSTANCE = new JavaSerializationCodec();
+
+	@Override
+	public String getName() {
+		return JAVA;
+	}
+
+	@Override
+	public byte[] encode(Object msg) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(msg);
+		}
+		return bytes.toByteArray();
+	}
+
+	@Override
+	public Object decode(byte[] data) throws IOException {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+			return in.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException("unknown class received", e);
+		}
+	}
+}
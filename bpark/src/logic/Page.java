@@ -0,0 +1,88 @@
+package logic;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of a table, the reply to a {@link PageRequest}.
+ *
+ * The rows are ordered by id. When hasMore is true the next page is asked with
+ * {@link #next(int)}, when it is false this was the last page of the table.
+ *
+ * @param <T> the type of the rows
+ */
+@SuppressWarnings("serial")
+public class Page<T extends Serializable> implements Serializable {
+	private final EntityType entityType;
+	private final ArrayList<T> items;
+	private final int nextAfterId;
+	private final boolean hasMore;
+
+	/**
+	 * Constructs a new Page.
+	 *
+	 * @param entityType  the table the rows were read from
+	 * @param items       the rows of the page
+	 * @param nextAfterId the id of the last row, the next page starts after it
+	 * @param hasMore     true if the table has rows after this page
+	 */
+	public Page(EntityType entityType, List<T> items, int nextAfterId, boolean hasMore) {
+		this.entityType = entityType;
+		this.items = new ArrayList<>(items);
+		this.nextAfterId = nextAfterId;
+		this.hasMore = hasMore;
+	}
+
+	/**
+	 * Returns the table the rows were read from
+	 *
+	 * @return the entity type
+	 */
+	public EntityType getEntityType() {
+		return entityType;
+	}
+
+	/**
+	 * Returns the rows of the page
+	 *
+	 * @return the rows, ordered by id
+	 */
+	public List<T> getItems() {
+		return items;
+	}
+
+	/**
+	 * Returns the id of the last row of the page
+	 *
+	 * @return the id the next page starts after
+	 */
+	public int getNextAfterId() {
+		return nextAfterId;
+	}
+
+	/**
+	 * Returns whether the table has rows after this page
+	 *
+	 * @return true if there is a next page
+	 */
+	public boolean hasMore() {
+		return hasMore;
+	}
+
+	/**
+	 * Returns the request for the page after this one
+	 *
+	 * @param limit maximum number of rows in the next page
+	 * @return the request
+	 */
+	public PageRequest next(int limit) {
+		return new PageRequest(entityType, nextAfterId, limit);
+	}
+
+	@Override
+	public String toString() {
+		return "Page[" + entityType + ", " + items.size() + " rows, next after " + nextAfterId
+				+ (hasMore ? "" : ", last") + "]";
+	}
+}
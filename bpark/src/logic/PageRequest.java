@@ -0,0 +1,75 @@
+package logic;
+
+import java.io.Serializable;
+
+/**
+ * A request for one page of a table, sent with the action "Get page".
+ *
+ * The pages are keyset pages: a page holds the rows whose id is greater than the last id of the
+ * previous page, ordered by id. The first page is asked with afterId 0, every next page with
+ * the {@link Page#getNextAfterId()} of the page before it.
+ */
+@SuppressWarnings("serial")
+public class PageRequest implements Serializable {
+	public static final int MAX_LIMIT = 1000; // Largest page the server returns
+
+	private final EntityType entityType;
+	private final int afterId;
+	private final int limit;
+
+	/**
+	 * Constructs a new PageRequest.
+	 *
+	 * @param entityType the table to read
+	 * @param afterId    the rows returned have an id greater than this, 0 for the first page
+	 * @param limit      maximum number of rows in the page
+	 */
+	public PageRequest(EntityType entityType, int afterId, int limit) {
+		this.entityType = entityType;
+		this.afterId = afterId;
+		this.limit = limit;
+	}
+
+	/**
+	 * Returns a request for the first page of a table
+	 *
+	 * @param entityType the table to read
+	 * @param limit      maximum number of rows in the page
+	 * @return the request
+	 */
+	public static PageRequest first(EntityType entityType, int limit) {
+		return new PageRequest(entityType, 0, limit);
+	}
+
+	/**
+	 * Returns the table to read
+	 *
+	 * @return the entity type
+	 */
+	public EntityType getEntityType() {
+		return entityType;
+	}
+
+	/**
+	 * Returns the id after which the page starts
+	 *
+	 * @return the id
+	 */
+	public int getAfterId() {
+		return afterId;
+	}
+
+	/**
+	 * Returns the maximum number of rows in the page
+	 *
+	 * @return the limit
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	@Override
+	public String toString() {
+		return "PageRequest[" + entityType + " after " + afterId + ", limit " + limit + "]";
+	}
+}
@@ -11,8 +11,10 @@ import java.io.Serializable;
  */
 @SuppressWarnings("serial")
 public class SendObject<T extends Serializable> implements Serializable {
+    private static final long serialVersionUID = 3707890899514623729L; // Pinned to the pre-requestId UID so old and new peers interoperate
     private T obj;
     private String objectMessage;
+    private Long requestId; // Set by the client to match the reply to its request, null if not needed
     
     /**
      * @param objectMessage
@@ -56,4 +58,20 @@ public class SendObject<T extends Serializable> implements Serializable {
     public void setObjectMessage(String objectMessage) {
         this.objectMessage = objectMessage;
     }
+
+    /**
+     * Getter of requestId field
+     * @return requestId, null if the message is not a correlated request/reply
+     */
+    public Long getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * Setter for requestId field, the server copies it to the reply
+     * @param requestId
+     */
+    public void setRequestId(Long requestId) {
+        this.requestId = requestId;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package logic;
+
+import java.io.IOException;
+
+/**
+ * Encodes the messages sent between the client and the server.
+ *
+ * A client and the server agree on a codec with a "Codec" {@link SendObject} that holds the
+ * name of the codec. Until the server confirms it, Java serialization is used, so old clients
+ * and old servers keep working. Messages of a negotiated codec are sent as byte arrays.
+ */
+public interface WireCodec {
+	String JAVA = "java";
+	String COMPACT = "compact";
+
+	/**
+	 * Returns the name of the codec, used in the negotiation
+	 *
+	 * @return the name
+	 */
+	String getName();
+
+	/**
+	 * Encodes a message
+	 *
+	 * @param msg the message
+	 * @return the encoded message
+	 * @throws IOException if the message can't be encoded
+	 */
+	byte[] encode(Object msg) throws IOException;
+
+	/**
+	 * Decodes a message encoded by {@link #encode(Object)}
+	 *
+	 * @param data the encoded message
+	 * @return the message
+	 * @throws IOException if the data is corrupted
+	 */
+	Object decode(byte[] data) throws IOException;
+
+	/**
+	 * Returns the codec with the given name
+	 *
+	 * @param name the name of the codec
+	 * @return the codec, or null if there is no codec with that name
+	 */
+	static WireCodec forName(String name) {
+		if (COMPACT.equalsIgnoreCase(name))
+			return CompactBinaryCodec.INSTANCE;
+		if (JAVA.equalsIgnoreCase(name))
+			return JavaSerializationCodec.INSTANCE;
+		return null;
+	}
+}
@@ -0,0 +1,177 @@
+package jdbc;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import logic.*;
+
+/**
+ * In-memory copy of the spots and of the reservation times, used to answer the availability
+ * questions without querying the database.
+ *
+ * For every date and spot the reservations are kept in a TreeMap ordered by start time, so the
+ * overlap check only looks at the reservations that start before the end of the asked window.
+ * The index is loaded when the server starts and is updated by {@link DataBaseQuery} after every
+ * write of a reservation or a spot. A reservation without a start time (cancelled) is not indexed.
+ */
+public class AvailabilityIndex {
+
+	/**
+	 * The time window of one reservation
+	 */
+	private static class Slot {
+		final int reservationId;
+		final int spotId;
+		final LocalDate date;
+		final LocalTime start;
+		final LocalTime end;
+
+		Slot(int reservationId, int spotId, LocalDate date, LocalTime start, LocalTime end) {
+			this.reservationId = reservationId;
+			this.spotId = spotId;
+			this.date = date;
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+	private final TreeMap<Integer, SpotStatus> spots = new TreeMap<>();
+	private final Map<Integer, Slot> slotsById = new HashMap<>();
+	// date -> spot id -> start time -> slots starting at that time
+	private final Map<LocalDate, Map<Integer, TreeMap<LocalTime, List<Slot>>>> slots = new HashMap<>();
+
+	/**
+	 * Replaces the content of the index
+	 *
+	 * @param allSpots        all the parking spots
+	 * @param allReservations all the reservations
+	 */
+	public synchronized void load(List<ParkingSpot> allSpots, List<Reservation> allReservations) {
+		spots.clear();
+		slotsById.clear();
+		slots.clear();
+		for (ParkingSpot spot : allSpots)
+			spots.put(spot.getSpotId(), spot.getStatus());
+		for (Reservation reservation : allReservations)
+			putReservation(reservation);
+	}
+
+	/**
+	 * Applies a change that was written to the database
+	 *
+	 * @param changeType the kind of change
+	 * @param entity     the entity after the change
+	 */
+	public synchronized void apply(ChangeType changeType, Serializable entity) {
+		if (entity instanceof ParkingSpot) {
+			ParkingSpot spot = (ParkingSpot) entity;
+			if (changeType == ChangeType.DELETE)
+				spots.remove(spot.getSpotId());
+			else
+				spots.put(spot.getSpotId(), spot.getStatus());
+		} else if (entity instanceof Reservation) {
+			Reservation reservation = (Reservation) entity;
+			removeReservation(reservation.getId());
+			if (changeType != ChangeType.DELETE)
+				putReservation(reservation);
+		}
+	}
+
+	/**
+	 * Returns the spots that are not occupied and have no reservation overlapping the window,
+	 * same as {@link DataBaseQuery#getFreeParkingSpotFromDatabase}
+	 *
+	 * @param date  the date
+	 * @param start the start of the window
+	 * @param end   the end of the window
+	 * @return the free spots ordered by spot id
+	 */
+	public synchronized List<ParkingSpot> freeSpots(LocalDate date, LocalTime start, LocalTime end) {
+		List<ParkingSpot> free = new ArrayList<>();
+		Map<Integer, TreeMap<LocalTime, List<Slot>>> slotsOfDate = slots.get(date);
+		for (Map.Entry<Integer, SpotStatus> spot : spots.entrySet()) {
+			if (spot.getValue() == SpotStatus.OCCUPIED)
+				continue;
+			TreeMap<LocalTime, List<Slot>> slotsOfSpot = slotsOfDate == null ? null : slotsOfDate.get(spot.getKey());
+			if (!overlaps(slotsOfSpot, start, end))
+				free.add(new ParkingSpot(spot.getKey(), spot.getValue()));
+		}
+		return free;
+	}
+
+	/**
+	 * Checks if a parking session may be extended, same as
+	 * {@link DataBaseQuery#checkExtendTimeParkingsessionWithAllReservations}: no reservation of
+	 * the spot on that date may start before the new out time
+	 *
+	 * @param spotId  the spot of the session
+	 * @param date    the date of the session
+	 * @param newOut  the new out time
+	 * @return true if the session may be extended
+	 */
+	public synchronized boolean canExtend(int spotId, LocalDate date, LocalTime newOut) {
+		Map<Integer, TreeMap<LocalTime, List<Slot>>> slotsOfDate = slots.get(date);
+		TreeMap<LocalTime, List<Slot>> slotsOfSpot = slotsOfDate == null ? null : slotsOfDate.get(spotId);
+		return slotsOfSpot == null || slotsOfSpot.isEmpty() || !slotsOfSpot.firstKey().isBefore(newOut);
+	}
+
+	/**
+	 * A reservation overlaps the window if it starts before the window ends and
+	 * ends after the window starts (the ends are inclusive, as in the SQL query)
+	 */
+	private static boolean overlaps(TreeMap<LocalTime, List<Slot>> slotsOfSpot, LocalTime start, LocalTime end) {
+		if (slotsOfSpot == null)
+			return false;
+		for (List<Slot> startingTogether : slotsOfSpot.headMap(end, true).values()) {
+			for (Slot slot : startingTogether) {
+				if (slot.end != null && !slot.end.isBefore(start))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	private void putReservation(Reservation reservation) {
+		LocalTime start = parseTime(reservation.getStartTime());
+		if (start == null || reservation.getDate() == null)
+			return;
+		Slot slot = new Slot(reservation.getId(), reservation.getSpot(), reservation.getDate(), start,
+				parseTime(reservation.getEndTime()));
+		slotsById.put(slot.reservationId, slot);
+		slots.computeIfAbsent(slot.date, d -> new HashMap<>()).computeIfAbsent(slot.spotId, s -> new TreeMap<>())
+				.computeIfAbsent(slot.start, t -> new ArrayList<>(1)).add(slot);
+	}
+
+	private void removeReservation(int reservationId) {
+		Slot slot = slotsById.remove(reservationId);
+		if (slot == null)
+			return;
+		Map<Integer, TreeMap<LocalTime, List<Slot>>> slotsOfDate = slots.get(slot.date);
+		TreeMap<LocalTime, List<Slot>> slotsOfSpot = slotsOfDate.get(slot.spotId);
+		List<Slot> startingTogether = slotsOfSpot.get(slot.start);
+		startingTogether.remove(slot);
+		if (startingTogether.isEmpty())
+			slotsOfSpot.remove(slot.start);
+		if (slotsOfSpot.isEmpty())
+			slotsOfDate.remove(slot.spotId);
+		if (slotsOfDate.isEmpty())
+			slots.remove(slot.date);
+	}
+
+	/**
+	 * Parses a time of the form HH:mm or HH:mm:ss
+	 *
+	 * @return the time, or null if the text is empty
+	 */
+	static LocalTime parseTime(String time) {
+		if (time == null || time.trim().isEmpty())
+			return null;
+		return LocalTime.parse(time.trim());
+	}
+}
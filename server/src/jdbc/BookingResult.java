@@ -0,0 +1,62 @@
+package jdbc;
+
+import logic.*;
+
+/**
+ * The outcome of {@link ParkingStore#bookReservation}
+ */
+public class BookingResult {
+
+	/**
+	 * Why the reservation was or was not booked
+	 */
+	public enum Status {
+		BOOKED, // The reservation was inserted
+		NO_FREE_SPOT, // No spot is free in the requested window
+		NOT_ENOUGH_SPACE, // Too few spots are free to take a reservation
+		FAILED // The store failed, nothing was written
+	}
+
+	private final Status status;
+	private final Reservation reservation;
+
+	private BookingResult(Status status, Reservation reservation) {
+		this.status = status;
+		this.reservation = reservation;
+	}
+
+	/**
+	 * @param reservation the booked reservation with its id and spot
+	 * @return a result with status BOOKED
+	 */
+	public static BookingResult booked(Reservation reservation) {
+		return new BookingResult(Status.BOOKED, reservation);
+	}
+
+	/**
+	 * @param status the reason the reservation was not booked
+	 * @return a result without a reservation
+	 */
+	public static BookingResult rejected(Status status) {
+		return new BookingResult(status, null);
+	}
+
+	/**
+	 * @return why the reservation was or was not booked
+	 */
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return the booked reservation, null if it was not booked
+	 */
+	public Reservation getReservation() {
+		return reservation;
+	}
+
+	@Override
+	public String toString() {
+		return "BookingResult[" + status + ", " + reservation + "]";
+	}
+}
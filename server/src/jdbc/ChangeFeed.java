@@ -0,0 +1,111 @@
+package jdbc;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import logic.*;
+
+/**
+ * Collects the changes made to the database so that only the changed entities
+ * are sent to the clients, instead of reloading and sending the full tables.
+ *
+ * Every write method of {@link DataBaseQuery} records the entity it wrote. The server
+ * drains the pending changes shortly after they were recorded and sends them to the clients.
+ * Each change gets a version number that increases monotonically.
+ */
+public class ChangeFeed {
+	private final AtomicLong version = new AtomicLong();
+	private ArrayList<ChangeEvent> pending = new ArrayList<>();
+	private volatile Runnable listener; // Notified after every recorded change
+
+	/**
+	 * Records a change of an entity
+	 *
+	 * @param changeType the kind of change
+	 * @param entity     the entity after the change
+	 */
+	public synchronized void record(ChangeType changeType, Serializable entity) {
+		if (add(changeType, entity))
+			notifyListener();
+	}
+
+	/**
+	 * Records the changes of several entities written by one transaction. The listener is
+	 * notified once, so all of them are sent to the clients in the same message.
+	 *
+	 * @param changeType the kind of change
+	 * @param entities   the entities after the change
+	 */
+	public synchronized void recordAll(ChangeType changeType, List<? extends Serializable> entities) {
+		boolean added = false;
+		for (Serializable entity : entities)
+			added |= add(changeType, entity);
+		if (added)
+			notifyListener();
+	}
+
+	/**
+	 * Adds the event of a change to the pending changes
+	 *
+	 * @return false if the entity is unknown
+	 */
+	private boolean add(ChangeType changeType, Serializable entity) {
+		EntityType entityType;
+		int key;
+		if (entity instanceof Reservation) {
+			entityType = EntityType.RESERVATION;
+			key = ((Reservation) entity).getId();
+		} else if (entity instanceof subscriber) {
+			entityType = EntityType.SUBSCRIBER;
+			key = ((subscriber) entity).getId();
+		} else if (entity instanceof Parkingsession) {
+			entityType = EntityType.PARKING_SESSION;
+			key = ((Parkingsession) entity).getSessionId();
+		} else if (entity instanceof ParkingSpot) {
+			entityType = EntityType.PARKING_SPOT;
+			key = ((ParkingSpot) entity).getSpotId();
+		} else {
+			System.out.println("ChangeFeed: unknown entity " + entity);
+			return false;
+		}
+		pending.add(new ChangeEvent(version.incrementAndGet(), entityType, changeType, key, entity));
+		return true;
+	}
+
+	private void notifyListener() {
+		Runnable current = listener;
+		if (current != null)
+			current.run();
+	}
+
+	/**
+	 * Sets the listener that is notified after every recorded change, e.g. to schedule a broadcast
+	 *
+	 * @param listener the listener, must not block
+	 */
+	public void setListener(Runnable listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Returns all the changes recorded since the last call and clears them
+	 *
+	 * @return list of changes, ordered by version (may be empty)
+	 */
+	public synchronized ArrayList<ChangeEvent> drain() {
+		ArrayList<ChangeEvent> changes = pending;
+		pending = new ArrayList<>();
+		return changes;
+	}
+
+	/**
+	 * Returns the version of the last recorded change
+	 *
+	 * @return the current version
+	 */
+	public long getVersion() {
+		return version.get();
+	}
+}
@@ -0,0 +1,206 @@
+package jdbc;
+
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Hands out unique codes of a fixed range (the subscriber codes, the reservation codes and
+ * the RFID tags) without a database query per code.
+ *
+ * The n-th code is a keyed permutation of n over the range, so the codes are all different and
+ * do not look sequential. The next n and the secret key are kept in the code_allocator table,
+ * a server reserves a block of BLOCK_SIZE numbers with one transaction and hands them out from
+ * memory. The numbers of a block that is not used up before the server stops are skipped.
+ *
+ * Codes that were given before the allocator existed may still be in use, so the codes of a new
+ * block are checked against the database with one query and the used ones are skipped. When the
+ * whole range was handed out the allocator starts again with a new key, and the check skips the
+ * codes that are still in use.
+ */
+public class CodeAllocator {
+	private static final int BLOCK_SIZE = 100; // Numbers reserved with one transaction
+
+	/**
+	 * Finds which codes of a block are already in use
+	 */
+	@FunctionalInterface
+	public interface UsedCodes {
+		/**
+		 * @param con        a connection to the bpark database
+		 * @param candidates the codes of a new block
+		 * @return the candidates that are in use
+		 * @throws SQLException if the codes can't be checked
+		 */
+		Set<Long> find(Connection con, List<Long> candidates) throws SQLException;
+	}
+
+	private final MySQLConnection db;
+	private final String name;
+	private final long first;
+	private final long size;
+	private final UsedCodes usedCodes;
+	private final ArrayDeque<Long> block = new ArrayDeque<>(BLOCK_SIZE);
+	private final SecureRandom random = new SecureRandom();
+
+	/**
+	 * Constructor of the class
+	 *
+	 * @param db        the connections to the bpark database
+	 * @param name      the name of the range in the code_allocator table
+	 * @param first     the smallest code
+	 * @param size      number of codes in the range (at most 2^62)
+	 * @param usedCodes finds the codes that are in use, or null if every code of the range is
+	 *                  only given by this allocator
+	 */
+	public CodeAllocator(MySQLConnection db, String name, long first, long size, UsedCodes usedCodes) {
+		this.db = db;
+		this.name = name;
+		this.first = first;
+		this.size = size;
+		this.usedCodes = usedCodes;
+	}
+
+	/**
+	 * Returns a code that was not given before and is not in use
+	 *
+	 * @return the code
+	 * @throws SQLException if a new block can't be reserved
+	 */
+	public synchronized long next() throws SQLException {
+		int emptyBlocks = 0;
+		while (block.isEmpty()) {
+			if (!reserveBlock() && ++emptyBlocks > size / BLOCK_SIZE + 1)
+				throw new SQLException("All the codes of " + name + " are in use");
+		}
+		return block.poll();
+	}
+
+	/**
+	 * Reserves the next block of numbers in the database and keeps its unused codes in memory
+	 *
+	 * @return true if the block has codes that are not in use
+	 */
+	private boolean reserveBlock() throws SQLException {
+		long key;
+		long start;
+		int count;
+		try (Connection con = db.getCon()) {
+			boolean autoCommit = con.getAutoCommit();
+			con.setAutoCommit(false);
+			try {
+				try (PreparedStatement ps = con.prepareStatement(
+						"INSERT IGNORE INTO code_allocator (name, perm_key, next_index) VALUES (?, ?, 0)")) {
+					ps.setString(1, name);
+					ps.setLong(2, random.nextLong());
+					ps.executeUpdate();
+				}
+				try (PreparedStatement ps = con.prepareStatement(
+						"SELECT perm_key, next_index FROM code_allocator WHERE name = ? FOR UPDATE")) {
+					ps.setString(1, name);
+					try (ResultSet rs = ps.executeQuery()) {
+						rs.next();
+						key = rs.getLong("perm_key");
+						start = rs.getLong("next_index");
+					}
+				}
+				if (start >= size) {
+					if (usedCodes == null)
+						throw new SQLException("All the codes of " + name + " were given");
+					// Start again with a new order, the codes still in use are skipped by the check
+					key = random.nextLong();
+					start = 0;
+					System.out.println("Code range " + name + " was used up, starting again with a new key");
+				}
+				count = (int) Math.min(BLOCK_SIZE, size - start);
+				try (PreparedStatement ps = con.prepareStatement(
+						"UPDATE code_allocator SET perm_key = ?, next_index = ? WHERE name = ?")) {
+					ps.setLong(1, key);
+					ps.setLong(2, start + count);
+					ps.setString(3, name);
+					ps.executeUpdate();
+				}
+				con.commit();
+			} catch (SQLException e) {
+				con.rollback();
+				throw e;
+			} finally {
+				con.setAutoCommit(autoCommit);
+			}
+			Permutation permutation = new Permutation(key, size);
+			List<Long> candidates = new ArrayList<>(count);
+			for (long i = start; i < start + count; i++)
+				candidates.add(first + permutation.apply(i));
+			Set<Long> used = usedCodes == null ? Set.of() : usedCodes.find(con, candidates);
+			for (Long code : candidates) {
+				if (!used.contains(code))
+					block.add(code);
+			}
+		}
+		return !block.isEmpty();
+	}
+
+	/**
+	 * Keyed permutation of the numbers 0..size-1: a Feistel network over the smallest even
+	 * number of bits that holds size, numbers outside the range are encrypted again
+	 * (cycle walking) until they fall inside it
+	 */
+	static class Permutation {
+		private static final int ROUNDS = 6;
+
+		private final long key;
+		private final long size;
+		private final int halfBits;
+		private final long halfMask;
+
+		/**
+		 * @param key  the secret key, different keys give different orders
+		 * @param size number of values (at most 2^62)
+		 */
+		Permutation(long key, long size) {
+			this.key = key;
+			this.size = size;
+			int bits = 64 - Long.numberOfLeadingZeros(Math.max(1, size - 1));
+			this.halfBits = Math.max(1, (bits + 1) / 2);
+			this.halfMask = (1L << halfBits) - 1;
+		}
+
+		/**
+		 * @param index a number of the range
+		 * @return the number the index is mapped to, a different one for every index
+		 */
+		long apply(long index) {
+			long value = index;
+			do {
+				value = encrypt(value);
+			} while (value >= size);
+			return value;
+		}
+
+		private long encrypt(long value) {
+			long left = value >>> halfBits;
+			long right = value & halfMask;
+			for (int round = 0; round < ROUNDS; round++) {
+				long next = left ^ (mix(key + round * 0x9E3779B97F4A7C15L + right) & halfMask);
+				left = right;
+				right = next;
+			}
+			return (left << halfBits) | right;
+		}
+
+		/**
+		 * Finalizer of SplitMix64, every bit of the result depends on every bit of the input
+		 */
+		private static long mix(long z) {
+			z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+			z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+			return z ^ (z >>> 31);
+		}
+	}
+}
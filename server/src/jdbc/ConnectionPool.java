@@ -0,0 +1,436 @@
+package jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pool of database connections.
+ *
+ * {@link #getConnection()} borrows a connection and closing it returns the connection to the
+ * pool. A thread that already holds a connection gets the same one again (the connection goes
+ * back to the pool when the outer borrow is closed), so a query method may call another one,
+ * and several calls can share one transaction, without taking a second connection.
+ *
+ * Idle connections are checked with isValid before they are lent, and are replaced after their
+ * maximum lifetime. A background thread keeps the minimum number of connections open and prints
+ * the stack trace of the borrower of every connection that is held longer than the leak threshold.
+ *
+ * Every connection keeps its prepared statements in a {@link StatementCache}.
+ */
+public class ConnectionPool {
+
+	/**
+	 * Opens a new physical connection
+	 */
+	@FunctionalInterface
+	public interface ConnectionFactory {
+		Connection create() throws SQLException;
+	}
+
+	/**
+	 * A physical connection of the pool and its state
+	 */
+	private static class PooledConnection {
+		final Connection physical;
+		final long createdAt = System.currentTimeMillis();
+		long lastUsed = createdAt;
+		long borrowedAt;
+		Thread owner;
+		Exception borrowTrace;
+		int depth;
+		boolean leakReported;
+		boolean broken;
+		StatementCache statements; // null when the statement cache is off
+
+		PooledConnection(Connection physical) {
+			this.physical = physical;
+		}
+	}
+
+	private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+	private static final long IDLE_VALIDATION_MILLIS = 500; // Connections used more recently are not validated again
+
+	private final ConnectionFactory factory;
+	private final int minSize;
+	private final int maxSize;
+	private final long connectionTimeoutMillis;
+	private final long leakThresholdMillis;
+	private final long maxLifetimeMillis;
+	private final int statementCacheSize;
+	private final StatementCache.Stats statementStats = new StatementCache.Stats();
+	private volatile QueryExplainer queryExplainer; // Set in the diagnostics mode
+
+	private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+	private final Set<PooledConnection> borrowed = Collections.newSetFromMap(new IdentityHashMap<>());
+	private final ThreadLocal<PooledConnection> current = new ThreadLocal<>();
+	private final ScheduledExecutorService housekeeper;
+	private int total = 0;
+	private boolean closed = false;
+
+	private long borrows = 0;
+	private long created = 0;
+	private long discarded = 0;
+	private long timeouts = 0;
+	private long leaks = 0;
+
+	/**
+	 * Constructor of the class, opens the minimum number of connections
+	 *
+	 * @param factory                 opens the physical connections
+	 * @param minSize                 connections kept open when the pool is idle
+	 * @param maxSize                 maximum number of open connections
+	 * @param connectionTimeoutMillis how long a borrower waits when all the connections are in use
+	 * @param leakThresholdMillis     a connection held longer than this is reported, 0 to disable
+	 * @param maxLifetimeMillis       connections older than this are replaced, 0 to disable
+	 * @param statementCacheSize      prepared statements cached per connection, 0 to disable
+	 */
+	public ConnectionPool(ConnectionFactory factory, int minSize, int maxSize, long connectionTimeoutMillis,
+			long leakThresholdMillis, long maxLifetimeMillis, int statementCacheSize) {
+		this.factory = factory;
+		this.maxSize = Math.max(1, maxSize);
+		this.minSize = Math.min(Math.max(0, minSize), this.maxSize);
+		this.connectionTimeoutMillis = connectionTimeoutMillis;
+		this.leakThresholdMillis = leakThresholdMillis;
+		this.maxLifetimeMillis = maxLifetimeMillis;
+		this.statementCacheSize = statementCacheSize;
+		fillToMinimum();
+		housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "connection-pool");
+			thread.setDaemon(true);
+			return thread;
+		});
+		housekeeper.scheduleWithFixedDelay(this::houseKeeping, 5, 5, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Borrows a connection, closing it returns it to the pool
+	 *
+	 * @return the connection
+	 * @throws SQLException if no connection could be opened or the wait timed out
+	 */
+	public Connection getConnection() throws SQLException {
+		PooledConnection pooled = current.get();
+		if (pooled == null) {
+			pooled = borrow();
+			current.set(pooled);
+		}
+		pooled.depth++;
+		return lease(pooled);
+	}
+
+	/**
+	 * Takes a valid connection from the pool, opens a new one if there is room,
+	 * otherwise waits for a connection to be returned
+	 */
+	private PooledConnection borrow() throws SQLException {
+		long deadline = System.currentTimeMillis() + connectionTimeoutMillis;
+		while (true) {
+			PooledConnection pooled = null;
+			boolean create = false;
+			synchronized (this) {
+				while (pooled == null && !create) {
+					if (closed)
+						throw new SQLException("The connection pool is closed");
+					pooled = idle.pollFirst();
+					if (pooled == null && total < maxSize) {
+						total++;
+						create = true;
+					} else if (pooled == null) {
+						long remaining = deadline - System.currentTimeMillis();
+						if (remaining <= 0) {
+							timeouts++;
+							throw new SQLException("Timed out waiting for a database connection (" + this + ")");
+						}
+						try {
+							wait(remaining);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							throw new SQLException("Interrupted while waiting for a database connection", e);
+						}
+					}
+				}
+			}
+			if (create)
+				pooled = open();
+			else if (!isUsable(pooled)) {
+				discard(pooled);
+				continue;
+			}
+			synchronized (this) {
+				borrows++;
+				pooled.owner = Thread.currentThread();
+				pooled.borrowedAt = System.currentTimeMillis();
+				pooled.borrowTrace = leakThresholdMillis > 0 ? new Exception("Connection borrowed here") : null;
+				pooled.leakReported = false;
+				borrowed.add(pooled);
+			}
+			return pooled;
+		}
+	}
+
+	/**
+	 * Opens a new physical connection, the slot was already counted in total
+	 */
+	private PooledConnection open() throws SQLException {
+		try {
+			Connection physical = factory.create();
+			synchronized (this) {
+				created++;
+			}
+			PooledConnection pooled = new PooledConnection(physical);
+			if (statementCacheSize > 0)
+				pooled.statements = new StatementCache(physical, statementCacheSize, statementStats);
+			return pooled;
+		} catch (SQLException | RuntimeException e) {
+			synchronized (this) {
+				total--;
+				notifyAll();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Checks that an idle connection may be lent
+	 */
+	private boolean isUsable(PooledConnection pooled) {
+		if (isExpired(pooled))
+			return false;
+		if (System.currentTimeMillis() - pooled.lastUsed < IDLE_VALIDATION_MILLIS)
+			return true;
+		try {
+			return pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	private boolean isExpired(PooledConnection pooled) {
+		return maxLifetimeMillis > 0 && System.currentTimeMillis() - pooled.createdAt > maxLifetimeMillis;
+	}
+
+	/**
+	 * Wraps the connection for one borrow, closing the wrapper returns it once
+	 */
+	private Connection lease(PooledConnection pooled) {
+		boolean[] released = new boolean[1];
+		InvocationHandler handler = (proxy, method, args) -> {
+			switch (method.getName()) {
+			case "close":
+				if (!released[0]) {
+					released[0] = true;
+					release(pooled);
+				}
+				return null;
+			case "isClosed":
+				return released[0] || pooled.physical.isClosed();
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "Pooled " + pooled.physical;
+			default:
+				if (released[0])
+					throw new SQLException("The connection was returned to the pool");
+				try {
+					if (method.getName().equals("prepareStatement")) {
+						PreparedStatement statement = pooled.statements == null ? null : pooled.statements.prepare(args);
+						if (statement == null)
+							statement = (PreparedStatement) method.invoke(pooled.physical, args);
+						QueryExplainer explainer = queryExplainer;
+						return explainer == null ? statement : explainer.wrap(pooled.physical, (String) args[0], statement);
+					}
+					return method.invoke(pooled.physical, args);
+				} catch (InvocationTargetException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof SQLException && isConnectionError((SQLException) cause))
+						pooled.broken = true;
+					throw cause;
+				}
+			}
+		};
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, handler);
+	}
+
+	/**
+	 * SQL state class 08 is a connection exception
+	 */
+	private static boolean isConnectionError(SQLException e) {
+		return e.getSQLState() != null && e.getSQLState().startsWith("08");
+	}
+
+	/**
+	 * Returns a borrow of the connection, the connection goes back to the pool
+	 * when the last borrow of the thread is returned
+	 */
+	private void release(PooledConnection pooled) {
+		if (--pooled.depth > 0)
+			return;
+		current.remove();
+		resetState(pooled);
+		synchronized (this) {
+			borrowed.remove(pooled);
+			pooled.owner = null;
+			pooled.borrowTrace = null;
+			pooled.lastUsed = System.currentTimeMillis();
+			if (!closed && !pooled.broken && !isExpired(pooled)) {
+				idle.addFirst(pooled);
+				notifyAll();
+				return;
+			}
+		}
+		discard(pooled);
+	}
+
+	/**
+	 * Rolls back a transaction that was left open, so the next borrower starts clean
+	 */
+	private void resetState(PooledConnection pooled) {
+		try {
+			if (!pooled.broken && !pooled.physical.getAutoCommit()) {
+				pooled.physical.rollback();
+				pooled.physical.setAutoCommit(true);
+				System.out.println("A connection was returned with an open transaction, it was rolled back");
+			}
+		} catch (SQLException e) {
+			pooled.broken = true;
+		}
+	}
+
+	/**
+	 * Closes a physical connection and frees its slot
+	 */
+	private void discard(PooledConnection pooled) {
+		if (pooled.statements != null)
+			pooled.statements.clear();
+		try {
+			pooled.physical.close();
+		} catch (SQLException e) {
+			// The connection is dropped anyway
+		}
+		synchronized (this) {
+			total--;
+			discarded++;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Opens connections until the pool has the minimum number
+	 */
+	private void fillToMinimum() {
+		while (true) {
+			synchronized (this) {
+				if (closed || total >= minSize)
+					return;
+				total++;
+			}
+			try {
+				PooledConnection pooled = open();
+				synchronized (this) {
+					idle.addLast(pooled);
+					notifyAll();
+				}
+			} catch (SQLException e) {
+				System.out.println("Failed to open a pooled database connection: " + e.getMessage());
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Runs on the background thread: reports leaks, replaces expired idle connections
+	 * and keeps the minimum number of connections
+	 */
+	private void houseKeeping() {
+		List<PooledConnection> expired = new ArrayList<>();
+		long now = System.currentTimeMillis();
+		synchronized (this) {
+			if (leakThresholdMillis > 0) {
+				for (PooledConnection pooled : borrowed) {
+					if (!pooled.leakReported && now - pooled.borrowedAt > leakThresholdMillis) {
+						pooled.leakReported = true;
+						leaks++;
+						System.out.println("Possible connection leak: a connection is held by " + pooled.owner.getName()
+								+ " for " + (now - pooled.borrowedAt) + " ms");
+						if (pooled.borrowTrace != null)
+							pooled.borrowTrace.printStackTrace(System.out);
+					}
+				}
+			}
+			idle.removeIf(pooled -> isExpired(pooled) && expired.add(pooled));
+		}
+		for (PooledConnection pooled : expired)
+			discard(pooled);
+		fillToMinimum();
+	}
+
+	/**
+	 * Closes the idle connections and refuses new borrows, borrowed connections
+	 * are closed when they are returned
+	 */
+	public void close() {
+		List<PooledConnection> toClose;
+		synchronized (this) {
+			closed = true;
+			toClose = new ArrayList<>(idle);
+			idle.clear();
+			notifyAll();
+		}
+		housekeeper.shutdownNow();
+		for (PooledConnection pooled : toClose)
+			discard(pooled);
+	}
+
+	/**
+	 * @return number of open connections, idle or borrowed
+	 */
+	public synchronized int getTotal() {
+		return total;
+	}
+
+	/**
+	 * @return number of borrowed connections
+	 */
+	public synchronized int getBorrowed() {
+		return borrowed.size();
+	}
+
+	/**
+	 * Turns on the diagnostics mode, the plan of every statement is printed the first time it runs
+	 *
+	 * @param queryExplainer the explainer, null to turn the diagnostics off
+	 */
+	public void setQueryExplainer(QueryExplainer queryExplainer) {
+		this.queryExplainer = queryExplainer;
+	}
+
+	/**
+	 * @return share of the prepared statements that were taken from the statement caches
+	 */
+	public double getStatementHitRatio() {
+		return statementStats.hitRatio();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("ConnectionPool[total=%d, borrowed=%d, idle=%d, borrows=%d, created=%d, discarded=%d, "
+				+ "timeouts=%d, leaks=%d, %s]", total, borrowed.size(), idle.size(), borrows, created, discarded,
+				timeouts, leaks, statementStats);
+	}
+}
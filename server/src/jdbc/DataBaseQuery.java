@@ -1,13 +1,22 @@
 package jdbc;
 
+import java.io.Serializable;
+import java.security.SecureRandom;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Date;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import logic.*;
 
@@ -15,13 +24,96 @@ import logic.*;
  * DataBaseQuery contains methods for reading from the BPark schema.
  * It extends MySQLConnection to inherit the connection logic.
  */
-public class DataBaseQuery extends MySQLConnection {
+public class DataBaseQuery extends MySQLConnection implements ParkingStore {
+    private final ChangeFeed changeFeed = new ChangeFeed(); // Records every write for the clients
+    private final AvailabilityIndex availabilityIndex = new AvailabilityIndex(); // Reservation times by spot and date
+    private final OccupancyCounters occupancyCounters = new OccupancyCounters(); // Number of spots in every status
+    private static final int STREAM_FETCH_SIZE = 500; // Rows fetched from the cursor at a time when streaming
+    private final CodeAllocator subscriberCodes = new CodeAllocator(this, "subscriber_code", 100000, 900000,
+            (con, codes) -> findUsedCodes(con, "SELECT code FROM subscribers WHERE code IN ", codes));
+    private final CodeAllocator reservationCodes = new CodeAllocator(this, "reservation_code", 100000, 900000,
+            (con, codes) -> findUsedCodes(con,
+                    "SELECT reservation_code FROM reservations WHERE start_time IS NOT NULL AND reservation_code IN ", codes));
+    // The last 8 digits of a tag are unique, the first 16 are random (a tag given before could
+    // only be equal by guessing 64 random bits, so the tags are not checked against the table)
+    private final CodeAllocator tagNumbers = new CodeAllocator(this, "rfid_tag", 0, 1L << 32, null);
+    private final SecureRandom tagRandom = new SecureRandom();
+
     /**
      * Constructor: calls parent constructor to ensure the database/tables exist
-     * and that `con` (the Connection) is initialized.
+     * and that the connection pool is initialized.
      */
     public DataBaseQuery() {
         super();
+        List<ParkingSpot> spots = getAllParkingSpots();
+        availabilityIndex.load(spots, new ArrayList<>());
+        streamReservations(reservation -> availabilityIndex.apply(ChangeType.INSERT, reservation));
+        occupancyCounters.load(spots);
+    }
+
+    /**
+     * Getter of changeFeed
+     * @return the feed of the changes written by this class
+     */
+    public ChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+
+    /**
+     * Getter of availabilityIndex
+     * @return the in-memory index of the spots and the reservation times
+     */
+    public AvailabilityIndex getAvailabilityIndex() {
+        return availabilityIndex;
+    }
+
+    /**
+     * Getter of occupancyCounters
+     * @return the live number of spots in every status
+     */
+    public OccupancyCounters getOccupancyCounters() {
+        return occupancyCounters;
+    }
+
+    /**
+     * Reads the spot statuses from the database and corrects the occupancy counters,
+     * in case the parking_spots table was changed outside the server.
+     */
+    public void reconcileOccupancy() {
+        long version = occupancyCounters.getVersion();
+        List<ParkingSpot> spots = getAllParkingSpots();
+        if (spots.isEmpty())
+            return; // The query failed, keep the counters
+        int drift = occupancyCounters.reconcile(spots, version);
+        if (drift > 0)
+            System.out.println("Occupancy counters corrected " + drift + " spots: " + occupancyCounters.snapshot());
+    }
+
+    /**
+     * Records a write in the change feed and applies it to the in-memory indexes.
+     *
+     * @param changeType the kind of change
+     * @param entity     the entity after the change
+     */
+    private void recordChange(ChangeType changeType, Serializable entity) {
+        availabilityIndex.apply(changeType, entity);
+        occupancyCounters.apply(changeType, entity);
+        changeFeed.record(changeType, entity);
+    }
+
+    /**
+     * Records the writes of one transaction in the change feed as one batch, so the
+     * clients get them in one message, and applies them to the in-memory indexes.
+     *
+     * @param changeType the kind of change
+     * @param entities   the entities after the change
+     */
+    private void recordChanges(ChangeType changeType, List<? extends Serializable> entities) {
+        for (Serializable entity : entities) {
+            availabilityIndex.apply(changeType, entity);
+            occupancyCounters.apply(changeType, entity);
+        }
+        changeFeed.recordAll(changeType, entities);
     }
     
     /**
@@ -39,7 +131,8 @@ public class DataBaseQuery extends MySQLConnection {
             "WHERE parking_code = ? " +
             "  AND active = TRUE";
         try (
-            PreparedStatement ps = getCon().prepareStatement(sql)
+            Connection con = getCon();
+            PreparedStatement ps = con.prepareStatement(sql)
         ) {
             // Bind the integer `code` into the SQL's first parameter (index = 1).
             ps.setInt(1, code);
@@ -75,7 +168,7 @@ public class DataBaseQuery extends MySQLConnection {
             "AND active = TRUE " +
             "LIMIT 1";
 
-        try (PreparedStatement ps = getCon().prepareStatement(sql)) {
+        try (Connection con = getCon(); PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setInt(1, parkingCode);
 
             try (ResultSet rs = ps.executeQuery()) 
@@ -117,7 +210,8 @@ public class DataBaseQuery extends MySQLConnection {
                 "And end_time IS NOT NULL " + 
     			"And start_time IS NOT NULL ";
             try (
-                PreparedStatement ps = getCon().prepareStatement(sql)
+                Connection con = getCon();
+                PreparedStatement ps = con.prepareStatement(sql)
             ) {  
                 ps.setInt(1, subscriber_id);
                 // Execute the query; it returns a ResultSet with exactly one row and one column (the count).
@@ -158,7 +252,7 @@ public class DataBaseQuery extends MySQLConnection {
             "ORDER BY in_time DESC " +
             "LIMIT 1";
 
-        try (PreparedStatement ps = getCon().prepareStatement(sql)) {
+        try (Connection con = getCon(); PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setInt(1, subscriber_id);
 
             try (ResultSet rs = ps.executeQuery()) {
@@ -191,7 +285,8 @@ public class DataBaseQuery extends MySQLConnection {
 
         // One try-with-resources block for both PreparedStatement and ResultSet
         try (
-            PreparedStatement ps = getCon().prepareStatement(sql);
+            Connection con = getCon();
+            PreparedStatement ps = con.prepareStatement(sql);
             ResultSet rs       = ps.executeQuery()
         ) {
             if (rs.next()) {
@@ -224,7 +319,7 @@ public class DataBaseQuery extends MySQLConnection {
             "WHERE subscriber_id = ? " +
             "AND active = FALSE " ;
 
-        try (PreparedStatement ps = getCon().prepareStatement(sql)) {
+        try (Connection con = getCon(); PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setInt(1, subscriber_id);
 
             try (ResultSet rs = ps.executeQuery()) 
@@ -255,37 +350,8 @@ public class DataBaseQuery extends MySQLConnection {
      * @return percentage of free spots (0.0–100.0), or 0.0 if there are none or on error
      */
     public double getPrecentageAvailableSpaceFromDatabase() {
-        int freeCnt = 0;
-        int cntAll  = 0;
-
-        // Correct SQL with proper spacing and aliases
-        String sqlAll  = "SELECT COUNT(*) AS cntAll  FROM parking_spots";
-        String sqlFree = "SELECT COUNT(*) AS freeCnt FROM parking_spots WHERE status = 'FREE'";
-
-        // Use try-with-resources to clean up both statements and result sets
-        try (
-            PreparedStatement psAll  = getCon().prepareStatement(sqlAll);
-            ResultSet         rsAll  = psAll.executeQuery();
-            PreparedStatement psFree = getCon().prepareStatement(sqlFree);
-            ResultSet         rsFree = psFree.executeQuery()
-        ) {
-            if (rsAll.next()) {
-                cntAll = rsAll.getInt("cntAll");
-            }
-            if (rsFree.next()) {
-                freeCnt = rsFree.getInt("freeCnt");
-            }
-        }
-        catch (SQLException e) {
-            e.printStackTrace();
-        }
-
-        // Avoid division by zero and compute percentage
-        if (cntAll > 0) {
-            return ((double) freeCnt / cntAll) * 100.0;
-        } else {
-            return 0.0;
-        }
+        // Read from the live counters instead of counting the parking_spots table
+        return occupancyCounters.snapshot().getFreePercentage();
     }
     
     /**
@@ -304,7 +370,7 @@ public class DataBaseQuery extends MySQLConnection {
             "WHERE code = ? " +
             "  AND name = ?";
 
-        try (PreparedStatement ps = getCon().prepareStatement(sql)) {
+        try (Connection con = getCon(); PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setInt(1, code);
             ps.setString(2, name);
 
@@ -347,7 +413,7 @@ public class DataBaseQuery extends MySQLConnection {
             "FROM subscribers " +                      //   from the subscribers table :contentReference[oaicite:0]{index=0}
             "WHERE tag = ? ";
 
-        try (PreparedStatement ps = getCon().prepareStatement(sql)) {
+        try (Connection con = getCon(); PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setString(1, tag);
 
             try (ResultSet rs = ps.executeQuery()) {
@@ -391,7 +457,7 @@ public class DataBaseQuery extends MySQLConnection {
             "    active        = ? " +
             "WHERE session_id   = ?";
 
-        try (PreparedStatement ps = getCon().prepareStatement(sql)) {
+        try (Connection con = getCon(); PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setInt(1, session.getSubscriberId());
             ps.setInt(2, session.getSpotId());
             ps.setInt(3, session.getParkingCode());
@@ -410,7 +476,8 @@ public class DataBaseQuery extends MySQLConnection {
    
             ps.setInt(9, session.getSessionId());
 
-            ps.executeUpdate();
+            if (ps.executeUpdate() > 0)
+                recordChange(ChangeType.UPDATE, session);
          }
         catch (SQLException e) {
             e.printStackTrace();
@@ -436,7 +503,7 @@ public class DataBaseQuery extends MySQLConnection {
             "WHERE subscriber_id = ?";
 
         // 2) Use try-with-resources to ensure the PreparedStatement is closed
-        try (PreparedStatement ps = getCon().prepareStatement(sql)) {
+        try (Connection con = getCon(); PreparedStatement ps = con.prepareStatement(sql)) {
             // 3) Bind each field from the subscriber object in the same order
             ps.setString(1, user.getName());
             ps.setString(2, user.getPhone());
@@ -448,9 +515,9 @@ public class DataBaseQuery extends MySQLConnection {
             ps.setBoolean(7, user.getLoggedIn());
             ps.setInt   (8, user.getId());
 
-            // 5) Execute the update
-            ps.executeUpdate();
-            // (Optional) you can log or check rowsAffected to ensure one row was updated
+            // 5) Execute the update and publish the change if a row was updated
+            if (ps.executeUpdate() > 0)
+                recordChange(ChangeType.UPDATE, user);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -468,10 +535,11 @@ public class DataBaseQuery extends MySQLConnection {
             "SET status = ? " +
             "WHERE spot_id = ?";
 
-        try (PreparedStatement ps = getCon().prepareStatement(sql)) {
+        try (Connection con = getCon(); PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setString(1, spot.getStatus().name());
             ps.setInt   (2, spot.getSpotId());
-            ps.executeUpdate();
+            if (ps.executeUpdate() > 0)
+                recordChange(ChangeType.UPDATE, spot);
         }
         catch (SQLException e) {
             e.printStackTrace();
@@ -494,7 +562,7 @@ public class DataBaseQuery extends MySQLConnection {
             "    start_time = ? " +
             "WHERE reservation_id = ? ";
 
-        try (PreparedStatement ps = getCon().prepareStatement(sql)) {
+        try (Connection con = getCon(); PreparedStatement ps = con.prepareStatement(sql)) {
             // 1) Bind the fields we're updating
             ps.setInt(1, reservation.getSpot());
             ps.setDate(2, java.sql.Date.valueOf(reservation.getDate()));
@@ -530,7 +598,8 @@ public class DataBaseQuery extends MySQLConnection {
                 }
             }
             // 3) Execute
-            ps.executeUpdate();
+            if (ps.executeUpdate() > 0)
+                recordChange(ChangeType.UPDATE, reservation);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -549,7 +618,7 @@ public class DataBaseQuery extends MySQLConnection {
             "VALUES (?, ?, ?, ?, ?, ?, ?)";
 
         // 2) Use RETURN_GENERATED_KEYS so we can retrieve the new subscriber_id
-        try (PreparedStatement ps = getCon().prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (Connection con = getCon(); PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             // 3) Bind each field from the subscriber object
             ps.setString(1, user.getName());
             ps.setString(2, user.getPhone());
@@ -568,6 +637,7 @@ public class DataBaseQuery extends MySQLConnection {
                         user.setId(keys.getInt(1));
                     }
                 }
+                recordChange(ChangeType.INSERT, user);
             }
         }
         catch (SQLException e) {
@@ -588,7 +658,7 @@ public class DataBaseQuery extends MySQLConnection {
             "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
 
         // 2) Tell JDBC to return the generated keys so we can grab the new session_id
-        try (PreparedStatement ps = getCon().prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (Connection con = getCon(); PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             // 3) Bind each field from the Parkingsession object
             ps.setInt(1, session.getSubscriberId());
             ps.setInt(2, session.getSpotId());
@@ -618,6 +688,7 @@ public class DataBaseQuery extends MySQLConnection {
                         session.setSessionId(keys.getInt(1));
                     }
                 }
+                recordChange(ChangeType.INSERT, session);
             }
         }
         catch (SQLException e) {
@@ -639,41 +710,9 @@ public class DataBaseQuery extends MySQLConnection {
             String startTime,
             String endTime
     ) {
-        List<ParkingSpot> availableSpots = new ArrayList<>();
-
-        String sql =
-            "SELECT ps.spot_id, ps.status " +
-            "FROM parking_spots ps " +
-            "WHERE ps.status IN ('FREE','RESERVED') " +
-            "  AND NOT EXISTS ( " +
-            "    SELECT 1 FROM reservations r " +
-            "    WHERE r.spot_id    = ps.spot_id " +
-            "      AND r.date       = ? " +
-            "      AND r.start_time <= ? " +  // reservation starts before your desired end
-            "      AND r.end_time   >= ? " +  // reservation ends after your desired start
-            "  ) " +
-            "ORDER BY ps.spot_id ASC";
-
-        try (PreparedStatement ps = getCon().prepareStatement(sql)) {
-            // 1) bind the date
-            ps.setDate(1, java.sql.Date.valueOf(date));
-            // 2) bind the desired end-time for the overlap check
-            ps.setTime(2, java.sql.Time.valueOf(endTime + ":00"));
-            // 3) bind the desired start-time for the overlap check
-            ps.setTime(3, java.sql.Time.valueOf(startTime + ":00"));
-
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    int spotId    = rs.getInt("spot_id");
-                    SpotStatus st = SpotStatus.valueOf(rs.getString("status"));
-                    availableSpots.add(new ParkingSpot(spotId, st));
-                }
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-
-        return availableSpots;
+        // Answered by the in-memory index, it is kept in sync by every write of this class
+        return availabilityIndex.freeSpots(date, AvailabilityIndex.parseTime(startTime),
+                AvailabilityIndex.parseTime(endTime));
     }
 
     /**
@@ -689,7 +728,7 @@ public class DataBaseQuery extends MySQLConnection {
             "VALUES (?, ?, ?, ?, ?, ?)";
 
         int generatedId = -1;
-        try (PreparedStatement ps = getCon().prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (Connection con = getCon(); PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setInt(1, reservation.getSubscriberId());
             ps.setInt(2, reservation.getSpot());
             ps.setDate(3, java.sql.Date.valueOf(reservation.getDate()));
@@ -704,6 +743,7 @@ public class DataBaseQuery extends MySQLConnection {
                         reservation.setId(generatedId);
                     }
                 }
+                recordChange(ChangeType.INSERT, reservation);
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -711,6 +751,204 @@ public class DataBaseQuery extends MySQLConnection {
 
         return generatedId;
     }
+    /**
+     * Books a reservation in one transaction: checks that enough spots are free, finds a spot
+     * that has no overlapping reservation, marks it RESERVED and inserts the reservation.
+     *
+     * All the spot rows are locked with SELECT ... FOR UPDATE, in spot_id order, before the free
+     * spots are counted, so two bookings can't both pass the free space check on the same count
+     * or claim the same spot. After the lock is taken the overlap is checked again, because a
+     * booking that held the lock before may have just inserted a reservation for that spot.
+     *
+     * @param reservation       the requested reservation (subscriber, date, times and code), its spot is ignored
+     * @param minFreePercentage the booking is rejected if fewer spots than this are FREE (0.0–100.0)
+     * @return the booked reservation with its id and spot, or why it was not booked
+     */
+    public BookingResult bookReservation(Reservation reservation, double minFreePercentage) {
+        String sqlLockSpots =
+            "SELECT spot_id, status FROM parking_spots ORDER BY spot_id FOR UPDATE";
+        String sqlOverlap =
+            "SELECT 1 FROM reservations " +
+            "WHERE spot_id = ? AND date = ? AND start_time <= ? AND end_time >= ? " +
+            "LIMIT 1";
+        String sqlReserveSpot =
+            "UPDATE parking_spots SET status = 'RESERVED' WHERE spot_id = ?";
+        String sqlInsert =
+            "INSERT INTO reservations " +
+            "  (subscriber_id, spot_id, date, start_time, end_time, reservation_code) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+        java.sql.Date date = java.sql.Date.valueOf(reservation.getDate());
+        java.sql.Time start = java.sql.Time.valueOf(reservation.getStartTime() + ":00");
+        java.sql.Time end = java.sql.Time.valueOf(reservation.getEndTime() + ":00");
+
+        try (Connection con = getCon()) {
+            int isolation = con.getTransactionIsolation();
+            con.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED); // Each check sees the last commits
+            con.setAutoCommit(false);
+            try {
+                // Lock the spots, other bookings wait here until this one is committed
+                Map<Integer, String> statuses = new HashMap<>();
+                int free = 0;
+                try (PreparedStatement ps = con.prepareStatement(sqlLockSpots);
+                     ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String status = rs.getString("status");
+                        statuses.put(rs.getInt("spot_id"), status);
+                        if (status.equals(SpotStatus.FREE.name()))
+                            free++;
+                    }
+                }
+                double freePercentage = statuses.isEmpty() ? 0.0 : ((double) free / statuses.size()) * 100.0;
+                if (freePercentage < minFreePercentage) {
+                    con.commit();
+                    return BookingResult.rejected(BookingResult.Status.NOT_ENOUGH_SPACE);
+                }
+                Reservation booked = null;
+                for (ParkingSpot candidate : getFreeParkingSpotFromDatabase(reservation.getDate(),
+                        reservation.getStartTime(), reservation.getEndTime())) {
+                    int spotId = candidate.getSpotId();
+                    String status = statuses.get(spotId);
+                    if (status == null || status.equals(SpotStatus.OCCUPIED.name()))
+                        continue;
+                    // Check again, now that no other booking can claim the spot
+                    try (PreparedStatement ps = con.prepareStatement(sqlOverlap)) {
+                        ps.setInt(1, spotId);
+                        ps.setDate(2, date);
+                        ps.setTime(3, end);
+                        ps.setTime(4, start);
+                        try (ResultSet rs = ps.executeQuery()) {
+                            if (rs.next())
+                                continue;
+                        }
+                    }
+                    try (PreparedStatement ps = con.prepareStatement(sqlReserveSpot)) {
+                        ps.setInt(1, spotId);
+                        ps.executeUpdate();
+                    }
+                    booked = new Reservation(reservation.getSubscriberId(), spotId, reservation.getDate(),
+                            reservation.getStartTime(), reservation.getEndTime(), reservation.getCode());
+                    try (PreparedStatement ps = con.prepareStatement(sqlInsert, Statement.RETURN_GENERATED_KEYS)) {
+                        ps.setInt(1, booked.getSubscriberId());
+                        ps.setInt(2, spotId);
+                        ps.setDate(3, date);
+                        ps.setTime(4, start);
+                        ps.setTime(5, end);
+                        ps.setInt(6, booked.getCode());
+                        ps.executeUpdate();
+                        try (ResultSet keys = ps.getGeneratedKeys()) {
+                            if (keys.next())
+                                booked.setId(keys.getInt(1));
+                        }
+                    }
+                    break;
+                }
+                con.commit();
+                if (booked == null)
+                    return BookingResult.rejected(BookingResult.Status.NO_FREE_SPOT);
+                // Publish the changes only after they were committed
+                recordChange(ChangeType.UPDATE, new ParkingSpot(booked.getSpot(), SpotStatus.RESERVED));
+                recordChange(ChangeType.INSERT, booked);
+                return BookingResult.booked(booked);
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+                con.setTransactionIsolation(isolation);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return BookingResult.rejected(BookingResult.Status.FAILED);
+    }
+
+
+    /**
+     * Cancels all the reservations of the days before the given date that were not used, and frees
+     * their spots, in one transaction.
+     *
+     * A cancelled reservation keeps its row with start_time NULL. A RESERVED spot is freed if one
+     * of its reservations was cancelled and it has no reservation left on that date or after it.
+     * The spots are locked first, in the same order as {@link #bookReservation}, so a booking of
+     * one of them waits until the expiry is committed.
+     *
+     * @param today the reservations with a date before this day are cancelled
+     * @return the number of cancelled reservations, or -1 on error
+     */
+    public int expireReservations(LocalDate today) {
+        String sqlLockSpots =
+            "SELECT spot_id FROM parking_spots s " +
+            "WHERE status = 'RESERVED' " +
+            "AND EXISTS (SELECT 1 FROM reservations r " +
+            "            WHERE r.spot_id = s.spot_id AND r.date < ? AND r.start_time IS NOT NULL) " +
+            "AND NOT EXISTS (SELECT 1 FROM reservations r " +
+            "                WHERE r.spot_id = s.spot_id AND r.date >= ? AND r.start_time IS NOT NULL) " +
+            "ORDER BY spot_id FOR UPDATE";
+        String sqlExpired =
+            "SELECT * FROM reservations WHERE date < ? AND start_time IS NOT NULL FOR UPDATE";
+        String sqlExpire =
+            "UPDATE reservations SET start_time = NULL WHERE date < ? AND start_time IS NOT NULL";
+        String sqlFreeSpot =
+            "UPDATE parking_spots SET status = 'FREE' WHERE spot_id = ? AND status = 'RESERVED'";
+
+        java.sql.Date date = java.sql.Date.valueOf(today);
+        try (Connection con = getCon()) {
+            int isolation = con.getTransactionIsolation();
+            con.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            con.setAutoCommit(false);
+            try {
+                List<ParkingSpot> freed = new ArrayList<>();
+                try (PreparedStatement ps = con.prepareStatement(sqlLockSpots)) {
+                    ps.setDate(1, date);
+                    ps.setDate(2, date);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next())
+                            freed.add(new ParkingSpot(rs.getInt("spot_id"), SpotStatus.FREE));
+                    }
+                }
+                List<Reservation> expired = new ArrayList<>();
+                try (PreparedStatement ps = con.prepareStatement(sqlExpired)) {
+                    ps.setDate(1, date);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            Reservation reservation = readReservation(rs);
+                            reservation.setStartTime(null);
+                            expired.add(reservation);
+                        }
+                    }
+                }
+                try (PreparedStatement ps = con.prepareStatement(sqlExpire)) {
+                    ps.setDate(1, date);
+                    ps.executeUpdate();
+                }
+                if (!freed.isEmpty()) {
+                    try (PreparedStatement ps = con.prepareStatement(sqlFreeSpot)) {
+                        for (ParkingSpot spot : freed) {
+                            ps.setInt(1, spot.getSpotId());
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                }
+                con.commit();
+                // Publish the changes only after they were committed, all in one message
+                List<Serializable> changed = new ArrayList<>(expired);
+                changed.addAll(freed);
+                recordChanges(ChangeType.UPDATE, changed);
+                return expired.size();
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+                con.setTransactionIsolation(isolation);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return -1;
+    }
 
     /**
      * Retrieves a reservation by its reservation_id.
@@ -725,7 +963,7 @@ public class DataBaseQuery extends MySQLConnection {
             "FROM reservations " +
             "WHERE reservation_id = ?";
 
-        try (PreparedStatement ps = getCon().prepareStatement(sql)) {
+        try (Connection con = getCon(); PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setInt(1, reservationId);
 
             try (ResultSet rs = ps.executeQuery()) {
@@ -769,7 +1007,7 @@ public class DataBaseQuery extends MySQLConnection {
             "FROM reservations " +
             "WHERE reservation_code = ? AND start_time IS NOT NULL";
 
-        try (PreparedStatement ps = getCon().prepareStatement(sql)) {
+        try (Connection con = getCon(); PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setInt(1, reservationId);
 
             try (ResultSet rs = ps.executeQuery()) {
@@ -813,7 +1051,7 @@ public class DataBaseQuery extends MySQLConnection {
             "FROM parking_sessions " +
             "WHERE session_id = ?";
 
-        try (PreparedStatement ps = getCon().prepareStatement(sql)) {
+        try (Connection con = getCon(); PreparedStatement ps = con.prepareStatement(sql)) {
             // Bind the sessionId parameter
             ps.setInt(1, sessionId);
 
@@ -857,7 +1095,7 @@ public class DataBaseQuery extends MySQLConnection {
             "WHERE subscriber_id = ? " +
             "  AND active = TRUE";
 
-        try (PreparedStatement ps = getCon().prepareStatement(sql)) {
+        try (Connection con = getCon(); PreparedStatement ps = con.prepareStatement(sql)) {
             // Bind the subscriberId
             ps.setInt(1, subscriberId);
 
@@ -892,39 +1130,11 @@ public class DataBaseQuery extends MySQLConnection {
      *         false if at least one reservation would overlap the extension
      */
     public boolean checkExtendTimeParkingsessionWithAllReservations(Parkingsession session) {
-        boolean availableOfTimeExtension = true;
-
         // We look for any reservation on the same spot & date that starts before our new outTime.
-        // If one exists, the extension conflicts.
-        String sql =
-            "SELECT 1 " +
-            "FROM reservations " +
-            "WHERE spot_id    = ? " +
-            "  AND date       = ? " +
-            "  AND start_time < ? " +
-            "LIMIT 1";
-
-        try (PreparedStatement ps = getCon().prepareStatement(sql)) {
-            // 1) Bind spot_id
-            ps.setInt(1, session.getSpotId());
-
-            // 2) Bind the DATE of the session’s inTime (i.e. which day we’re checking)
-            ps.setDate(2, new java.sql.Date(session.getInTime().getTime()));
-
-            // 3) Bind the new outTime’s TIME value
-            ps.setTime(3, new java.sql.Time(session.getOutTime().getTime()));
-
-            // 4) If the query returns any row, there is a conflict
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    availableOfTimeExtension = false;
-                }
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-
-        return availableOfTimeExtension;
+        // If one exists, the extension conflicts (answered by the in-memory index).
+        LocalDate date = new java.sql.Date(session.getInTime().getTime()).toLocalDate();
+        java.time.LocalTime newOutTime = new java.sql.Time(session.getOutTime().getTime()).toLocalTime();
+        return availabilityIndex.canExtend(session.getSpotId(), date, newOutTime);
     }
     
     /**
@@ -944,7 +1154,7 @@ public class DataBaseQuery extends MySQLConnection {
             "  AND subscriber_id <> ? " +
             "LIMIT 1";
 
-        try (PreparedStatement ps = getCon().prepareStatement(sql)) {
+        try (Connection con = getCon(); PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setString(1, user.getEmail());
             ps.setInt   (2, user.getId());
 
@@ -976,7 +1186,7 @@ public class DataBaseQuery extends MySQLConnection {
             "WHERE tag = ? " +
             "LIMIT 1";
 
-        try (PreparedStatement ps = getCon().prepareStatement(sql)) {
+        try (Connection con = getCon(); PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setString(1, tag);
 
             try (ResultSet rs = ps.executeQuery()) {
@@ -1006,7 +1216,7 @@ public class DataBaseQuery extends MySQLConnection {
             "WHERE code = ? " +
             "LIMIT 1";
 
-        try (PreparedStatement ps = getCon().prepareStatement(sql)) {
+        try (Connection con = getCon(); PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setInt(1, code);
 
             try (ResultSet rs = ps.executeQuery()) {
@@ -1037,7 +1247,7 @@ public class DataBaseQuery extends MySQLConnection {
             "WHERE reservation_code = ? AND start_time IS NOT NULL " +
             "LIMIT 1";
 
-        try (PreparedStatement ps = getCon().prepareStatement(sql)) {
+        try (Connection con = getCon(); PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setInt(1, code);
 
             try (ResultSet rs = ps.executeQuery()) {
@@ -1052,35 +1262,72 @@ public class DataBaseQuery extends MySQLConnection {
         return unique;
 	}
 
+    /**
+     * Returns a new subscriber code, different from the codes of all the subscribers.
+     *
+     * @return a six digit code
+     * @throws SQLException if a new block of codes can't be reserved
+     */
+    public int allocateSubscriberCode() throws SQLException {
+        return (int) subscriberCodes.next();
+    }
+
+    /**
+     * Returns a new reservation code, different from the codes of all the active reservations.
+     *
+     * @return a six digit code
+     * @throws SQLException if a new block of codes can't be reserved
+     */
+    public int allocateReservationCode() throws SQLException {
+        return (int) reservationCodes.next();
+    }
+
+    /**
+     * Returns a new RFID tag of 24 hex digits, different from the tags of all the subscribers.
+     *
+     * @return the tag
+     * @throws SQLException if a new block of tags can't be reserved
+     */
+    public String allocateRFIDTag() throws SQLException {
+        return String.format("%016X%08X", tagRandom.nextLong(), tagNumbers.next());
+    }
+
+    /**
+     * Finds which codes of a block are used, with one query
+     *
+     * @param con    a connection to the bpark database
+     * @param select the query up to the IN list, its only column is the code
+     * @param codes  the codes of the block
+     * @return the codes that are used
+     */
+    private static Set<Long> findUsedCodes(Connection con, String select, List<Long> codes) throws SQLException {
+        StringBuilder sql = new StringBuilder(select).append('(');
+        for (int i = 0; i < codes.size(); i++)
+            sql.append(i == 0 ? "?" : ", ?");
+        sql.append(')');
+        Set<Long> used = new HashSet<>();
+        try (PreparedStatement ps = con.prepareStatement(sql.toString())) {
+            for (int i = 0; i < codes.size(); i++)
+                ps.setLong(i + 1, codes.get(i));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    used.add(rs.getLong(1));
+            }
+        }
+        return used;
+    }
+
     /**
      * Retrieves a list of all reservations stored in the system.
      * 
      * Executes a SQL SELECT query to fetch all records from the reservations table.
+     * Large tables should be read with {@link #getPage} or {@link #streamReservations}.
      *
      * @return A list of Reservation objects representing all reservations.
      */
     public List<Reservation> getAllReservationList() {
         List<Reservation> list = new ArrayList<>();
-        String sql = "SELECT * FROM reservations";
-
-        try (PreparedStatement ps = getCon().prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                int        reservationId = rs.getInt("reservation_id");
-            	int        subscriberId = rs.getInt("subscriber_id");
-                int        spotId       = rs.getInt("spot_id");
-                LocalDate  date         = rs.getDate("date").toLocalDate();
-                String  startTime    = rs.getString("start_time");
-                String  endTime      = rs.getString("end_time");
-                int        code      = rs.getInt("reservation_code");
-                Reservation r = new Reservation(subscriberId, spotId, date, startTime, endTime, code);
-                r.setId(reservationId);
-                list.add(r);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-
+        streamReservations(list::add);
         return list;
     }
 
@@ -1088,91 +1335,284 @@ public class DataBaseQuery extends MySQLConnection {
      * Retrieves a list of all subscribers stored in the system.
      * 
      * Executes a SQL SELECT query to fetch all records from the subscribers table.
+     * Large tables should be read with {@link #getPage} or {@link #streamSubscribers}.
      *
      * @return A list of subscriber objects representing all subscribers.
      */
     public List<subscriber> getAllSubscribersList() {
         List<subscriber> list = new ArrayList<>();
-        String sql = "SELECT * FROM subscribers";
-
-        try (PreparedStatement ps = getCon().prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                int    id    = rs.getInt("subscriber_id");
-                String name  = rs.getString("name");
-                String phone = rs.getString("phone");
-                String email = rs.getString("email");
-                Role   role  = Role.valueOf(rs.getString("role"));
-                String tag   = rs.getString("tag");
-                int    code  = rs.getInt("code");
-                boolean isLoggedIn = rs.getBoolean("logged_in");
-                // empty history list for now
-                List<Parkingsession> history = new ArrayList<>();
-                subscriber s = new subscriber(id, name, phone, email, role,isLoggedIn, history, tag, code);
-                list.add(s);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-
+        streamSubscribers(list::add);
         return list;
     }
 
     /**
-     * Retrieves a list of all active parking sessions currently in the system.
+     * Retrieves a list of all parking sessions in the system.
      * 
-     * Executes a SQL SELECT query to fetch all records from the parking_sessions table
-     * where active = TRUE.
+     * Executes a SQL SELECT query to fetch all records from the parking_sessions table.
+     * Large tables should be read with {@link #getPage} or {@link #streamParkingsessions}.
      *
-     * @return A list of Parkingsession objects representing active sessions.
+     * @return A list of Parkingsession objects representing all sessions.
      */
     public List<Parkingsession> getAllParkingsession() {
         List<Parkingsession> list = new ArrayList<>();
-        String sql =
-            "SELECT * " +
-            "FROM parking_sessions ";
-
-        try (PreparedStatement ps = getCon().prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                int    sessionId    = rs.getInt("session_id");
-                int    subscriberId = rs.getInt("subscriber_id");
-                int    spotId       = rs.getInt("spot_id");
-                int    code         = rs.getInt("parking_code");
-                Date   inTs         = rs.getTimestamp("in_time");
-                Date   outTs        = rs.getTimestamp("out_time"); // may be null
-                boolean extended    = rs.getBoolean("extended");
-                boolean late        = rs.getBoolean("late");
-                boolean active      = rs.getBoolean("active");
-
-                list.add(new Parkingsession(sessionId,subscriberId,spotId,code,inTs,outTs,extended,late,active));
+        streamParkingsessions(list::add);
+        return list;
+    }
+
+    /**
+     * Retrieves a list of all parking spots in the system.
+     *
+     * @return A list of ParkingSpot objects representing all spots.
+     */
+	public List<ParkingSpot> getAllParkingSpots() {
+		List<ParkingSpot> list = new ArrayList<>();
+        streamParkingSpots(list::add);
+        return list;
+	}
+
+    /**
+     * Feeds every reservation to a consumer, ordered by reservation id, without keeping
+     * the whole table in memory.
+     *
+     * @param consumer receives the reservations one by one
+     * @return the number of reservations read, or -1 if the query failed
+     */
+    public int streamReservations(Consumer<? super Reservation> consumer) {
+        return stream(EntityType.RESERVATION, consumer);
+    }
+
+    /**
+     * Feeds every subscriber to a consumer, ordered by subscriber id.
+     *
+     * @param consumer receives the subscribers one by one
+     * @return the number of subscribers read, or -1 if the query failed
+     */
+    public int streamSubscribers(Consumer<? super subscriber> consumer) {
+        return stream(EntityType.SUBSCRIBER, consumer);
+    }
+
+    /**
+     * Feeds every parking session to a consumer, ordered by session id.
+     *
+     * @param consumer receives the sessions one by one
+     * @return the number of sessions read, or -1 if the query failed
+     */
+    public int streamParkingsessions(Consumer<? super Parkingsession> consumer) {
+        return stream(EntityType.PARKING_SESSION, consumer);
+    }
+
+    /**
+     * Feeds every parking spot to a consumer, ordered by spot id.
+     *
+     * @param consumer receives the spots one by one
+     * @return the number of spots read, or -1 if the query failed
+     */
+    public int streamParkingSpots(Consumer<? super ParkingSpot> consumer) {
+        return stream(EntityType.PARKING_SPOT, consumer);
+    }
+
+    /**
+     * Retrieves the parking sessions that started in a range of days, for the monthly report.
+     * Only the sessions of the range are read (index on in_time), not the whole history.
+     *
+     * @param from the first day
+     * @param to   the day after the last day
+     * @return the sessions with from &lt;= in_time &lt; to, ordered by session id, or null on error
+     */
+    public List<Parkingsession> getParkingsessionsBetween(LocalDate from, LocalDate to) {
+        List<Parkingsession> list = new ArrayList<>();
+        int count = stream(Table.PARKING_SESSIONS, "in_time >= ? AND in_time < ?", list::add,
+                Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.atStartOfDay()));
+        return count < 0 ? null : list;
+    }
+
+    /**
+     * Retrieves the reservations of a range of days, used and cancelled, for the monthly report.
+     *
+     * @param from the first day
+     * @param to   the day after the last day
+     * @return the reservations with from &lt;= date &lt; to, ordered by reservation id, or null on error
+     */
+    public List<Reservation> getReservationsBetween(LocalDate from, LocalDate to) {
+        List<Reservation> list = new ArrayList<>();
+        int count = stream(Table.RESERVATIONS, "date >= ? AND date < ?", list::add,
+                java.sql.Date.valueOf(from), java.sql.Date.valueOf(to));
+        return count < 0 ? null : list;
+    }
+
+    /**
+     * Reads one keyset page of a table: the rows whose id is greater than the
+     * afterId of the request, ordered by id.
+     *
+     * @param request the table, the id the page starts after and the size of the page
+     * @return the page, or null if the query failed
+     */
+    public Page<?> getPage(PageRequest request) {
+        Table<?> table = Table.of(request.getEntityType());
+        return table == null ? null : getPage(table, request);
+    }
+
+    /**
+     * Reads one keyset page of a table, one row more than the limit is asked to know if
+     * there is a next page
+     */
+    private <T extends Serializable> Page<T> getPage(Table<T> table, PageRequest request) {
+        int limit = Math.max(1, Math.min(request.getLimit(), PageRequest.MAX_LIMIT));
+        String sql = "SELECT * FROM " + table.name + " WHERE " + table.idColumn + " > ? ORDER BY "
+                + table.idColumn + " LIMIT ?";
+        List<T> items = new ArrayList<>(limit);
+        boolean hasMore = false;
+        int lastId = request.getAfterId();
+        try (Connection con = getCon(); PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, request.getAfterId());
+            ps.setInt(2, limit + 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (items.size() == limit) {
+                        hasMore = true;
+                        break;
+                    }
+                    lastId = rs.getInt(table.idColumn);
+                    items.add(table.reader.read(rs));
+                }
             }
         } catch (SQLException e) {
             e.printStackTrace();
+            return null;
         }
+        return new Page<>(request.getEntityType(), items, lastId, hasMore);
+    }
 
-        return list;
+    /**
+     * Reads a whole table through a server side cursor, STREAM_FETCH_SIZE rows at a time,
+     * so only one batch of rows is held in memory
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends Serializable> int stream(EntityType entityType, Consumer<? super T> consumer) {
+        return stream((Table<T>) Table.of(entityType), null, consumer);
     }
 
-	public List<ParkingSpot> getAllParkingSpots() {
-		List<ParkingSpot> list = new ArrayList<>();
-        String sql =
-            "SELECT * " +
-            "FROM parking_spots ";
-        try (PreparedStatement ps = getCon().prepareStatement(sql);
-                ResultSet rs = ps.executeQuery()) {
-               while (rs.next()) {
-                   int    spotId       = rs.getInt("spot_id");
-                   String    status    = rs.getString("status");
-                   list.add(new ParkingSpot(spotId,SpotStatus.valueOf(status)));
-               }
+    /**
+     * Reads the rows of a table that match a condition through a server side cursor, ordered by id
+     *
+     * @param where      the condition, null for the whole table
+     * @param parameters the values of the ? of the condition
+     */
+    private <T extends Serializable> int stream(Table<T> table, String where, Consumer<? super T> consumer,
+            Object... parameters) {
+        String sql = "SELECT * FROM " + table.name + (where == null ? "" : " WHERE " + where) + " ORDER BY "
+                + table.idColumn;
+        int count = 0;
+        try (Connection con = getCon(); PreparedStatement ps = con.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++)
+                ps.setObject(i + 1, parameters[i]);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(table.reader.read(rs));
+                    count++;
+                }
+            }
         } catch (SQLException e) {
             e.printStackTrace();
+            return -1;
         }
+        return count;
+    }
 
-        return list;
-	}
+    /**
+     * Builds an entity from the current row of a result set
+     */
+    @FunctionalInterface
+    private interface RowReader<T> {
+        T read(ResultSet rs) throws SQLException;
+    }
 
-	
+    /**
+     * The tables that can be paged and streamed, with their id column and row reader
+     */
+    private static final class Table<T extends Serializable> {
+        static final Table<Reservation> RESERVATIONS = new Table<>("reservations", "reservation_id",
+                DataBaseQuery::readReservation);
+        static final Table<subscriber> SUBSCRIBERS = new Table<>("subscribers", "subscriber_id",
+                DataBaseQuery::readSubscriber);
+        static final Table<Parkingsession> PARKING_SESSIONS = new Table<>("parking_sessions", "session_id",
+                DataBaseQuery::readParkingsession);
+        static final Table<ParkingSpot> PARKING_SPOTS = new Table<>("parking_spots", "spot_id",
+                DataBaseQuery::readParkingSpot);
+
+        final String name;
+        final String idColumn;
+        final RowReader<T> reader;
+
+        private Table(String name, String idColumn, RowReader<T> reader) {
+            this.name = name;
+            this.idColumn = idColumn;
+            this.reader = reader;
+        }
+
+        static Table<? extends Serializable> of(EntityType entityType) {
+            if (entityType == null)
+                return null;
+            switch (entityType) {
+            case RESERVATION:
+                return RESERVATIONS;
+            case SUBSCRIBER:
+                return SUBSCRIBERS;
+            case PARKING_SESSION:
+                return PARKING_SESSIONS;
+            case PARKING_SPOT:
+                return PARKING_SPOTS;
+            default:
+                return null;
+            }
+        }
+    }
+
+    private static Reservation readReservation(ResultSet rs) throws SQLException {
+        int        reservationId = rs.getInt("reservation_id");
+        int        subscriberId = rs.getInt("subscriber_id");
+        int        spotId       = rs.getInt("spot_id");
+        LocalDate  date         = rs.getDate("date").toLocalDate();
+        String  startTime    = rs.getString("start_time");
+        String  endTime      = rs.getString("end_time");
+        int        code      = rs.getInt("reservation_code");
+        Reservation r = new Reservation(subscriberId, spotId, date, startTime, endTime, code);
+        r.setId(reservationId);
+        return r;
+    }
+
+    private static subscriber readSubscriber(ResultSet rs) throws SQLException {
+        int    id    = rs.getInt("subscriber_id");
+        String name  = rs.getString("name");
+        String phone = rs.getString("phone");
+        String email = rs.getString("email");
+        Role   role  = Role.valueOf(rs.getString("role"));
+        String tag   = rs.getString("tag");
+        int    code  = rs.getInt("code");
+        boolean isLoggedIn = rs.getBoolean("logged_in");
+        // empty history list for now
+        List<Parkingsession> history = new ArrayList<>();
+        return new subscriber(id, name, phone, email, role,isLoggedIn, history, tag, code);
+    }
+
+    private static Parkingsession readParkingsession(ResultSet rs) throws SQLException {
+        int    sessionId    = rs.getInt("session_id");
+        int    subscriberId = rs.getInt("subscriber_id");
+        int    spotId       = rs.getInt("spot_id");
+        int    code         = rs.getInt("parking_code");
+        Date   inTs         = rs.getTimestamp("in_time");
+        Date   outTs        = rs.getTimestamp("out_time"); // may be null
+        boolean extended    = rs.getBoolean("extended");
+        boolean late        = rs.getBoolean("late");
+        boolean active      = rs.getBoolean("active");
+        return new Parkingsession(sessionId,subscriberId,spotId,code,inTs,outTs,extended,late,active);
+    }
+
+    private static ParkingSpot readParkingSpot(ResultSet rs) throws SQLException {
+        int    spotId       = rs.getInt("spot_id");
+        String    status    = rs.getString("status");
+        return new ParkingSpot(spotId,SpotStatus.valueOf(status));
+    }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,655 @@
+package jdbc;
+
+import java.io.Serializable;
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+import logic.*;
+
+/**
+ * A {@link ParkingStore} that keeps all the data in the memory of the server
+ * (bpark.storage=memory), for running the server and measuring its throughput without MySQL.
+ *
+ * The tables are concurrent maps ordered by id, with an index for every lookup that
+ * {@link DataBaseQuery} answers with a WHERE clause. Reads take no lock and check the found rows
+ * again, writes are serialized by the lock of the store so the maps and the indexes always
+ * change together. The store starts with the parking spots only, the data is lost when the
+ * server stops.
+ */
+public class InMemoryParkingStore implements ParkingStore {
+	public static final int FIRST_SPOT_ID = 101; // Same numbering as the spots of DB.sql
+
+	/**
+	 * Ids of the rows that have a value, e.g. subscriber code -> subscriber ids
+	 */
+	private static class Index<K> {
+		private final Map<K, Set<Integer>> ids = new ConcurrentHashMap<>();
+
+		void add(K key, int id) {
+			if (key != null)
+				ids.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(id);
+		}
+
+		void remove(K key, int id) {
+			if (key == null)
+				return;
+			ids.computeIfPresent(key, (k, set) -> {
+				set.remove(id);
+				return set.isEmpty() ? null : set;
+			});
+		}
+
+		Set<Integer> get(K key) {
+			Set<Integer> set = key == null ? null : ids.get(key);
+			return set == null ? Collections.emptySet() : set;
+		}
+	}
+
+	/**
+	 * Hands out the codes of a range in a keyed order, same as {@link CodeAllocator}
+	 * without the database
+	 */
+	private static class Codes {
+		private final long first;
+		private final long size;
+		private final SecureRandom random;
+		private CodeAllocator.Permutation permutation;
+		private long next;
+
+		Codes(long first, long size, SecureRandom random) {
+			this.first = first;
+			this.size = size;
+			this.random = random;
+			this.permutation = new CodeAllocator.Permutation(random.nextLong(), size);
+		}
+
+		synchronized long next(LongPredicate used) throws SQLException {
+			for (long tries = 0; tries <= size; tries++) {
+				if (next == size) {
+					permutation = new CodeAllocator.Permutation(random.nextLong(), size);
+					next = 0;
+				}
+				long code = first + permutation.apply(next++);
+				if (!used.test(code))
+					return code;
+			}
+			throw new SQLException("All the codes are in use");
+		}
+	}
+
+	private final ChangeFeed changeFeed = new ChangeFeed();
+	private final AvailabilityIndex availabilityIndex = new AvailabilityIndex();
+	private final OccupancyCounters occupancyCounters = new OccupancyCounters();
+
+	private final ConcurrentSkipListMap<Integer, SpotStatus> spots = new ConcurrentSkipListMap<>();
+	private final ConcurrentSkipListMap<Integer, subscriber> subscribers = new ConcurrentSkipListMap<>();
+	private final ConcurrentSkipListMap<Integer, Parkingsession> sessions = new ConcurrentSkipListMap<>();
+	private final ConcurrentSkipListMap<Integer, Reservation> reservations = new ConcurrentSkipListMap<>();
+
+	private final Index<Integer> subscribersByCode = new Index<>();
+	private final Index<String> subscribersByTag = new Index<>();
+	private final Index<String> subscribersByEmail = new Index<>();
+	private final Index<Integer> sessionsBySubscriber = new Index<>();
+	private final Index<Integer> activeSessionsByCode = new Index<>();
+	private final Index<Integer> reservationsBySubscriber = new Index<>();
+	private final Index<Integer> activeReservationsByCode = new Index<>(); // Not cancelled
+
+	private final AtomicInteger nextSubscriberId = new AtomicInteger(1);
+	private final AtomicInteger nextSessionId = new AtomicInteger(1);
+	private final AtomicInteger nextReservationId = new AtomicInteger(1);
+
+	private final SecureRandom random = new SecureRandom();
+	private final Codes subscriberCodes = new Codes(100000, 900000, random);
+	private final Codes reservationCodes = new Codes(100000, 900000, random);
+	private final Codes tagNumbers = new Codes(0, 1L << 32, random);
+
+	/**
+	 * Constructor of the class
+	 *
+	 * @param spotCount number of parking spots, all FREE, numbered from {@link #FIRST_SPOT_ID}
+	 */
+	public InMemoryParkingStore(int spotCount) {
+		for (int i = 0; i < spotCount; i++)
+			spots.put(FIRST_SPOT_ID + i, SpotStatus.FREE);
+		List<ParkingSpot> allSpots = getAllParkingSpots();
+		availabilityIndex.load(allSpots, new ArrayList<>());
+		occupancyCounters.load(allSpots);
+	}
+
+	@Override
+	public ChangeFeed getChangeFeed() {
+		return changeFeed;
+	}
+
+	@Override
+	public void reconcileOccupancy() {
+		// The spots are only changed through the store, the counters can't drift
+		occupancyCounters.reconcile(getAllParkingSpots(), occupancyCounters.getVersion());
+	}
+
+	/**
+	 * Records a write in the change feed and applies it to the in-memory indexes
+	 */
+	private void recordChange(ChangeType changeType, Serializable entity) {
+		availabilityIndex.apply(changeType, entity);
+		occupancyCounters.apply(changeType, entity);
+		changeFeed.record(changeType, entity);
+	}
+
+	// Parking sessions ---------------------------------------------------------
+
+	@Override
+	public boolean checkParkingCodeInAllActiveSessionsInDatabase(int code) {
+		return getActiveParkingsessionWithThatCodeFromDatabase(code) != null;
+	}
+
+	@Override
+	public Parkingsession getActiveParkingsessionWithThatCodeFromDatabase(int parkingCode) {
+		for (int id : activeSessionsByCode.get(parkingCode)) {
+			Parkingsession session = sessions.get(id);
+			if (session != null && session.getActive() && session.getParkingCode() == parkingCode)
+				return copy(session);
+		}
+		return null;
+	}
+
+	@Override
+	public int getSubscriberLastActiveParkingsessionParkingCode(int subscriber_id) {
+		Parkingsession last = null;
+		for (Parkingsession session : sessionsOf(subscriber_id, s -> true)) {
+			if (last == null || session.getInTime().after(last.getInTime()))
+				last = session;
+		}
+		return last == null ? 0 : last.getParkingCode();
+	}
+
+	@Override
+	public List<Parkingsession> gethistoryParkingsessionsListOfSubscriberbyIdFromDatabase(int subscriber_id) {
+		return sessionsOf(subscriber_id, session -> !session.getActive());
+	}
+
+	@Override
+	public List<Parkingsession> getActiveParkingsessionsListOfSubscriberbyIdFromDatabase(int subscriberId) {
+		return sessionsOf(subscriberId, Parkingsession::getActive);
+	}
+
+	private List<Parkingsession> sessionsOf(int subscriberId, Predicate<Parkingsession> filter) {
+		List<Parkingsession> list = new ArrayList<>();
+		for (int id : sessionsBySubscriber.get(subscriberId)) {
+			Parkingsession session = sessions.get(id);
+			if (session != null && session.getSubscriberId() == subscriberId && filter.test(session))
+				list.add(copy(session));
+		}
+		return list;
+	}
+
+	@Override
+	public Parkingsession getParkingsessionById(int sessionId) {
+		Parkingsession session = sessions.get(sessionId);
+		return session == null ? null : copy(session);
+	}
+
+	@Override
+	public synchronized void updateParkingsessionInDatabase(Parkingsession session) {
+		Parkingsession old = sessions.get(session.getSessionId());
+		if (old == null)
+			return;
+		putSession(old, copy(session));
+		recordChange(ChangeType.UPDATE, session);
+	}
+
+	@Override
+	public synchronized void createParkingsessionInDatabase(Parkingsession session) {
+		session.setSessionId(nextSessionId.getAndIncrement());
+		putSession(null, copy(session));
+		recordChange(ChangeType.INSERT, session);
+	}
+
+	private void putSession(Parkingsession old, Parkingsession session) {
+		if (old != null) {
+			sessionsBySubscriber.remove(old.getSubscriberId(), old.getSessionId());
+			if (old.getActive())
+				activeSessionsByCode.remove(old.getParkingCode(), old.getSessionId());
+		}
+		sessions.put(session.getSessionId(), session);
+		sessionsBySubscriber.add(session.getSubscriberId(), session.getSessionId());
+		if (session.getActive())
+			activeSessionsByCode.add(session.getParkingCode(), session.getSessionId());
+	}
+
+	@Override
+	public boolean checkExtendTimeParkingsessionWithAllReservations(Parkingsession session) {
+		LocalDate date = new java.sql.Date(session.getInTime().getTime()).toLocalDate();
+		LocalTime newOutTime = new java.sql.Time(session.getOutTime().getTime()).toLocalTime();
+		return availabilityIndex.canExtend(session.getSpotId(), date, newOutTime);
+	}
+
+	@Override
+	public List<Parkingsession> getParkingsessionsBetween(LocalDate from, LocalDate to) {
+		long start = Timestamp.valueOf(from.atStartOfDay()).getTime();
+		long end = Timestamp.valueOf(to.atStartOfDay()).getTime();
+		List<Parkingsession> list = new ArrayList<>();
+		for (Parkingsession session : sessions.values()) {
+			long inTime = session.getInTime().getTime();
+			if (inTime >= start && inTime < end)
+				list.add(copy(session));
+		}
+		return list;
+	}
+
+	// Parking spots ------------------------------------------------------------
+
+	@Override
+	public Object getFreeSpotFromDatabase() {
+		for (Map.Entry<Integer, SpotStatus> spot : spots.entrySet()) {
+			if (spot.getValue() == SpotStatus.FREE)
+				return spot.getKey();
+		}
+		return -1;
+	}
+
+	@Override
+	public double getPrecentageAvailableSpaceFromDatabase() {
+		return occupancyCounters.snapshot().getFreePercentage();
+	}
+
+	@Override
+	public synchronized void updateParkingSpotInDatabase(ParkingSpot spot) {
+		if (spots.replace(spot.getSpotId(), spot.getStatus()) != null)
+			recordChange(ChangeType.UPDATE, new ParkingSpot(spot.getSpotId(), spot.getStatus()));
+	}
+
+	@Override
+	public List<ParkingSpot> getFreeParkingSpotFromDatabase(LocalDate date, String startTime, String endTime) {
+		return availabilityIndex.freeSpots(date, AvailabilityIndex.parseTime(startTime),
+				AvailabilityIndex.parseTime(endTime));
+	}
+
+	// Subscribers --------------------------------------------------------------
+
+	@Override
+	public subscriber getUserUsingCodeFromDatabase(int code, String name) {
+		for (int id : subscribersByCode.get(code)) {
+			subscriber user = subscribers.get(id);
+			if (user != null && user.getCode() == code && user.getName().equals(name))
+				return copy(user);
+		}
+		return null;
+	}
+
+	@Override
+	public subscriber getUserUsingTagFromDatabase(String tag) {
+		for (int id : subscribersByTag.get(tag)) {
+			subscriber user = subscribers.get(id);
+			if (user != null && tag.equals(user.getTag()))
+				return copy(user);
+		}
+		return null;
+	}
+
+	@Override
+	public synchronized void updateUserInDatabase(subscriber user) {
+		subscriber old = subscribers.get(user.getId());
+		if (old == null)
+			return;
+		putSubscriber(old, copy(user));
+		recordChange(ChangeType.UPDATE, user);
+	}
+
+	@Override
+	public synchronized void createUserInDatabase(subscriber user) {
+		user.setId(nextSubscriberId.getAndIncrement());
+		putSubscriber(null, copy(user));
+		recordChange(ChangeType.INSERT, user);
+	}
+
+	private void putSubscriber(subscriber old, subscriber user) {
+		if (old != null) {
+			subscribersByCode.remove(old.getCode(), old.getId());
+			subscribersByTag.remove(old.getTag(), old.getId());
+			subscribersByEmail.remove(old.getEmail(), old.getId());
+		}
+		subscribers.put(user.getId(), user);
+		subscribersByCode.add(user.getCode(), user.getId());
+		subscribersByTag.add(user.getTag(), user.getId());
+		subscribersByEmail.add(user.getEmail(), user.getId());
+	}
+
+	@Override
+	public boolean checkUserEmailDuplicates(subscriber user) {
+		for (int id : subscribersByEmail.get(user.getEmail())) {
+			subscriber other = subscribers.get(id);
+			if (id != user.getId() && other != null && other.getEmail().equals(user.getEmail()))
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public boolean checkRFIDTagDifferentFromAllSubscribers(String tag) {
+		return getUserUsingTagFromDatabase(tag) == null;
+	}
+
+	@Override
+	public boolean checkCodeDifferentFromAllSubscribers(int code) {
+		for (int id : subscribersByCode.get(code)) {
+			subscriber user = subscribers.get(id);
+			if (user != null && user.getCode() == code)
+				return false;
+		}
+		return true;
+	}
+
+	// Reservations -------------------------------------------------------------
+
+	@Override
+	public List<Reservation> getReservationListOfSubscriberbyIdFromDatabase(int subscriber_id) {
+		List<Reservation> list = new ArrayList<>();
+		for (int id : reservationsBySubscriber.get(subscriber_id)) {
+			Reservation reservation = reservations.get(id);
+			if (reservation != null && reservation.getSubscriberId() == subscriber_id
+					&& reservation.getStartTime() != null && reservation.getEndTime() != null) {
+				// Same columns as the query, without the code
+				Reservation r = new Reservation(subscriber_id, reservation.getSpot(), reservation.getDate(),
+						reservation.getStartTime(), reservation.getEndTime(), 0);
+				r.setId(id);
+				list.add(r);
+			}
+		}
+		return list;
+	}
+
+	@Override
+	public synchronized void updateReservationInDatabase(int reservationNum, Reservation reservation) {
+		Reservation old = reservations.get(reservationNum);
+		if (old == null)
+			return;
+		Reservation updated = new Reservation(old.getSubscriberId(), reservation.getSpot(), reservation.getDate(),
+				normalizeTime(reservation.getStartTime()), normalizeTime(reservation.getEndTime()), old.getCode());
+		updated.setId(reservationNum);
+		putReservation(old, updated);
+		recordChange(ChangeType.UPDATE, copy(updated));
+	}
+
+	@Override
+	public synchronized int createReservationInDatabase(Reservation reservation) {
+		reservation.setId(nextReservationId.getAndIncrement());
+		putReservation(null, copy(reservation));
+		recordChange(ChangeType.INSERT, reservation);
+		return reservation.getId();
+	}
+
+	@Override
+	public synchronized BookingResult bookReservation(Reservation reservation, double minFreePercentage) {
+		// The writes are serialized, so no other booking can claim a spot between the checks and the insert
+		if (occupancyCounters.snapshot().getFreePercentage() < minFreePercentage)
+			return BookingResult.rejected(BookingResult.Status.NOT_ENOUGH_SPACE);
+		for (ParkingSpot candidate : getFreeParkingSpotFromDatabase(reservation.getDate(),
+				reservation.getStartTime(), reservation.getEndTime())) {
+			int spotId = candidate.getSpotId();
+			if (spots.get(spotId) == SpotStatus.OCCUPIED)
+				continue;
+			spots.put(spotId, SpotStatus.RESERVED);
+			Reservation booked = new Reservation(reservation.getSubscriberId(), spotId, reservation.getDate(),
+					reservation.getStartTime(), reservation.getEndTime(), reservation.getCode());
+			booked.setId(nextReservationId.getAndIncrement());
+			putReservation(null, copy(booked));
+			recordChange(ChangeType.UPDATE, new ParkingSpot(spotId, SpotStatus.RESERVED));
+			recordChange(ChangeType.INSERT, booked);
+			return BookingResult.booked(booked);
+		}
+		return BookingResult.rejected(BookingResult.Status.NO_FREE_SPOT);
+	}
+
+	@Override
+	public synchronized int expireReservations(LocalDate today) {
+		List<Serializable> changed = new ArrayList<>();
+		Set<Integer> spotsOfExpired = new TreeSet<>();
+		Set<Integer> spotsStillReserved = new HashSet<>();
+		for (Reservation reservation : new ArrayList<>(reservations.values())) {
+			if (reservation.getStartTime() == null)
+				continue;
+			if (reservation.getDate().isBefore(today)) {
+				Reservation expired = copy(reservation);
+				expired.setStartTime(null);
+				putReservation(reservation, expired);
+				changed.add(copy(expired));
+				spotsOfExpired.add(reservation.getSpot());
+			} else {
+				spotsStillReserved.add(reservation.getSpot());
+			}
+		}
+		int count = changed.size();
+		for (int spotId : spotsOfExpired) {
+			if (!spotsStillReserved.contains(spotId) && spots.replace(spotId, SpotStatus.RESERVED, SpotStatus.FREE))
+				changed.add(new ParkingSpot(spotId, SpotStatus.FREE));
+		}
+		for (Serializable entity : changed) {
+			availabilityIndex.apply(ChangeType.UPDATE, entity);
+			occupancyCounters.apply(ChangeType.UPDATE, entity);
+		}
+		changeFeed.recordAll(ChangeType.UPDATE, changed);
+		return count;
+	}
+
+	private void putReservation(Reservation old, Reservation reservation) {
+		if (old != null) {
+			reservationsBySubscriber.remove(old.getSubscriberId(), old.getId());
+			if (old.getStartTime() != null)
+				activeReservationsByCode.remove(old.getCode(), old.getId());
+		}
+		reservations.put(reservation.getId(), reservation);
+		reservationsBySubscriber.add(reservation.getSubscriberId(), reservation.getId());
+		if (reservation.getStartTime() != null)
+			activeReservationsByCode.add(reservation.getCode(), reservation.getId());
+	}
+
+	@Override
+	public Reservation getReservationById(int reservationId) {
+		Reservation reservation = reservations.get(reservationId);
+		return reservation == null ? null : copy(reservation);
+	}
+
+	@Override
+	public List<Reservation> getReservationsBetween(LocalDate from, LocalDate to) {
+		List<Reservation> list = new ArrayList<>();
+		for (Reservation reservation : reservations.values()) {
+			if (!reservation.getDate().isBefore(from) && reservation.getDate().isBefore(to))
+				list.add(copy(reservation));
+		}
+		return list;
+	}
+
+	@Override
+	public Reservation getReservationByCode(int reservationId) {
+		for (int id : activeReservationsByCode.get(reservationId)) {
+			Reservation reservation = reservations.get(id);
+			if (reservation != null && reservation.getCode() == reservationId && reservation.getStartTime() != null)
+				return copy(reservation);
+		}
+		return null;
+	}
+
+	@Override
+	public boolean checkCodeDifferentFromAllReservations(int code) {
+		return getReservationByCode(code) == null;
+	}
+
+	// Codes --------------------------------------------------------------------
+
+	@Override
+	public int allocateSubscriberCode() throws SQLException {
+		return (int) subscriberCodes.next(code -> !checkCodeDifferentFromAllSubscribers((int) code));
+	}
+
+	@Override
+	public int allocateReservationCode() throws SQLException {
+		return (int) reservationCodes.next(code -> !checkCodeDifferentFromAllReservations((int) code));
+	}
+
+	@Override
+	public String allocateRFIDTag() throws SQLException {
+		return String.format("%016X%08X", random.nextLong(), tagNumbers.next(number -> false));
+	}
+
+	// Whole tables -------------------------------------------------------------
+
+	@Override
+	public List<Reservation> getAllReservationList() {
+		List<Reservation> list = new ArrayList<>();
+		streamReservations(list::add);
+		return list;
+	}
+
+	@Override
+	public List<subscriber> getAllSubscribersList() {
+		List<subscriber> list = new ArrayList<>();
+		streamSubscribers(list::add);
+		return list;
+	}
+
+	@Override
+	public List<Parkingsession> getAllParkingsession() {
+		List<Parkingsession> list = new ArrayList<>();
+		streamParkingsessions(list::add);
+		return list;
+	}
+
+	@Override
+	public List<ParkingSpot> getAllParkingSpots() {
+		List<ParkingSpot> list = new ArrayList<>();
+		streamParkingSpots(list::add);
+		return list;
+	}
+
+	@Override
+	public int streamReservations(Consumer<? super Reservation> consumer) {
+		int count = 0;
+		for (Reservation reservation : reservations.values()) {
+			consumer.accept(copy(reservation));
+			count++;
+		}
+		return count;
+	}
+
+	@Override
+	public int streamSubscribers(Consumer<? super subscriber> consumer) {
+		int count = 0;
+		for (subscriber user : subscribers.values()) {
+			consumer.accept(copy(user));
+			count++;
+		}
+		return count;
+	}
+
+	@Override
+	public int streamParkingsessions(Consumer<? super Parkingsession> consumer) {
+		int count = 0;
+		for (Parkingsession session : sessions.values()) {
+			consumer.accept(copy(session));
+			count++;
+		}
+		return count;
+	}
+
+	@Override
+	public int streamParkingSpots(Consumer<? super ParkingSpot> consumer) {
+		int count = 0;
+		for (Map.Entry<Integer, SpotStatus> spot : spots.entrySet()) {
+			consumer.accept(new ParkingSpot(spot.getKey(), spot.getValue()));
+			count++;
+		}
+		return count;
+	}
+
+	@Override
+	public Page<?> getPage(PageRequest request) {
+		if (request.getEntityType() == null)
+			return null;
+		switch (request.getEntityType()) {
+		case RESERVATION:
+			return page(reservations, request, (id, row) -> copy(row));
+		case SUBSCRIBER:
+			return page(subscribers, request, (id, row) -> copy(row));
+		case PARKING_SESSION:
+			return page(sessions, request, (id, row) -> copy(row));
+		case PARKING_SPOT:
+			return page(spots, request, (id, status) -> new ParkingSpot(id, status));
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Reads the rows after the afterId of the request, same as {@link DataBaseQuery#getPage}
+	 */
+	private static <V, T extends Serializable> Page<T> page(NavigableMap<Integer, V> table, PageRequest request,
+			BiFunction<Integer, V, T> copy) {
+		int limit = Math.max(1, Math.min(request.getLimit(), PageRequest.MAX_LIMIT));
+		List<T> items = new ArrayList<>(limit);
+		int lastId = request.getAfterId();
+		boolean hasMore = false;
+		for (Map.Entry<Integer, V> row : table.tailMap(request.getAfterId(), false).entrySet()) {
+			if (items.size() == limit) {
+				hasMore = true;
+				break;
+			}
+			lastId = row.getKey();
+			items.add(copy.apply(row.getKey(), row.getValue()));
+		}
+		return new Page<>(request.getEntityType(), items, lastId, hasMore);
+	}
+
+	// Copies -------------------------------------------------------------------
+
+	private static Reservation copy(Reservation reservation) {
+		Reservation r = new Reservation(reservation.getSubscriberId(), reservation.getSpot(), reservation.getDate(),
+				normalizeTime(reservation.getStartTime()), normalizeTime(reservation.getEndTime()),
+				reservation.getCode());
+		r.setId(reservation.getId());
+		return r;
+	}
+
+	private static Parkingsession copy(Parkingsession session) {
+		return new Parkingsession(session.getSessionId(), session.getSubscriberId(), session.getSpotId(),
+				session.getParkingCode(), copy(session.getInTime()), copy(session.getOutTime()), session.isExtended(),
+				session.isLate(), session.getActive());
+	}
+
+	private static subscriber copy(subscriber user) {
+		return new subscriber(user.getId(), user.getName(), user.getPhone(), user.getEmail(), user.getRole(),
+				user.getLoggedIn(), new ArrayList<>(), user.getTag(), user.getCode());
+	}
+
+	private static Date copy(Date date) {
+		return date == null ? null : new Timestamp(date.getTime()); // DATETIME columns are read as Timestamp
+	}
+
+	/**
+	 * Times are kept as the TIME columns return them, HH:mm:ss
+	 */
+	private static String normalizeTime(String time) {
+		if (time == null || time.trim().isEmpty())
+			return null;
+		return time.length() == 5 ? time + ":00" : time;
+	}
+}
@@ -8,44 +8,58 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Scanner;
 
+import serverControllers.ServerConfig;
+
 /**
  * The class handles any SQL query needed
  */
 public class MySQLConnection {
-	private Connection con;
+	private Connection con; // Used only while the database is created
+	private ConnectionPool pool; // Connections of the queries (bpark.db.pool.*)
 
 	/**
 	 * Class Constructor
 	 */
 	protected MySQLConnection() {
 		createDatabaseAndTable();
-		con = connectToDB();
+		pool = new ConnectionPool(() -> {
+			Connection conn = connectToDB();
+			if (conn == null)
+				throw new SQLException("connection failed");
+			return conn;
+		}, ServerConfig.dbPoolMin(), ServerConfig.dbPoolMax(), ServerConfig.dbPoolTimeoutMillis(),
+				ServerConfig.dbPoolLeakMillis(), ServerConfig.dbPoolLifetimeMillis(), ServerConfig.dbStatementCache());
+		if (ServerConfig.dbExplain())
+			pool.setQueryExplainer(new QueryExplainer());
 	}
 
 	/**
-	 * Getter of con
+	 * Borrows a connection from the pool, it must be closed to return it
+	 * (a thread that already holds a connection gets the same one)
 	 * @return con
+	 * @throws SQLException if no connection is available
 	 */
-	public Connection getCon() {
-		return con ;
+	public Connection getCon() throws SQLException {
+		return pool.getConnection();
+	}
+
+	/**
+	 * Getter of pool
+	 * @return pool
+	 */
+	public ConnectionPool getPool() {
+		return pool;
 	}
 
 	/**
 	 * Start a connection to DB bpark returns con
+	 * (the driver is loaded by connectToMySQL when the server starts)
 	 * @return con
 	 */
-	@SuppressWarnings("deprecation")
 	private Connection connectToDB() {	
-		try {
-			Class.forName("com.mysql.cj.jdbc.Driver").newInstance();
-			System.out.println("Driver definition succeed");
-		} catch (Exception ex) {
-			/* handle the error */
-			System.out.println("Driver definition failed");
-		}
 		try {
 			Connection conn = DriverManager
-					.getConnection("jdbc:mysql://localhost/bpark?serverTimezone=Asia/Jerusalem&useSSL=false", "root", "Aa123456");
+					.getConnection("jdbc:mysql://localhost/bpark?serverTimezone=Asia/Jerusalem&useSSL=false&useServerPrepStmts=true&useCursorFetch=true", "root", "Aa123456");
 			System.out.println("DB connection succeed");
 			return conn;
 		} catch (Exception ex) {
@@ -137,6 +151,8 @@ public class MySQLConnection {
 				System.out.println("Table 'subscribers' does not exist. Proceeding with import.");
 				// If table does not exist, import the SQL file
 				importSQLFile();
+				// The tables were created again, so the migrations must run again
+				useStmt.executeUpdate("DROP TABLE IF EXISTS schema_version");
 			} else {
 				System.out.println("Table 'subscribers' already exists. Skipping import.");
 			}
@@ -144,6 +160,9 @@ public class MySQLConnection {
 			rs.close();
 			useStmt.close();
 
+			// Step 6: Apply the schema migrations that were not applied yet
+			new SchemaMigrator(con).migrate();
+
 		} catch (SQLException e) {
 			e.printStackTrace();
 			System.out.println("Failed to create database or table.");
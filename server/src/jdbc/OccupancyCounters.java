@@ -0,0 +1,140 @@
+package jdbc;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import logic.*;
+
+/**
+ * Live number of parking spots in every {@link SpotStatus}.
+ *
+ * The counters are moved on every status change written by {@link DataBaseQuery}, and are
+ * reconciled with the parking_spots table from time to time in case the table was changed
+ * outside the server. Readers get an immutable {@link Snapshot}, reading it takes no lock.
+ */
+public class OccupancyCounters {
+
+	/**
+	 * The counters at one moment
+	 */
+	public static class Snapshot {
+		private final int[] counts;
+		private final int total;
+
+		private Snapshot(int[] counts) {
+			this.counts = counts;
+			int sum = 0;
+			for (int count : counts)
+				sum += count;
+			this.total = sum;
+		}
+
+		/**
+		 * @param status a spot status
+		 * @return number of spots with that status
+		 */
+		public int getCount(SpotStatus status) {
+			return counts[status.ordinal()];
+		}
+
+		/**
+		 * @return number of spots
+		 */
+		public int getTotal() {
+			return total;
+		}
+
+		/**
+		 * @return percentage of free spots (0.0–100.0), 0.0 if there are no spots
+		 */
+		public double getFreePercentage() {
+			return total > 0 ? ((double) getCount(SpotStatus.FREE) / total) * 100.0 : 0.0;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder text = new StringBuilder("Occupancy[");
+			for (SpotStatus status : SpotStatus.values())
+				text.append(status).append('=').append(getCount(status)).append(", ");
+			return text.append("total=").append(total).append(']').toString();
+		}
+	}
+
+	private final Map<Integer, SpotStatus> statuses = new HashMap<>();
+	private final int[] counts = new int[SpotStatus.values().length];
+	private long version = 0; // Number of changes applied
+	private volatile Snapshot snapshot = new Snapshot(counts.clone());
+
+	/**
+	 * @return the current counters
+	 */
+	public Snapshot snapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Replaces the counters with the statuses read from the database
+	 *
+	 * @param allSpots all the parking spots
+	 * @return number of spots whose status was different from the counters
+	 */
+	public synchronized int load(List<ParkingSpot> allSpots) {
+		Map<Integer, SpotStatus> before = new HashMap<>(statuses);
+		statuses.clear();
+		Arrays.fill(counts, 0);
+		int drift = 0;
+		for (ParkingSpot spot : allSpots) {
+			statuses.put(spot.getSpotId(), spot.getStatus());
+			counts[spot.getStatus().ordinal()]++;
+			if (before.remove(spot.getSpotId()) != spot.getStatus())
+				drift++;
+		}
+		drift += before.size();
+		snapshot = new Snapshot(counts.clone());
+		return drift;
+	}
+
+	/**
+	 * @return number of changes applied so far, read it before reading the spots for {@link #reconcile}
+	 */
+	public synchronized long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Replaces the counters with the statuses read from the database, unless a change was
+	 * applied while they were read (the read may miss it, the next reconcile will be used)
+	 *
+	 * @param allSpots    all the parking spots
+	 * @param readVersion the version before the spots were read
+	 * @return number of spots whose status was different from the counters, -1 if skipped
+	 */
+	public synchronized int reconcile(List<ParkingSpot> allSpots, long readVersion) {
+		if (version != readVersion)
+			return -1;
+		return load(allSpots);
+	}
+
+	/**
+	 * Applies a change that was written to the database
+	 *
+	 * @param changeType the kind of change
+	 * @param entity     the entity after the change
+	 */
+	public synchronized void apply(ChangeType changeType, Serializable entity) {
+		if (!(entity instanceof ParkingSpot))
+			return;
+		ParkingSpot spot = (ParkingSpot) entity;
+		SpotStatus old = changeType == ChangeType.DELETE ? statuses.remove(spot.getSpotId())
+				: statuses.put(spot.getSpotId(), spot.getStatus());
+		if (old != null)
+			counts[old.ordinal()]--;
+		if (changeType != ChangeType.DELETE)
+			counts[spot.getStatus().ordinal()]++;
+		version++;
+		snapshot = new Snapshot(counts.clone());
+	}
+}
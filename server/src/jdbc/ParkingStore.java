@@ -0,0 +1,292 @@
+package jdbc;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+
+import logic.*;
+
+/**
+ * The storage operations of the server, everything the request handlers read and write.
+ *
+ * {@link DataBaseQuery} keeps the data in MySQL, {@link InMemoryParkingStore} keeps it in the
+ * memory of the server (bpark.storage=memory), so the server can run without a database.
+ * Every write is recorded in the {@link ChangeFeed} of the store. The entities returned are
+ * copies, changing them does not change the store.
+ */
+public interface ParkingStore {
+
+	/**
+	 * @return the feed of the changes written to the store
+	 */
+	ChangeFeed getChangeFeed();
+
+	/**
+	 * Corrects the occupancy counters in case the spots were changed outside the server
+	 */
+	void reconcileOccupancy();
+
+	// Parking sessions ---------------------------------------------------------
+
+	/**
+	 * @param code a parking code
+	 * @return true if an active parking session has that code
+	 */
+	boolean checkParkingCodeInAllActiveSessionsInDatabase(int code);
+
+	/**
+	 * @param parkingCode a parking code
+	 * @return the active parking session with that code, or null
+	 */
+	Parkingsession getActiveParkingsessionWithThatCodeFromDatabase(int parkingCode);
+
+	/**
+	 * @param subscriber_id the id of a subscriber
+	 * @return the parking code of the last session of the subscriber, 0 if none
+	 */
+	int getSubscriberLastActiveParkingsessionParkingCode(int subscriber_id);
+
+	/**
+	 * @param subscriber_id the id of a subscriber
+	 * @return the sessions of the subscriber that are not active
+	 */
+	List<Parkingsession> gethistoryParkingsessionsListOfSubscriberbyIdFromDatabase(int subscriber_id);
+
+	/**
+	 * @param subscriberId the id of a subscriber
+	 * @return the active sessions of the subscriber
+	 */
+	List<Parkingsession> getActiveParkingsessionsListOfSubscriberbyIdFromDatabase(int subscriberId);
+
+	/**
+	 * @param sessionId the id of a session
+	 * @return the session, or null
+	 */
+	Parkingsession getParkingsessionById(int sessionId);
+
+	/**
+	 * @param session the session with its new values
+	 */
+	void updateParkingsessionInDatabase(Parkingsession session);
+
+	/**
+	 * @param session the new session, its id is set
+	 */
+	void createParkingsessionInDatabase(Parkingsession session);
+
+	/**
+	 * @param session the session with its new out time
+	 * @return true if no reservation of the spot on that date starts before the new out time
+	 */
+	boolean checkExtendTimeParkingsessionWithAllReservations(Parkingsession session);
+
+	/**
+	 * @param from the first day
+	 * @param to   the day after the last day
+	 * @return the sessions that started between the two days, ordered by id, or null on error
+	 */
+	List<Parkingsession> getParkingsessionsBetween(LocalDate from, LocalDate to);
+
+	// Parking spots ------------------------------------------------------------
+
+	/**
+	 * @return the id of a FREE spot, -1 if none
+	 */
+	Object getFreeSpotFromDatabase();
+
+	/**
+	 * @return percentage of free spots (0.0–100.0)
+	 */
+	double getPrecentageAvailableSpaceFromDatabase();
+
+	/**
+	 * @param spot the spot with its new status
+	 */
+	void updateParkingSpotInDatabase(ParkingSpot spot);
+
+	/**
+	 * @param date      the date
+	 * @param startTime the start of the window
+	 * @param endTime   the end of the window
+	 * @return the spots that are not occupied and have no reservation overlapping the window
+	 */
+	List<ParkingSpot> getFreeParkingSpotFromDatabase(LocalDate date, String startTime, String endTime);
+
+	// Subscribers --------------------------------------------------------------
+
+	/**
+	 * @param code the login code
+	 * @param name the name
+	 * @return the subscriber, or null
+	 */
+	subscriber getUserUsingCodeFromDatabase(int code, String name);
+
+	/**
+	 * @param tag an RFID tag
+	 * @return the subscriber, or null
+	 */
+	subscriber getUserUsingTagFromDatabase(String tag);
+
+	/**
+	 * @param user the subscriber with its new values
+	 */
+	void updateUserInDatabase(subscriber user);
+
+	/**
+	 * @param user the new subscriber, its id is set
+	 */
+	void createUserInDatabase(subscriber user);
+
+	/**
+	 * @param user a subscriber
+	 * @return true if another subscriber has the same email
+	 */
+	boolean checkUserEmailDuplicates(subscriber user);
+
+	/**
+	 * @param tag an RFID tag
+	 * @return true if no subscriber has the tag
+	 */
+	boolean checkRFIDTagDifferentFromAllSubscribers(String tag);
+
+	/**
+	 * @param code a subscriber code
+	 * @return true if no subscriber has the code
+	 */
+	boolean checkCodeDifferentFromAllSubscribers(int code);
+
+	// Reservations -------------------------------------------------------------
+
+	/**
+	 * @param subscriber_id the id of a subscriber
+	 * @return the reservations of the subscriber that were not cancelled
+	 */
+	List<Reservation> getReservationListOfSubscriberbyIdFromDatabase(int subscriber_id);
+
+	/**
+	 * @param reservationNum the id of the reservation
+	 * @param reservation    the reservation with its new values
+	 */
+	void updateReservationInDatabase(int reservationNum, Reservation reservation);
+
+	/**
+	 * @param reservation the new reservation, its id is set
+	 * @return the id of the reservation, -1 on error
+	 */
+	int createReservationInDatabase(Reservation reservation);
+
+	/**
+	 * Checks the free space, claims a free spot and inserts the reservation, atomically
+	 *
+	 * @param reservation       the requested reservation, its spot is ignored
+	 * @param minFreePercentage the booking is rejected if fewer spots than this are FREE (0.0–100.0)
+	 * @return the booked reservation with its id and spot, or why it was not booked
+	 */
+	BookingResult bookReservation(Reservation reservation, double minFreePercentage);
+
+	/**
+	 * Cancels the unused reservations of the days before a date and frees their spots, atomically
+	 *
+	 * @param today the reservations with a date before this day are cancelled
+	 * @return the number of cancelled reservations, -1 on error
+	 */
+	int expireReservations(LocalDate today);
+
+	/**
+	 * @param reservationId the id of a reservation
+	 * @return the reservation, or null
+	 */
+	Reservation getReservationById(int reservationId);
+
+	/**
+	 * @param from the first day
+	 * @param to   the day after the last day
+	 * @return the reservations of the days between the two days, ordered by id, or null on error
+	 */
+	List<Reservation> getReservationsBetween(LocalDate from, LocalDate to);
+
+	/**
+	 * @param reservationId the code of a reservation
+	 * @return the reservation with that code that was not cancelled, or null
+	 */
+	Reservation getReservationByCode(int reservationId);
+
+	/**
+	 * @param code a reservation code
+	 * @return true if no reservation that was not cancelled has the code
+	 */
+	boolean checkCodeDifferentFromAllReservations(int code);
+
+	// Codes --------------------------------------------------------------------
+
+	/**
+	 * @return a subscriber code that no subscriber has
+	 * @throws SQLException if the code can't be allocated
+	 */
+	int allocateSubscriberCode() throws SQLException;
+
+	/**
+	 * @return a reservation code that no active reservation has
+	 * @throws SQLException if the code can't be allocated
+	 */
+	int allocateReservationCode() throws SQLException;
+
+	/**
+	 * @return an RFID tag that no subscriber has
+	 * @throws SQLException if the tag can't be allocated
+	 */
+	String allocateRFIDTag() throws SQLException;
+
+	// Whole tables -------------------------------------------------------------
+
+	/**
+	 * @return all the reservations
+	 */
+	List<Reservation> getAllReservationList();
+
+	/**
+	 * @return all the subscribers
+	 */
+	List<subscriber> getAllSubscribersList();
+
+	/**
+	 * @return all the parking sessions
+	 */
+	List<Parkingsession> getAllParkingsession();
+
+	/**
+	 * @return all the parking spots
+	 */
+	List<ParkingSpot> getAllParkingSpots();
+
+	/**
+	 * @param consumer receives the reservations ordered by id
+	 * @return the number of reservations, -1 on error
+	 */
+	int streamReservations(Consumer<? super Reservation> consumer);
+
+	/**
+	 * @param consumer receives the subscribers ordered by id
+	 * @return the number of subscribers, -1 on error
+	 */
+	int streamSubscribers(Consumer<? super subscriber> consumer);
+
+	/**
+	 * @param consumer receives the parking sessions ordered by id
+	 * @return the number of sessions, -1 on error
+	 */
+	int streamParkingsessions(Consumer<? super Parkingsession> consumer);
+
+	/**
+	 * @param consumer receives the parking spots ordered by id
+	 * @return the number of spots, -1 on error
+	 */
+	int streamParkingSpots(Consumer<? super ParkingSpot> consumer);
+
+	/**
+	 * @param request the table, the id the page starts after and the size of the page
+	 * @return the rows with an id greater than the afterId of the request, ordered by id, or null on error
+	 */
+	Page<?> getPage(PageRequest request);
+}
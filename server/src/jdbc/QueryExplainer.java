@@ -0,0 +1,85 @@
+package jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Diagnostics mode of the connection pool (bpark.db.explain=true): prints the EXPLAIN plan of
+ * every statement of {@link DataBaseQuery} the first time it runs.
+ *
+ * The prepared statements are wrapped so the parameters that are bound to them are remembered,
+ * and before the first execution of each SQL string the same SQL is explained on the same
+ * connection with the same parameters. A plan that reads a whole table is marked with a warning.
+ */
+public class QueryExplainer {
+	private final Set<String> explained = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Wraps a prepared statement so its first execution is explained
+	 *
+	 * @param physical  the connection the statement belongs to
+	 * @param sql       the SQL of the statement
+	 * @param statement the statement
+	 * @return the wrapped statement, or the statement itself if it was already explained
+	 */
+	PreparedStatement wrap(Connection physical, String sql, PreparedStatement statement) {
+		if (explained.contains(sql) || sql.trim().toUpperCase().startsWith("INSERT"))
+			return statement;
+		TreeMap<Integer, Object[]> parameters = new TreeMap<>(); // index -> set method and its arguments
+		InvocationHandler handler = (proxy, method, args) -> {
+			String name = method.getName();
+			if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer)
+				parameters.put((Integer) args[0], new Object[] { method, args });
+			else if (name.equals("clearParameters"))
+				parameters.clear();
+			else if (name.startsWith("execute") && (args == null || args.length == 0) && explained.add(sql))
+				explain(physical, sql, parameters);
+			try {
+				return method.invoke(statement, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		};
+		return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, handler);
+	}
+
+	/**
+	 * Runs EXPLAIN for the SQL with the bound parameters and prints the plan
+	 */
+	private void explain(Connection physical, String sql, TreeMap<Integer, Object[]> parameters) {
+		StringBuilder report = new StringBuilder("EXPLAIN ").append(sql.replaceAll("\\s+", " ").trim()).append('\n');
+		try (PreparedStatement ps = physical.prepareStatement("EXPLAIN " + sql)) {
+			for (Object[] parameter : parameters.values())
+				((Method) parameter[0]).invoke(ps, (Object[]) parameter[1]);
+			try (ResultSet rs = ps.executeQuery()) {
+				ResultSetMetaData meta = rs.getMetaData();
+				while (rs.next()) {
+					report.append("  ");
+					for (int i = 1; i <= meta.getColumnCount(); i++) {
+						String column = meta.getColumnLabel(i);
+						if (column.equals("table") || column.equals("type") || column.equals("possible_keys")
+								|| column.equals("key") || column.equals("rows") || column.equals("Extra"))
+							report.append(column).append('=').append(rs.getString(i)).append(' ');
+					}
+					if ("ALL".equals(rs.getString("type")))
+						report.append("<- full table scan");
+					report.append('\n');
+				}
+			}
+		} catch (SQLException | ReflectiveOperationException e) {
+			report.append("  could not be explained: ").append(e.getMessage()).append('\n');
+		}
+		System.out.print(report);
+	}
+}
@@ -0,0 +1,139 @@
+package jdbc;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Brings the bpark schema up to the newest version when the server starts.
+ *
+ * The migrations are SQL scripts in the migrations resource folder, named
+ * V{version}__{description}.sql and listed in {@link #MIGRATIONS} in order. The versions that
+ * were applied are kept in the schema_version table, so every script runs once per database.
+ * A new migration is added by adding its script and its name at the end of the list.
+ */
+public class SchemaMigrator {
+	private static final String[] MIGRATIONS = {
+			"V1__session_and_reservation_indexes.sql",
+			"V2__subscriber_login_indexes.sql",
+			"V3__code_allocator.sql",
+			"V4__reservation_expiry_index.sql",
+			"V5__session_in_time_index.sql",
+	};
+	private static final int ER_DUP_KEYNAME = 1061; // The index already exists
+
+	private final Connection con;
+
+	/**
+	 * Constructor of the class
+	 *
+	 * @param con a connection to the bpark database
+	 */
+	public SchemaMigrator(Connection con) {
+		this.con = con;
+	}
+
+	/**
+	 * Applies the migrations that were not applied yet, stops at the first one that fails
+	 *
+	 * @return the schema version after the migration
+	 * @throws SQLException if the schema_version table can't be read or written
+	 */
+	public int migrate() throws SQLException {
+		try (Statement stmt = con.createStatement()) {
+			stmt.executeUpdate("CREATE TABLE IF NOT EXISTS `schema_version` ("
+					+ "`version` INT NOT NULL, "
+					+ "`description` VARCHAR(200) NOT NULL, "
+					+ "`applied_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+					+ "PRIMARY KEY (`version`))");
+		}
+		int current = currentVersion();
+		for (String migration : MIGRATIONS) {
+			int version = versionOf(migration);
+			if (version <= current)
+				continue;
+			try {
+				apply(migration);
+			} catch (Exception e) {
+				e.printStackTrace();
+				System.out.println("Migration " + migration + " failed, the schema stays at version " + current);
+				return current;
+			}
+			try (PreparedStatement ps = con.prepareStatement(
+					"INSERT INTO `schema_version` (`version`, `description`) VALUES (?, ?)")) {
+				ps.setInt(1, version);
+				ps.setString(2, descriptionOf(migration));
+				ps.executeUpdate();
+			}
+			current = version;
+			System.out.println("Applied migration " + migration);
+		}
+		System.out.println("Schema version " + current);
+		return current;
+	}
+
+	/**
+	 * @return the highest applied version, 0 if none
+	 */
+	private int currentVersion() throws SQLException {
+		try (Statement stmt = con.createStatement();
+				ResultSet rs = stmt.executeQuery("SELECT MAX(`version`) FROM `schema_version`")) {
+			return rs.next() ? rs.getInt(1) : 0;
+		}
+	}
+
+	/**
+	 * Runs the statements of a migration script
+	 */
+	private void apply(String migration) throws Exception {
+		try (Statement stmt = con.createStatement()) {
+			for (String sql : readStatements(migration)) {
+				try {
+					stmt.execute(sql);
+				} catch (SQLException e) {
+					// A script that was stopped half way may have created some of its indexes
+					if (e.getErrorCode() != ER_DUP_KEYNAME)
+						throw e;
+					System.out.println("Skipped, already exists: " + sql);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads a migration script and splits it into statements, without the comment lines
+	 */
+	private List<String> readStatements(String migration) throws Exception {
+		String script;
+		try (InputStream is = getClass().getClassLoader().getResourceAsStream("migrations/" + migration)) {
+			if (is == null)
+				throw new Exception("Migration " + migration + " not found in classpath.");
+			script = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+		}
+		StringBuilder withoutComments = new StringBuilder();
+		for (String line : script.split("\r?\n")) {
+			if (!line.trim().startsWith("--"))
+				withoutComments.append(line).append('\n');
+		}
+		List<String> statements = new ArrayList<>();
+		for (String sql : withoutComments.toString().split(";")) {
+			if (!sql.trim().isEmpty())
+				statements.add(sql.trim());
+		}
+		return statements;
+	}
+
+	private static int versionOf(String migration) {
+		return Integer.parseInt(migration.substring(1, migration.indexOf("__")));
+	}
+
+	private static String descriptionOf(String migration) {
+		return migration.substring(migration.indexOf("__") + 2, migration.lastIndexOf('.')).replace('_', ' ');
+	}
+}
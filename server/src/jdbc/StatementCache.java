@@ -0,0 +1,187 @@
+package jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of the prepared statements of one pooled connection.
+ *
+ * The query methods prepare the same SQL strings again and again, the cache keeps the prepared
+ * statement of every SQL string so it is parsed only once per connection. Closing a statement
+ * that came from the cache only clears its parameters and returns it to the cache. When the cache
+ * is full the least recently used statement is closed. A statement that is in use is never handed
+ * out twice, the second prepare of the same SQL gets a new statement that is not cached.
+ *
+ * Only used by the thread that borrowed the connection, the counters are shared by all the
+ * connections of the pool.
+ */
+class StatementCache {
+
+	/**
+	 * Counters of all the caches of a pool
+	 */
+	static class Stats {
+		final AtomicLong hits = new AtomicLong();
+		final AtomicLong misses = new AtomicLong();
+		final AtomicLong evictions = new AtomicLong();
+
+		/**
+		 * @return hits / (hits + misses), 0 before the first prepare
+		 */
+		double hitRatio() {
+			long total = hits.get() + misses.get();
+			return total == 0 ? 0 : (double) hits.get() / total;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("statements[hits=%d, misses=%d, evictions=%d, hitRatio=%.2f]", hits.get(),
+					misses.get(), evictions.get(), hitRatio());
+		}
+	}
+
+	/**
+	 * A cached statement and whether a borrower uses it now
+	 */
+	private static class Entry {
+		final PreparedStatement statement;
+		boolean inUse;
+
+		Entry(PreparedStatement statement) {
+			this.statement = statement;
+		}
+	}
+
+	private final Connection physical;
+	private final Stats stats;
+	private final LinkedHashMap<String, Entry> entries;
+
+	/**
+	 * Constructor of the class
+	 *
+	 * @param physical the connection the statements are prepared on
+	 * @param capacity maximum number of cached statements
+	 * @param stats    the counters of the pool
+	 */
+	StatementCache(Connection physical, int capacity, Stats stats) {
+		this.physical = physical;
+		this.stats = stats;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				if (size() <= capacity || eldest.getValue().inUse)
+					return false;
+				stats.evictions.incrementAndGet();
+				closeQuietly(eldest.getValue().statement);
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Returns the prepared statement of a prepareStatement call, from the cache when possible
+	 *
+	 * @param args the arguments of prepareStatement (the SQL string, and optionally the
+	 *             auto generated keys flag)
+	 * @return a statement whose close returns it to the cache, or null if the call can't be cached
+	 * @throws SQLException if the statement can't be prepared
+	 */
+	PreparedStatement prepare(Object[] args) throws SQLException {
+		if (args.length > 2 || (args.length == 2 && !(args[1] instanceof Integer)))
+			return null;
+		String sql = (String) args[0];
+		int generatedKeys = args.length == 2 ? (Integer) args[1] : -1;
+		String key = generatedKeys == -1 ? sql : generatedKeys + "#" + sql;
+		Entry entry = entries.get(key);
+		if (entry != null && entry.inUse) {
+			stats.misses.incrementAndGet();
+			return null;
+		}
+		if (entry == null) {
+			stats.misses.incrementAndGet();
+			PreparedStatement statement = generatedKeys == -1 ? physical.prepareStatement(sql)
+					: physical.prepareStatement(sql, generatedKeys);
+			entry = new Entry(statement);
+			entries.put(key, entry);
+		} else {
+			stats.hits.incrementAndGet();
+		}
+		entry.inUse = true;
+		return wrap(entry);
+	}
+
+	/**
+	 * Wraps a cached statement for one use, closing the wrapper returns it to the cache
+	 */
+	private PreparedStatement wrap(Entry entry) {
+		boolean[] returned = new boolean[1];
+		InvocationHandler handler = (proxy, method, args) -> {
+			switch (method.getName()) {
+			case "close":
+				if (!returned[0]) {
+					returned[0] = true;
+					try {
+						entry.statement.clearParameters();
+					} catch (SQLException e) {
+						remove(entry);
+					}
+					entry.inUse = false;
+				}
+				return null;
+			case "isClosed":
+				return returned[0] || entry.statement.isClosed();
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			default:
+				if (returned[0])
+					throw new SQLException("The statement was closed");
+				try {
+					return method.invoke(entry.statement, args);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			}
+		};
+		return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, handler);
+	}
+
+	/**
+	 * Drops a statement that can't be reused
+	 */
+	private void remove(Entry entry) {
+		entries.values().remove(entry);
+		closeQuietly(entry.statement);
+	}
+
+	/**
+	 * Closes all the cached statements, called when the connection is closed
+	 */
+	void clear() {
+		List<Entry> all = new ArrayList<>(entries.values());
+		entries.clear();
+		for (Entry entry : all)
+			closeQuietly(entry.statement);
+	}
+
+	private static void closeQuietly(PreparedStatement statement) {
+		try {
+			statement.close();
+		} catch (SQLException e) {
+			// The statement is dropped anyway
+		}
+	}
+}
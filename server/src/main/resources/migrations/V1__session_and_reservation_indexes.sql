@@ -0,0 +1,15 @@
+-- -----------------------
+-- Indexes of the parking session and reservation lookups
+-- -----------------------
+
+-- Gate: checkParkingCodeInAllActiveSessionsInDatabase, getActiveParkingsessionWithThatCodeFromDatabase
+CREATE INDEX `idx_sessions_code_active` ON `parking_sessions` (`parking_code`, `active`);
+
+-- History and active sessions of a subscriber
+CREATE INDEX `idx_sessions_subscriber_active` ON `parking_sessions` (`subscriber_id`, `active`);
+
+-- Overlap checks of a spot on a date
+CREATE INDEX `idx_reservations_spot_date_start` ON `reservations` (`spot_id`, `date`, `start_time`);
+
+-- getReservationByCode, checkCodeDifferentFromAllReservations
+CREATE INDEX `idx_reservations_code` ON `reservations` (`reservation_code`);
@@ -0,0 +1,9 @@
+-- -----------------------
+-- Indexes of the subscriber login lookups
+-- -----------------------
+
+-- getUserUsingTagFromDatabase, checkRFIDTagDifferentFromAllSubscribers
+CREATE INDEX `idx_subscribers_tag` ON `subscribers` (`tag`);
+
+-- getUserUsingCodeFromDatabase, checkCodeDifferentFromAllSubscribers
+CREATE INDEX `idx_subscribers_code` ON `subscribers` (`code`);
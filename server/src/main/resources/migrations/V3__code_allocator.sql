@@ -0,0 +1,11 @@
+-- -----------------------
+-- Blocks of the subscriber codes, reservation codes and RFID tags (CodeAllocator)
+-- -----------------------
+
+-- next_index: the first number of the next block, perm_key: the key of the order of the codes
+CREATE TABLE IF NOT EXISTS `code_allocator` (
+  `name` VARCHAR(50) NOT NULL,
+  `perm_key` BIGINT NOT NULL,
+  `next_index` BIGINT NOT NULL,
+  PRIMARY KEY (`name`)
+);
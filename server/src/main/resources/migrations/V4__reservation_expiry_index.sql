@@ -0,0 +1,6 @@
+-- -----------------------
+-- Index of the nightly expiry of the reservations
+-- -----------------------
+
+-- expireReservations: date < ? AND start_time IS NOT NULL
+CREATE INDEX `idx_reservations_date_start` ON `reservations` (`date`, `start_time`);
@@ -0,0 +1,6 @@
+-- -----------------------
+-- Index of the monthly report
+-- -----------------------
+
+-- getParkingsessionsBetween: in_time >= ? AND in_time < ?
+CREATE INDEX `idx_sessions_in_time` ON `parking_sessions` (`in_time`);
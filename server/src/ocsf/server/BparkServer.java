@@ -1,8 +1,18 @@
 package ocsf.server;
 
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import serverControllers.*;
 import jdbc.*;
@@ -14,10 +24,23 @@ import logic.*;
 public class BparkServer extends AbstractServer {
 
 	final public static int DEFAULT_PORT = 5555;
-	private DataBaseQuery con; // Will be used any time an SQL Query is needed
-	private List<ConnectionToClient> clientConnections = new ArrayList<>(); // Current connections
+	private ParkingStore con; // Will be used any time an SQL Query is needed
+	private List<ConnectionToClient> clientConnections = new CopyOnWriteArrayList<>(); // Current connections
 	private List<List<String>> requiredList = new ArrayList<>(); // Log of current and former connections
 	private ServerController serverController;
+	private NioServer nioServer; // Used instead of the OCSF listener when bpark.transport=nio
+	private ExecutorService requestExecutor; // Handles the requests when bpark.execution=concurrent
+	private BroadcastCoalescer broadcastCoalescer; // Merges the changes of a burst of requests into one broadcast
+	private final ExecutorService outboundWriters = Executors.newFixedThreadPool(ServerConfig.outboundWriters(), r -> {
+		Thread thread = new Thread(r, "bpark-writer");
+		thread.setDaemon(true);
+		return thread;
+	}); // Write the outbound queues of the clients
+	private final ScheduledExecutorService monitor = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "bpark-monitor");
+		thread.setDaemon(true);
+		return thread;
+	}); // Refreshes the queue depths shown in the server screen and reconciles the occupancy counters
 
 	/**
 	 * Constructor for the class
@@ -27,16 +50,99 @@ public class BparkServer extends AbstractServer {
 	public BparkServer(ServerController controller) {
 		super(DEFAULT_PORT);
 		this.serverController = controller;
-		con = new DataBaseQuery();
+		con = ServerConfig.inMemoryStorage() ? new InMemoryParkingStore(ServerConfig.storageSpots()) : new DataBaseQuery();
+		if (ServerConfig.concurrentExecution())
+			requestExecutor = newRequestExecutor();
+		broadcastCoalescer = new BroadcastCoalescer(con.getChangeFeed(), ServerConfig.coalesceMillis(),
+				this::broadcastChanges);
+		monitor.scheduleWithFixedDelay(this::refreshQueueDepths, 1, 1, TimeUnit.SECONDS);
+		monitor.scheduleWithFixedDelay(con::reconcileOccupancy, ServerConfig.occupancyReconcileSeconds(),
+				ServerConfig.occupancyReconcileSeconds(), TimeUnit.SECONDS);
 	}
 
 	/**
-	 * Handles objects that are sent to the server
+	 * Creates the executor of the concurrent execution mode, a virtual thread per request
+	 * when the JVM supports it (Java 21+), otherwise a pool of daemon threads
+	 * @return ExecutorService
+	 */
+	private static ExecutorService newRequestExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			System.out.println("Requests are handled on virtual threads");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			System.out.println("Virtual threads are not available, requests are handled on a thread pool");
+			return Executors.newCachedThreadPool(r -> {
+				Thread thread = new Thread(r, "bpark-request");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	/**
+	 * Starts listening for clients, with the selector based transport if it is configured
+	 * @throws IOException
+	 */
+	public void startListening() throws IOException {
+		if (ServerConfig.useNioTransport()) {
+			nioServer = new NioServer(this, getPort(), ServerConfig.nioThreads(), ServerConfig.nioMaxMessageBytes());
+			nioServer.listen();
+		} else
+			listen();
+	}
+
+	/**
+	 * Closes the server and all the connections of the transport that is in use
+	 * @throws IOException
+	 */
+	public void shutdown() throws IOException {
+		if (nioServer != null)
+			nioServer.close();
+		else
+			close();
+		if (requestExecutor != null)
+			requestExecutor.shutdown();
+		monitor.shutdown();
+		outboundWriters.shutdown();
+	}
+
+	/**
+	 * Handles objects that are sent to the server.
+	 * In the concurrent execution mode the request is queued on the executor of the client,
+	 * so a slow request (e.g. a PDF report) doesn't hold the connection thread and the other
+	 * clients, while the replies to each client keep the order of its requests.
 	 * @param msg
 	 * @param client
 	 */
 	public void handleMessageFromClient(Object msg, ConnectionToClient client) {
+		if (requestExecutor == null) {
+			handleRequest(msg, client);
+			return;
+		}
+		SerialExecutor clientExecutor = (SerialExecutor) client.getInfo("executor");
+		if (clientExecutor == null) {
+			clientExecutor = new SerialExecutor(requestExecutor);
+			client.setInfo("executor", clientExecutor);
+		}
+		clientExecutor.execute(() -> handleRequest(msg, client));
+	}
 
+	/**
+	 * Handles one request of a client
+	 * @param msg
+	 * @param client
+	 */
+	private void handleRequest(Object msg, ConnectionToClient client) {
+		if (msg instanceof byte[]) { // Message encoded with the codec the client negotiated
+			try {
+				msg = codecOf(client).decode((byte[]) msg);
+			} catch (IOException e) {
+				System.out.println("Failed to decode message from client " + client.getId());
+				e.printStackTrace();
+				return;
+			}
+		}
 		if (msg instanceof String) {
 			String msgString = (String) msg;
 			System.out.println(msgString);
@@ -45,58 +151,200 @@ public class BparkServer extends AbstractServer {
 		}
 		if (msg instanceof SendObject<?>) {
 			SendObject<?> obj = (SendObject<?>) msg;
+			if ("Subscribe".equals(obj.getObjectMessage())) {
+				subscribeClient(obj, client);
+				return;
+			}
+			if ("Codec".equals(obj.getObjectMessage())) {
+				negotiateCodec(obj, client);
+				return;
+			}
 			try {
 				// Call the handler, which could return any type
 				Object result = SendObjectHandler.sendObjectHandle(obj, con);
+				// A request with an id always gets a reply, so the client can complete its request
+				if (result == null && obj.getRequestId() != null)
+					result = new SendObject<String>("Done", null);
 				// If the result is a SendObject, you can send it directly
 				if (result instanceof SendObject<?>) {
 					SendObject<?> sendObjectResult = (SendObject<?>) result;
-					if(sendObjectResult.getObj() instanceof String) {
-						String str = (String)sendObjectResult.getObj();
-						Object resultToAll;
-						if(str.equals("Updated")||str.equals("updated successfully")||str.contains("Created with code")||str.equals("Created")||sendObjectResult.getObjectMessage().equals("Subscriber created")) {						
-							resultToAll = SendObjectHandler.sendObjectHandle(new SendObject<String>("Get","all reservations"), con);
-							sendToAllClients(resultToAll);
-							resultToAll = SendObjectHandler.sendObjectHandle(new SendObject<String>("Get","all subscribers"), con);
-							sendToAllClients(resultToAll);
-							resultToAll = SendObjectHandler.sendObjectHandle(new SendObject<String>("Get","all parking sessions"), con);
-							sendToAllClients(resultToAll);
-							resultToAll = SendObjectHandler.sendObjectHandle(new SendObject<String>("Get","all parking spots"), con);
-							sendToAllClients(resultToAll);
-						}				
-					}			
+					sendObjectResult.setRequestId(obj.getRequestId()); // Echo the id of the request
 					sendToSingleClient(sendObjectResult, client);
 				}
 			} catch (Exception e) {
 				System.out.println("sendObjectHandle error");
 				e.printStackTrace();
+				if (obj.getRequestId() != null) { // Fails the request instead of leaving it waiting
+					SendObject<String> error = new SendObject<String>("Error", e.getMessage());
+					error.setRequestId(obj.getRequestId());
+					sendToSingleClient(error, client);
+				}
 			}
 		}
 	}
 
 	/**
-	 * Sends a object msg to a client
+	 * Registers the topics a client wants to receive changes of, replaces former topics
+	 * @param obj SendObject holding a list of topics (see {@link TopicRouter})
+	 * @param client
+	 */
+	private void subscribeClient(SendObject<?> obj, ConnectionToClient client) {
+		Set<String> topics = new HashSet<>();
+		if (obj.getObj() instanceof List<?>) {
+			for (Object topic : (List<?>) obj.getObj())
+				topics.add(String.valueOf(topic));
+		}
+		client.setInfo("topics", topics);
+		System.out.println(String.format("Client:%d subscribed to %s", client.getId(), topics));
+	}
+
+	/**
+	 * Confirms the codec a client asked for, the messages to the client are encoded with it from now on.
+	 * The reply itself is still a Java object, unknown codecs are answered with "java"
+	 * @param obj SendObject holding the name of the codec (see {@link WireCodec})
+	 * @param client
+	 */
+	private void negotiateCodec(SendObject<?> obj, ConnectionToClient client) {
+		WireCodec codec = WireCodec.forName(String.valueOf(obj.getObj()));
+		if (codec == null)
+			codec = JavaSerializationCodec.INSTANCE;
+		SendObject<String> reply = new SendObject<String>("Codec", codec.getName());
+		reply.setRequestId(obj.getRequestId());
+		sendToSingleClient(reply, client);
+		client.setInfo("codec", codec);
+		System.out.println(String.format("Client:%d uses the %s codec", client.getId(), codec.getName()));
+	}
+
+	/**
+	 * Returns the codec of a client
+	 * @param client
+	 * @return WireCodec, Java serialization if the client never negotiated one
+	 */
+	private WireCodec codecOf(ConnectionToClient client) {
+		WireCodec codec = (WireCodec) client.getInfo("codec");
+		return codec != null ? codec : JavaSerializationCodec.INSTANCE;
+	}
+
+	/**
+	 * Sends the changes collected by the broadcast coalescer.
+	 * Each client receives only the changes of the topics it registered.
+	 * Clients apply the changes to their local lists, so the full tables are no longer sent.
+	 * Clients with the same topics share one message, which is serialized once per codec.
+	 * @param changes
+	 */
+	@SuppressWarnings("unchecked")
+	private void broadcastChanges(List<ChangeEvent> changes) {
+		Map<Set<String>, SharedFrame> framesByTopics = new HashMap<>(); // Null key for clients without topics
+		for (ConnectionToClient client : clientConnections) {
+			Set<String> topics = (Set<String>) client.getInfo("topics");
+			SharedFrame frame = framesByTopics.computeIfAbsent(topics, key -> {
+				ArrayList<ChangeEvent> clientChanges = TopicRouter.filter(changes, topics);
+				return clientChanges.isEmpty() ? null
+						: new SharedFrame(new SendObject<ArrayList<ChangeEvent>>("Changes", clientChanges));
+			});
+			if (frame != null)
+				sendToSingleClient(frame, client);
+		}
+	}
+
+	/**
+	 * Sends a message to every connected client, works with both transports
+	 * @param msg
+	 */
+	@Override
+	public void sendToAllClients(Object msg) {
+		SharedFrame frame = new SharedFrame(msg); // Serialized once for all the clients
+		for (ConnectionToClient client : clientConnections)
+			sendToSingleClient(frame, client);
+	}
+
+	/**
+	 * Sends a object msg to a client, through the outbound queue of the client.
+	 * Never waits for the socket, a client that can't keep up is disconnected
 	 * @param msg
 	 * @param client 
 	 * @return Object
 	 */
 	public void sendToSingleClient(Object msg, ConnectionToClient client) {
-		try {
-			if (msg instanceof String) // Sends a String
-				client.sendToClient(msg);
-			else if (msg instanceof SendObject<?>) {
-				SendObject<?> sendObject = (SendObject<?>) msg;
-				
-				client.sendToClient(sendObject);
-			} else if (msg instanceof ArrayList<?>) {
-				ArrayList<?> list = (ArrayList<?>) msg;
-				client.sendToClient(list);
+		outboundOf(client).offer(msg);
+	}
+
+	/**
+	 * Returns the outbound queue of a client, creates it on first use
+	 * @param client
+	 * @return OutboundQueue
+	 */
+	private OutboundQueue outboundOf(ConnectionToClient client) {
+		synchronized (client) {
+			OutboundQueue outbound = (OutboundQueue) client.getInfo("outbound");
+			if (outbound == null) {
+				outbound = new OutboundQueue(client, outboundWriters, this::writeToClient, this::disconnectSlowClient,
+						ServerConfig.outboundCapacity());
+				client.setInfo("outbound", outbound);
 			}
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			return outbound;
+		}
+	}
+
+	/**
+	 * Disconnects a client whose outbound queue is full
+	 * @param client
+	 */
+	private void disconnectSlowClient(ConnectionToClient client) {
+		System.out.println(String.format("Client:%d can't keep up with its messages, disconnecting", client.getId()));
+		outboundWriters.execute(() -> {
+			try {
+				client.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		});
+	}
+
+	/**
+	 * Writes a message to a client, called by the writer threads of the outbound queues
+	 * @param client
+	 * @param msg
+	 * @throws IOException
+	 */
+	private void writeToClient(ConnectionToClient client, Object msg) throws IOException {
+		WireCodec codec = codecOf(client);
+		if (msg instanceof SharedFrame) { // Serialized once, shared by all its clients
+			client.sendFrameToClient(((SharedFrame) msg).frameFor(codec));
+			return;
+		}
+		if (codec != JavaSerializationCodec.INSTANCE) // The client negotiated a compact codec
+			msg = codec.encode(msg);
+		if (msg instanceof String || msg instanceof byte[]) // Sends a String or an encoded message
+			client.sendToClient(msg);
+		else if (msg instanceof SendObject<?>) {
+			SendObject<?> sendObject = (SendObject<?>) msg;
 			
+			client.sendToClient(sendObject);
+		} else if (msg instanceof ArrayList<?>) {
+			ArrayList<?> list = (ArrayList<?>) msg;
+			client.sendToClient(list);
+		} else // e.g. the "Server Shutdown" exception
+			client.sendToClient(msg);
+	}
+
+	/**
+	 * Updates the outbound queue depth of the connected clients in the server screen
+	 */
+	private synchronized void refreshQueueDepths() {
+		boolean changed = false;
+		for (ConnectionToClient client : clientConnections) {
+			OutboundQueue outbound = (OutboundQueue) client.getInfo("outbound");
+			String depth = Integer.toString(outbound == null ? 0 : outbound.depth());
+			for (List<String> clientInfo : requiredList) {
+				if (clientInfo.get(0).equals(Long.toString(client.getId())) && !clientInfo.get(4).equals(depth)) {
+					clientInfo.set(4, depth);
+					changed = true;
+				}
+			}
 		}
+		if (changed)
+			serverController.recievedServerUpdate(requiredList);
 	}
 
 	/**
@@ -139,10 +387,10 @@ public class BparkServer extends AbstractServer {
 	/**
 	 * @param client 
 	 * Add the client to the list of connected clients Each client
-	 * has: id, IP, hostName, status{"Connected","Disconnected"} (all strings)
+	 * has: id, IP, hostName, status{"Connected","Disconnected"}, outbound queue depth (all strings)
 	 */
 	@Override
-	public void clientConnected(ConnectionToClient client) {
+	public synchronized void clientConnected(ConnectionToClient client) {
 		if (!clientConnections.contains(client)) {
 			clientConnections.add(client);
 			List<String> clientInfo = new ArrayList<>();
@@ -150,6 +398,7 @@ public class BparkServer extends AbstractServer {
 			clientInfo.add(client.getInetAddress().getHostAddress());
 			clientInfo.add(client.getInetAddress().getCanonicalHostName());
 			clientInfo.add("Connected");
+			clientInfo.add("0"); // Outbound queue depth
 			requiredList.add(clientInfo);
 			serverController.recievedServerUpdate(requiredList);
 			System.out.println(String.format("Client:%s IP:%s HostName:%s %s", clientInfo.get(0), clientInfo.get(1),
@@ -182,19 +431,33 @@ public class BparkServer extends AbstractServer {
 		}
 	}
 
+	/**
+	 * Called when the connection of a client breaks without a disconnect message
+	 * @param client
+	 * @param exception
+	 */
+	@Override
+	protected void clientException(ConnectionToClient client, Throwable exception) {
+		if (clientConnections.contains(client))
+			clientDisconnected(client);
+	}
+
 	/**
 	 * Updates the status of a client to either "Connected"/"Disconnected"
 	 * @param client
 	 * @param status
 	 * @throws Exception
 	 */
-	private void clientSetStatus(ConnectionToClient client, String status) throws Exception {
+	private synchronized void clientSetStatus(ConnectionToClient client, String status) throws Exception {
 		for (List<String> string : requiredList) {
 			if (string.get(0).equals(Long.toString(client.getId()))) {
 				string.set(3, status);
 				requiredList.set(requiredList.indexOf(string), string);
-				if (status.equals("Disconnected"))
+				if (status.equals("Disconnected")) {
 					clientConnections.remove(client);
+					outboundOf(client).close();
+					string.set(4, "0");
+				}
 				else if (status.equals("Connected"))
 					clientConnections.add(client);
 				else {
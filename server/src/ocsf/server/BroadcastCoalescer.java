@@ -0,0 +1,141 @@
+package ocsf.server;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import jdbc.ChangeFeed;
+import logic.*;
+
+/**
+ * Merges the changes of a burst of requests into one broadcast.
+ *
+ * The first change after a broadcast opens a window (bpark.coalesce.ms), every change recorded
+ * during the window joins it, and when the window ends all of them are sent together. When the
+ * same entity changed several times in the window only its last state is sent, e.g. creating a
+ * reservation updates its spot, inserts the reservation and updates it again.
+ */
+public class BroadcastCoalescer {
+	private final ChangeFeed changeFeed;
+	private final long windowMillis;
+	private final Consumer<List<ChangeEvent>> broadcaster;
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "bpark-broadcast");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private boolean flushScheduled = false;
+
+	private final AtomicLong requestedBroadcasts = new AtomicLong(); // One for each recorded change
+	private final AtomicLong broadcasts = new AtomicLong(); // Broadcasts actually sent
+	private final AtomicLong mergedChanges = new AtomicLong(); // Changes replaced by a newer change of the same entity
+
+	/**
+	 * Constructor of the class, listens to the change feed
+	 *
+	 * @param changeFeed   the feed the changes are drained from
+	 * @param windowMillis how long changes are collected before they are sent
+	 * @param broadcaster  sends the merged changes to the clients
+	 */
+	public BroadcastCoalescer(ChangeFeed changeFeed, long windowMillis, Consumer<List<ChangeEvent>> broadcaster) {
+		this.changeFeed = changeFeed;
+		this.windowMillis = Math.max(0, windowMillis);
+		this.broadcaster = broadcaster;
+		changeFeed.setListener(this::requestBroadcast);
+	}
+
+	/**
+	 * Schedules a broadcast at the end of the current window, opens a window if there is none
+	 */
+	public synchronized void requestBroadcast() {
+		requestedBroadcasts.incrementAndGet();
+		if (flushScheduled)
+			return;
+		flushScheduled = true;
+		scheduler.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Sends the changes collected in the window
+	 */
+	private void flush() {
+		synchronized (this) {
+			flushScheduled = false;
+		}
+		try {
+			ArrayList<ChangeEvent> changes = changeFeed.drain();
+			if (changes.isEmpty())
+				return;
+			List<ChangeEvent> merged = merge(changes);
+			mergedChanges.addAndGet(changes.size() - merged.size());
+			broadcasts.incrementAndGet();
+			broadcaster.accept(merged);
+		} catch (Exception e) {
+			System.out.println("Broadcast failed");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Keeps only the last change of every entity
+	 *
+	 * @param changes the changes ordered by version
+	 * @return the merged changes, still ordered by version
+	 */
+	static List<ChangeEvent> merge(List<ChangeEvent> changes) {
+		Map<String, ChangeEvent> latest = new LinkedHashMap<>();
+		for (ChangeEvent change : changes) {
+			String key = change.getEntityType() + ":" + change.getKey();
+			ChangeEvent former = latest.remove(key); // Re-inserted so the map stays ordered by version
+			if (former != null && former.getChangeType() == ChangeType.INSERT
+					&& change.getChangeType() == ChangeType.UPDATE) // Still new for the clients
+				change = new ChangeEvent(change.getVersion(), change.getEntityType(), ChangeType.INSERT,
+						change.getKey(), change.getEntity());
+			latest.put(key, change);
+		}
+		return new ArrayList<>(latest.values());
+	}
+
+	/**
+	 * @return number of changes that asked for a broadcast
+	 */
+	public long getRequestedBroadcasts() {
+		return requestedBroadcasts.get();
+	}
+
+	/**
+	 * @return number of broadcasts that were sent
+	 */
+	public long getBroadcasts() {
+		return broadcasts.get();
+	}
+
+	/**
+	 * @return number of requested broadcasts that were merged into another broadcast
+	 */
+	public long getMergedBroadcasts() {
+		return Math.max(0, requestedBroadcasts.get() - broadcasts.get());
+	}
+
+	/**
+	 * @return number of changes dropped because a newer change of the same entity was sent instead
+	 */
+	public long getMergedChanges() {
+		return mergedChanges.get();
+	}
+
+	/**
+	 * @return a one line summary of the metrics
+	 */
+	@Override
+	public String toString() {
+		return String.format("Broadcasts: %d sent, %d merged, %d changes merged", getBroadcasts(),
+				getMergedBroadcasts(), getMergedChanges());
+	}
+}
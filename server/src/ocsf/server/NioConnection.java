@@ -0,0 +1,315 @@
+package ocsf.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.SequenceInputStream;
+import java.io.StreamCorruptedException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A client connection of the {@link NioServer}, read and written without blocking.
+ *
+ * The connection speaks the same protocol as the OCSF client: a Java object stream where
+ * the client resets the stream after every message. Every message is therefore complete by
+ * itself and is decoded as soon as all of its bytes arrived, until then the bytes wait in the
+ * input buffer. Outgoing messages are encoded the same way (stream reset after every message)
+ * into byte buffers that the I/O thread writes when the socket can accept them.
+ *
+ * A message that arrives in many reads is not parsed again on every read: once the incomplete
+ * part is large, it is parsed again only when the buffered bytes doubled, or when the client
+ * stopped sending for a while (see {@link #readDeferred()}), so a large upload is parsed a
+ * logarithmic number of times. The input buffer never grows beyond the largest message allowed,
+ * a client that sends a bigger one is disconnected.
+ */
+class NioConnection {
+	private static final byte[] STREAM_HEADER = { (byte) 0xAC, (byte) 0xED, 0x00, 0x05 };
+	private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+	private static final int DEFER_THRESHOLD = 64 * 1024; // Smaller incomplete messages are parsed again on every read
+
+	private final SocketChannel channel;
+	private final InetAddress inetAddress;
+	private SelectionKey key;
+	private ConnectionToClient client;
+
+	private final int maxMessageBytes;
+	private ByteBuffer input; // Kept in write mode
+	private boolean headerRead = false;
+	private int retryAt = 0; // Buffered bytes needed before the incomplete message is parsed again, 0 = on every read
+	private int parsedAt = 0; // Buffered bytes when the incomplete message was last parsed
+	private long lastReadNanos = System.nanoTime();
+
+	private final ArrayDeque<ByteBuffer> output = new ArrayDeque<>();
+	private final ByteArrayOutputStream encodeBuffer = new ByteArrayOutputStream();
+	private final ObjectOutputStream encoder;
+	private boolean closed = false;
+
+	/**
+	 * Signals that the input buffer ends in the middle of a message
+	 */
+	@SuppressWarnings("serial")
+	private static class IncompleteMessageException extends IOException {
+	}
+
+	/**
+	 * Constructor of the class, queues the stream header for the client
+	 *
+	 * @param channel         the accepted socket channel
+	 * @param maxMessageBytes the largest message the client may send
+	 * @throws IOException
+	 */
+	NioConnection(SocketChannel channel, int maxMessageBytes) throws IOException {
+		this.channel = channel;
+		this.maxMessageBytes = Math.max(INITIAL_BUFFER_SIZE, maxMessageBytes);
+		this.input = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+		this.inetAddress = channel.socket().getInetAddress();
+		encoder = new ObjectOutputStream(encodeBuffer);
+		encoder.flush();
+		output.add(ByteBuffer.wrap(encodeBuffer.toByteArray()));
+		encodeBuffer.reset();
+	}
+
+	/**
+	 * Attaches the connection to its selection key and to the object the server callbacks receive
+	 *
+	 * @param key    selection key of the channel
+	 * @param client the ConnectionToClient that represents this connection
+	 */
+	void attach(SelectionKey key, ConnectionToClient client) {
+		this.key = key;
+		this.client = client;
+		synchronized (this) {
+			if (!output.isEmpty())
+				key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+		}
+	}
+
+	/**
+	 * @return the ConnectionToClient that represents this connection
+	 */
+	ConnectionToClient getClient() {
+		return client;
+	}
+
+	/**
+	 * @return the address of the client
+	 */
+	InetAddress getInetAddress() {
+		return inetAddress;
+	}
+
+	/**
+	 * Encodes a message and queues it for writing, never blocks on the socket
+	 *
+	 * @param msg the message
+	 * @throws IOException if the connection is closed or the message can't be serialized
+	 */
+	synchronized void send(Object msg) throws IOException {
+		if (closed)
+			throw new IOException("connection is closed");
+		encoder.writeObject(msg);
+		encoder.reset(); // Keeps every message independent, like the OCSF client does
+		encoder.flush();
+		output.add(ByteBuffer.wrap(encodeBuffer.toByteArray()));
+		encodeBuffer.reset();
+		if (key != null && key.isValid()) {
+			key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+			key.selector().wakeup();
+		}
+	}
+
+	/**
+	 * Queues a message that was already serialized (see {@link SharedFrame}), never blocks.
+	 * Every message of this connection ends with a reset, so the frame starts at a clean boundary
+	 *
+	 * @param frame the serialized message, owned by this connection from now on
+	 * @throws IOException if the connection is closed
+	 */
+	synchronized void sendFrame(ByteBuffer frame) throws IOException {
+		if (closed)
+			throw new IOException("connection is closed");
+		output.add(frame);
+		if (key != null && key.isValid()) {
+			key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+			key.selector().wakeup();
+		}
+	}
+
+	/**
+	 * Reads the available bytes, called by the I/O thread when the channel is readable
+	 *
+	 * @return the messages that were completed by the read (may be empty)
+	 * @throws IOException if the client closed the connection, sent corrupted data or a message
+	 *                     larger than the maximum
+	 */
+	List<Object> read() throws IOException {
+		if (!input.hasRemaining()) { // Message is bigger than the buffer
+			if (input.capacity() >= maxMessageBytes)
+				throw new IOException("message larger than " + maxMessageBytes + " bytes");
+			ByteBuffer bigger = ByteBuffer.allocate((int) Math.min(input.capacity() * 2L, maxMessageBytes));
+			input.flip();
+			bigger.put(input);
+			input = bigger;
+		}
+		if (channel.read(input) == -1)
+			throw new EOFException("client closed the connection");
+		lastReadNanos = System.nanoTime();
+		if (input.position() < retryAt)
+			return new ArrayList<>(); // Too few new bytes to parse the large message again
+		return decodeAll();
+	}
+
+	/**
+	 * Parses the incomplete message that was put off by {@link #read()}, called by the I/O thread
+	 * when the client sent nothing for a while, as the message may be complete already
+	 *
+	 * @return the messages that were completed (may be empty)
+	 * @throws IOException if the client sent corrupted data
+	 */
+	List<Object> readDeferred() throws IOException {
+		if (!isDeferred())
+			return new ArrayList<>();
+		return decodeAll();
+	}
+
+	/**
+	 * @return true if bytes arrived after the incomplete message was last parsed and it was put off
+	 */
+	boolean isDeferred() {
+		return retryAt > 0 && input.position() > parsedAt;
+	}
+
+	/**
+	 * @return System.nanoTime() of the last read from the channel
+	 */
+	long getLastReadNanos() {
+		return lastReadNanos;
+	}
+
+	/**
+	 * Decodes all the complete messages of the input buffer
+	 *
+	 * @return the messages (may be empty)
+	 * @throws IOException if the client sent corrupted data
+	 */
+	private List<Object> decodeAll() throws IOException {
+		List<Object> messages = new ArrayList<>();
+		retryAt = 0;
+		input.flip();
+		try {
+			if (!headerRead) {
+				if (input.remaining() < STREAM_HEADER.length)
+					return messages;
+				for (byte b : STREAM_HEADER) {
+					if (input.get() != b)
+						throw new StreamCorruptedException("invalid stream header");
+				}
+				headerRead = true;
+			}
+			while (input.hasRemaining()) {
+				int start = input.position();
+				try {
+					messages.add(decode());
+				} catch (IncompleteMessageException e) {
+					input.position(start); // Wait for the rest of the message
+					int buffered = input.limit() - start;
+					parsedAt = buffered; // The message starts the buffer after compact
+					if (buffered >= DEFER_THRESHOLD)
+						retryAt = (int) Math.min(buffered * 2L, maxMessageBytes);
+					break;
+				}
+			}
+		} finally {
+			input.compact();
+		}
+		return messages;
+	}
+
+	/**
+	 * Decodes one message from the input buffer
+	 *
+	 * @return the message
+	 * @throws IOException
+	 */
+	private Object decode() throws IOException {
+		InputStream bufferStream = new InputStream() {
+			@Override
+			public int read() throws IOException {
+				if (!input.hasRemaining())
+					throw new IncompleteMessageException();
+				return input.get() & 0xFF;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				if (len == 0)
+					return 0;
+				if (!input.hasRemaining())
+					throw new IncompleteMessageException();
+				int n = Math.min(len, input.remaining());
+				input.get(b, off, n);
+				return n;
+			}
+
+			@Override
+			public int available() {
+				return input.remaining();
+			}
+		};
+		// Every message starts after a stream reset, so a new stream with the header decodes it
+		ObjectInputStream in = new ObjectInputStream(
+				new SequenceInputStream(new ByteArrayInputStream(STREAM_HEADER), bufferStream));
+		try {
+			return in.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException("unknown class received", e);
+		}
+	}
+
+	/**
+	 * Writes the queued messages, called by the I/O thread when the channel is writable
+	 *
+	 * @throws IOException
+	 */
+	synchronized void write() throws IOException {
+		while (!output.isEmpty()) {
+			ByteBuffer buffer = output.peek();
+			channel.write(buffer);
+			if (buffer.hasRemaining())
+				return; // Socket buffer is full, continue when it is writable again
+			output.poll();
+		}
+		key.interestOps(SelectionKey.OP_READ);
+	}
+
+	/**
+	 * Closes the channel
+	 */
+	synchronized void close() {
+		closed = true;
+		output.clear();
+		if (key != null)
+			key.cancel();
+		try {
+			channel.close();
+		} catch (IOException e) {
+		}
+	}
+
+	/**
+	 * @return true if the connection was closed
+	 */
+	synchronized boolean isClosed() {
+		return closed;
+	}
+}
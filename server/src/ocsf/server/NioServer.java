@@ -0,0 +1,275 @@
+package ocsf.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Selector based transport for an {@link AbstractServer}.
+ *
+ * Instead of a thread per client, a fixed number of I/O threads serve all the clients:
+ * an accept thread hands every new connection to one of the I/O threads (round robin),
+ * and each I/O thread waits on its own Selector for reads and writes of its connections.
+ * The decoded messages are passed to the server on a single dispatcher thread, so the
+ * server callbacks run in the same order and with the same guarantees as with the thread
+ * per client transport.
+ *
+ * When a large message arrives in many reads, its connection puts off parsing it (see
+ * {@link NioConnection}); the I/O thread parses it once the client sent nothing for
+ * {@value #IDLE_PARSE_MILLIS} ms, as the message may be complete by then.
+ */
+public class NioServer {
+	private static final long IDLE_PARSE_MILLIS = 50;
+	private final AbstractServer server;
+	private final int port;
+	private final int maxMessageBytes;
+	private final IoThread[] ioThreads;
+	private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "nio-dispatcher");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private ServerSocketChannel serverChannel;
+	private Thread acceptThread;
+	private volatile boolean running = false;
+	private int nextIoThread = 0;
+
+	/**
+	 * Constructor of the class
+	 *
+	 * @param server          the server that handles the messages
+	 * @param port            the port to listen on
+	 * @param ioThreads       number of I/O threads
+	 * @param maxMessageBytes the largest message a client may send, bigger ones close its connection
+	 */
+	public NioServer(AbstractServer server, int port, int ioThreads, int maxMessageBytes) {
+		this.server = server;
+		this.port = port;
+		this.maxMessageBytes = maxMessageBytes;
+		this.ioThreads = new IoThread[Math.max(1, ioThreads)];
+	}
+
+	/**
+	 * Opens the server socket and starts the accept and I/O threads
+	 *
+	 * @throws IOException if the port can't be opened
+	 */
+	public void listen() throws IOException {
+		if (running)
+			return;
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress(port));
+		for (int i = 0; i < ioThreads.length; i++) {
+			ioThreads[i] = new IoThread(i);
+			ioThreads[i].start();
+		}
+		running = true;
+		acceptThread = new Thread(this::acceptLoop, "nio-accept");
+		acceptThread.start();
+		dispatcher.execute(server::serverStarted);
+	}
+
+	/**
+	 * Stops accepting clients and closes all the connections
+	 */
+	public void close() {
+		if (!running)
+			return;
+		running = false;
+		try {
+			serverChannel.close();
+		} catch (IOException e) {
+		}
+		for (IoThread ioThread : ioThreads)
+			ioThread.shutdown();
+		dispatcher.execute(() -> {
+			server.serverStopped();
+			server.serverClosed();
+		});
+		dispatcher.shutdown();
+	}
+
+	/**
+	 * @return true if the server accepts clients
+	 */
+	public boolean isListening() {
+		return running;
+	}
+
+	/**
+	 * Accepts the new clients until the server is closed
+	 */
+	private void acceptLoop() {
+		while (running) {
+			try {
+				SocketChannel channel = serverChannel.accept();
+				channel.configureBlocking(false);
+				channel.socket().setTcpNoDelay(true);
+				ioThreads[nextIoThread].register(new NioConnection(channel, maxMessageBytes), channel);
+				nextIoThread = (nextIoThread + 1) % ioThreads.length;
+			} catch (IOException e) {
+				if (running) {
+					System.out.println("NioServer accept error");
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Passes the messages of a connection to the server on the dispatcher thread
+	 *
+	 * @param connection the connection
+	 * @param messages   the decoded messages
+	 */
+	private void dispatch(NioConnection connection, List<Object> messages) {
+		ConnectionToClient client = connection.getClient();
+		dispatcher.execute(() -> {
+			for (Object msg : messages)
+				server.receiveMessageFromClient(msg, client);
+		});
+	}
+
+	/**
+	 * Closes a connection after a read or write error and notifies the server
+	 *
+	 * @param connection the connection
+	 * @param exception  the error
+	 */
+	private void fail(NioConnection connection, Exception exception) {
+		if (connection.isClosed())
+			return;
+		connection.close();
+		ConnectionToClient client = connection.getClient();
+		dispatcher.execute(() -> server.clientException(client, exception));
+	}
+
+	/**
+	 * An I/O thread, serves the connections registered on its Selector
+	 */
+	private class IoThread extends Thread {
+		private final Selector selector;
+		private final ConcurrentLinkedQueue<Runnable> registrations = new ConcurrentLinkedQueue<>();
+		private final Set<NioConnection> deferred = new HashSet<>(); // Connections that put off parsing a message
+		private volatile boolean active = true;
+
+		IoThread(int index) throws IOException {
+			super("nio-io-" + index);
+			setDaemon(true);
+			selector = Selector.open();
+		}
+
+		/**
+		 * Registers a new connection, the registration itself runs on this thread
+		 *
+		 * @param connection the connection
+		 * @param channel    its channel
+		 */
+		void register(NioConnection connection, SocketChannel channel) {
+			registrations.add(() -> {
+				try {
+					SelectionKey key = channel.register(selector, SelectionKey.OP_READ, connection);
+					ConnectionToClient client = new ConnectionToClient(connection, server);
+					connection.attach(key, client);
+					dispatcher.execute(() -> server.clientConnected(client));
+				} catch (IOException e) {
+					System.out.println("NioServer register error");
+					e.printStackTrace();
+					connection.close();
+				}
+			});
+			selector.wakeup();
+		}
+
+		/**
+		 * Closes all the connections of this thread and stops it
+		 */
+		void shutdown() {
+			active = false;
+			selector.wakeup();
+		}
+
+		/**
+		 * Parses the put off messages of the connections whose client sent nothing for a while
+		 */
+		private void parseIdle() {
+			long now = System.nanoTime();
+			Iterator<NioConnection> connections = deferred.iterator();
+			while (connections.hasNext()) {
+				NioConnection connection = connections.next();
+				if (connection.isClosed() || !connection.isDeferred()) {
+					connections.remove();
+					continue;
+				}
+				if (now - connection.getLastReadNanos() < TimeUnit.MILLISECONDS.toNanos(IDLE_PARSE_MILLIS))
+					continue;
+				connections.remove();
+				try {
+					List<Object> messages = connection.readDeferred();
+					if (!messages.isEmpty())
+						dispatch(connection, messages);
+				} catch (Exception e) {
+					fail(connection, e);
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (active) {
+					selector.select(deferred.isEmpty() ? 0 : IDLE_PARSE_MILLIS);
+					Runnable registration;
+					while ((registration = registrations.poll()) != null)
+						registration.run();
+					Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+					while (keys.hasNext()) {
+						SelectionKey key = keys.next();
+						keys.remove();
+						NioConnection connection = (NioConnection) key.attachment();
+						try {
+							if (key.isValid() && key.isReadable()) {
+								List<Object> messages = connection.read();
+								if (!messages.isEmpty())
+									dispatch(connection, messages);
+								if (connection.isDeferred())
+									deferred.add(connection);
+							}
+							if (key.isValid() && key.isWritable())
+								connection.write();
+						} catch (Exception e) {
+							fail(connection, e);
+						}
+					}
+					parseIdle();
+				}
+			} catch (IOException | ClosedSelectorException e) {
+				System.out.println("NioServer I/O thread stopped");
+				e.printStackTrace();
+			} finally {
+				for (SelectionKey key : selector.keys()) {
+					try {
+						((NioConnection) key.attachment()).getClient().close();
+					} catch (Exception e) {
+					}
+				}
+				try {
+					selector.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package ocsf.server;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import logic.*;
+
+/**
+ * Bounded queue of the messages waiting to be written to one client.
+ *
+ * Adding a message never blocks: the messages are written by a shared pool of writer threads,
+ * one writer at a time per client so the order is kept. A slow client therefore only delays
+ * its own messages. When "Changes" messages pile up, the waiting one absorbs the new changes and
+ * keeps only the newest state of every entity (the older states are dropped). When the queue is
+ * full anyway the client can't keep up, it is disconnected and its messages are dropped.
+ */
+class OutboundQueue {
+
+	/**
+	 * Writes one message to the client
+	 */
+	interface MessageWriter {
+		void write(ConnectionToClient client, Object msg) throws IOException;
+	}
+
+	private final ConnectionToClient client;
+	private final Executor writers;
+	private final MessageWriter messageWriter;
+	private final Consumer<ConnectionToClient> slowConsumerHandler;
+	private final int capacity;
+
+	private final ArrayDeque<Object> messages = new ArrayDeque<>();
+	private boolean writing = false;
+	private boolean closed = false;
+	private long droppedChanges = 0;
+
+	/**
+	 * Constructor of the class
+	 *
+	 * @param client              the client the messages are written to
+	 * @param writers             the shared writer threads
+	 * @param messageWriter       writes a message to the client
+	 * @param slowConsumerHandler called once when the queue is full
+	 * @param capacity            maximum number of waiting messages
+	 */
+	OutboundQueue(ConnectionToClient client, Executor writers, MessageWriter messageWriter,
+			Consumer<ConnectionToClient> slowConsumerHandler, int capacity) {
+		this.client = client;
+		this.writers = writers;
+		this.messageWriter = messageWriter;
+		this.slowConsumerHandler = slowConsumerHandler;
+		this.capacity = Math.max(1, capacity);
+	}
+
+	/**
+	 * Adds a message to the queue, never blocks
+	 *
+	 * @param msg the message
+	 * @return false if the message was dropped because the client is too slow or disconnected
+	 */
+	boolean offer(Object msg) {
+		synchronized (this) {
+			if (closed)
+				return false;
+			if (mergeChanges(msg))
+				return true;
+			if (messages.size() < capacity) {
+				messages.add(msg);
+				if (!writing) {
+					writing = true;
+					writers.execute(this::writeAll);
+				}
+				return true;
+			}
+			closed = true;
+			messages.clear();
+		}
+		slowConsumerHandler.accept(client);
+		return false;
+	}
+
+	/**
+	 * Merges a "Changes" message into the "Changes" message that waits at the end of the queue
+	 *
+	 * @param msg the new message
+	 * @return true if the message was merged
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean mergeChanges(Object msg) {
+		if (!isChanges(msg) || messages.isEmpty() || !isChanges(messages.peekLast()))
+			return false;
+		SendObject<ArrayList<ChangeEvent>> waiting = (SendObject<ArrayList<ChangeEvent>>) unwrap(messages.peekLast());
+		List<ChangeEvent> all = new ArrayList<>(waiting.getObj());
+		all.addAll((List<ChangeEvent>) ((SendObject<?>) unwrap(msg)).getObj());
+		List<ChangeEvent> merged = BroadcastCoalescer.merge(all);
+		droppedChanges += all.size() - merged.size();
+		messages.pollLast();
+		messages.add(new SendObject<ArrayList<ChangeEvent>>("Changes", new ArrayList<>(merged)));
+		return true;
+	}
+
+	private static boolean isChanges(Object msg) {
+		msg = unwrap(msg);
+		return msg instanceof SendObject<?> && "Changes".equals(((SendObject<?>) msg).getObjectMessage())
+				&& ((SendObject<?>) msg).getObj() instanceof List<?>;
+	}
+
+	/**
+	 * Returns the message of a shared frame, or the message itself
+	 */
+	private static Object unwrap(Object msg) {
+		return msg instanceof SharedFrame ? ((SharedFrame) msg).getMessage() : msg;
+	}
+
+	/**
+	 * Writes the waiting messages, runs on a writer thread
+	 */
+	private void writeAll() {
+		while (true) {
+			Object msg;
+			synchronized (this) {
+				msg = messages.poll();
+				if (msg == null || closed) {
+					writing = false;
+					return;
+				}
+			}
+			try {
+				messageWriter.write(client, msg);
+			} catch (IOException e) {
+				System.out.println("Failed to write to client " + client.getId() + ": " + e.getMessage());
+				close();
+			}
+		}
+	}
+
+	/**
+	 * Drops the waiting messages and refuses new ones
+	 */
+	synchronized void close() {
+		closed = true;
+		messages.clear();
+	}
+
+	/**
+	 * @return number of messages waiting to be written
+	 */
+	synchronized int depth() {
+		return messages.size();
+	}
+
+	/**
+	 * @return number of changes dropped because a newer state of the same entity was queued
+	 */
+	synchronized long getDroppedChanges() {
+		return droppedChanges;
+	}
+}
@@ -0,0 +1,51 @@
+package ocsf.server;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs the tasks of one client one after the other, on the threads of a shared executor.
+ *
+ * Requests of different clients run concurrently, while the requests of a single client
+ * are handled (and answered) in the order they were received.
+ */
+class SerialExecutor implements Executor {
+	private final Executor executor;
+	private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+	private Runnable active;
+
+	/**
+	 * Constructor of the class
+	 *
+	 * @param executor the shared executor that runs the tasks
+	 */
+	SerialExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Queues a task, it runs after all the tasks queued before it finished
+	 *
+	 * @param task the task
+	 */
+	@Override
+	public synchronized void execute(Runnable task) {
+		tasks.add(() -> {
+			try {
+				task.run();
+			} finally {
+				scheduleNext();
+			}
+		});
+		if (active == null)
+			scheduleNext();
+	}
+
+	/**
+	 * Passes the next queued task to the shared executor
+	 */
+	private synchronized void scheduleNext() {
+		if ((active = tasks.poll()) != null)
+			executor.execute(active);
+	}
+}
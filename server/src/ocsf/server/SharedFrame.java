@@ -0,0 +1,81 @@
+package ocsf.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import logic.*;
+
+/**
+ * A message that is sent to many clients and serialized only once.
+ *
+ * The frame of the message is the object stream of the message without the stream header,
+ * followed by a reset mark, so it can be written to the stream of any client that is at a
+ * message boundary with an empty handle table (see {@link ConnectionToClient#sendFrameToClient}).
+ * One frame is kept for every codec the receiving clients use, in a read-only direct buffer
+ * that all the connections write from.
+ */
+class SharedFrame {
+	private static final int STREAM_HEADER_LENGTH = 4;
+	private static final byte TC_RESET = 0x79;
+
+	private final Object message;
+	private final Map<String, ByteBuffer> frames = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructor of the class
+	 *
+	 * @param message the message, it must not change after the frame was created
+	 */
+	SharedFrame(Object message) {
+		this.message = message;
+	}
+
+	/**
+	 * @return the message of the frame
+	 */
+	Object getMessage() {
+		return message;
+	}
+
+	/**
+	 * Returns the frame of the message for a codec, serializes it on first use
+	 *
+	 * @param codec the codec of the client
+	 * @return a read-only buffer positioned at the start of the frame, private to the caller
+	 * @throws IOException if the message can't be serialized
+	 */
+	ByteBuffer frameFor(WireCodec codec) throws IOException {
+		try {
+			return frames.computeIfAbsent(codec.getName(), name -> encode(codec)).duplicate();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Serializes the message into a new frame
+	 */
+	private ByteBuffer encode(WireCodec codec) {
+		try {
+			Object payload = codec == JavaSerializationCodec.INSTANCE ? message : codec.encode(message);
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+				out.writeObject(payload);
+				out.flush();
+				bytes.write(TC_RESET);
+			}
+			byte[] stream = bytes.toByteArray();
+			ByteBuffer frame = ByteBuffer.allocateDirect(stream.length - STREAM_HEADER_LENGTH);
+			frame.put(stream, STREAM_HEADER_LENGTH, stream.length - STREAM_HEADER_LENGTH);
+			frame.flip();
+			return frame.asReadOnlyBuffer();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
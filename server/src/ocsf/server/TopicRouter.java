@@ -0,0 +1,81 @@
+package ocsf.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import logic.*;
+
+/**
+ * Decides which clients receive a change, based on the topics each client registered.
+ *
+ * The topics are:
+ * "spots"                       - changes of parking spots (gate terminals, guest screen)
+ * "sessions"                    - changes of all parking sessions
+ * "reservations"                - changes of all reservations
+ * "subscribers"                 - changes of all subscribers
+ * "my-sessions:subscriberId"    - changes of the parking sessions of one subscriber
+ * "my-reservations:subscriberId" - changes of the reservations of one subscriber
+ * "admin-all"                   - every change (attendant and manager screens)
+ */
+public class TopicRouter {
+	public static final String SPOTS = "spots";
+	public static final String SESSIONS = "sessions";
+	public static final String RESERVATIONS = "reservations";
+	public static final String SUBSCRIBERS = "subscribers";
+	public static final String MY_SESSIONS = "my-sessions:";
+	public static final String MY_RESERVATIONS = "my-reservations:";
+	public static final String ADMIN_ALL = "admin-all";
+
+	/**
+	 * Returns the topics a change is published to
+	 *
+	 * @param change the change
+	 * @return list of topics
+	 */
+	public static List<String> topicsOf(ChangeEvent change) {
+		List<String> topics = new ArrayList<>();
+		topics.add(ADMIN_ALL);
+		switch (change.getEntityType()) {
+		case PARKING_SPOT:
+			topics.add(SPOTS);
+			break;
+		case PARKING_SESSION:
+			topics.add(SESSIONS);
+			if (change.getEntity() instanceof Parkingsession)
+				topics.add(MY_SESSIONS + ((Parkingsession) change.getEntity()).getSubscriberId());
+			break;
+		case RESERVATION:
+			topics.add(RESERVATIONS);
+			if (change.getEntity() instanceof Reservation)
+				topics.add(MY_RESERVATIONS + ((Reservation) change.getEntity()).getSubscriberId());
+			break;
+		case SUBSCRIBER:
+			topics.add(SUBSCRIBERS);
+			break;
+		}
+		return topics;
+	}
+
+	/**
+	 * Returns the changes that match at least one of the registered topics
+	 *
+	 * @param changes the changes to filter
+	 * @param topics  the topics registered by a client, null if the client never registered
+	 * @return the changes the client should receive (all of them for a client without topics)
+	 */
+	public static ArrayList<ChangeEvent> filter(List<ChangeEvent> changes, Set<String> topics) {
+		if (topics == null) // Clients that never registered topics receive everything
+			return new ArrayList<>(changes);
+		ArrayList<ChangeEvent> filtered = new ArrayList<>();
+		for (ChangeEvent change : changes) {
+			for (String topic : topicsOf(change)) {
+				if (topics.contains(topic)) {
+					filtered.add(change);
+					break;
+				}
+			}
+		}
+		return filtered;
+	}
+}
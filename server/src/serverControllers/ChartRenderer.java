@@ -0,0 +1,403 @@
+package serverControllers;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Draws the charts of the server reports (bar, stacked bar, pie and line charts) with Java2D.
+ *
+ * The charts are drawn straight on a {@link Graphics2D}, without JavaFX, so they can be rendered
+ * on any thread and on a server without a display (java.awt.headless). The class has no state,
+ * several reports can render their charts at the same time.
+ *
+ * The values are counts, the value axis has whole number ticks.
+ */
+public class ChartRenderer {
+	private static final Color[] PALETTE = { new Color(0xF3622D), new Color(0xFBA71B), new Color(0x57B757),
+			new Color(0x41A9C9), new Color(0x4258C9), new Color(0x9A42C8), new Color(0xC84164),
+			new Color(0x888888) };
+	private static final Color GRID_COLOR = new Color(0xE0E0E0);
+	private static final Color AXIS_COLOR = new Color(0x606060);
+	private static final Font TITLE_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 18);
+	private static final Font LABEL_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 13);
+	private static final Font TICK_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 11);
+	private static final int MARGIN = 20;
+	private static final int VALUE_TICKS = 10; // Maximum number of ticks on the value axis
+
+	private enum Kind {
+		BAR, STACKED_BAR, LINE
+	}
+
+	private ChartRenderer() {
+	}
+
+	/**
+	 * Renders a bar chart with one bar per category
+	 *
+	 * @param title      chart title
+	 * @param xAxisLabel label of the category axis
+	 * @param yAxisLabel label of the value axis
+	 * @param data       the value of every category, in the order of the bars
+	 * @param width      width of the image
+	 * @param height     height of the image
+	 * @return the chart
+	 */
+	public static BufferedImage barChart(String title, String xAxisLabel, String yAxisLabel,
+			Map<String, Integer> data, int width, int height) {
+		Map<String, Map<String, Integer>> series = new LinkedHashMap<>();
+		series.put(yAxisLabel, data);
+		return render(width, height, g -> drawCategoryChart(g, width, height, Kind.BAR, title, xAxisLabel,
+				yAxisLabel, series));
+	}
+
+	/**
+	 * Renders a stacked bar chart, the bar of a category is the sum of the values of every series
+	 *
+	 * @param title      chart title
+	 * @param xAxisLabel label of the category axis
+	 * @param yAxisLabel label of the value axis
+	 * @param series     the values of every series by category, the series are stacked in this order
+	 * @param width      width of the image
+	 * @param height     height of the image
+	 * @return the chart
+	 */
+	public static BufferedImage stackedBarChart(String title, String xAxisLabel, String yAxisLabel,
+			Map<String, Map<String, Integer>> series, int width, int height) {
+		return render(width, height, g -> drawCategoryChart(g, width, height, Kind.STACKED_BAR, title, xAxisLabel,
+				yAxisLabel, series));
+	}
+
+	/**
+	 * Renders a line chart with one line per series
+	 *
+	 * @param title      chart title
+	 * @param xAxisLabel label of the category axis
+	 * @param yAxisLabel label of the value axis
+	 * @param series     the values of every series by category
+	 * @param width      width of the image
+	 * @param height     height of the image
+	 * @return the chart
+	 */
+	public static BufferedImage lineChart(String title, String xAxisLabel, String yAxisLabel,
+			Map<String, Map<String, Integer>> series, int width, int height) {
+		return render(width, height, g -> drawCategoryChart(g, width, height, Kind.LINE, title, xAxisLabel,
+				yAxisLabel, series));
+	}
+
+	/**
+	 * Renders a pie chart, the legend shows the value and the percentage of every slice
+	 *
+	 * @param title  chart title
+	 * @param data   the value of every slice
+	 * @param width  width of the image
+	 * @param height height of the image
+	 * @return the chart
+	 */
+	public static BufferedImage pieChart(String title, Map<String, Integer> data, int width, int height) {
+		return render(width, height, g -> drawPieChart(g, width, height, title, data));
+	}
+
+	/**
+	 * Encodes a chart as PNG
+	 *
+	 * @param image the chart
+	 * @return the PNG bytes
+	 * @throws IOException if the image can't be encoded
+	 */
+	public static byte[] toPng(BufferedImage image) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		return out.toByteArray();
+	}
+
+	@FunctionalInterface
+	private interface Drawing {
+		void draw(Graphics2D g);
+	}
+
+	/**
+	 * Draws on a new white image
+	 */
+	private static BufferedImage render(int width, int height, Drawing drawing) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		try {
+			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+			g.setColor(Color.WHITE);
+			g.fillRect(0, 0, width, height);
+			drawing.draw(g);
+		} finally {
+			g.dispose();
+		}
+		return image;
+	}
+
+	/**
+	 * Draws a bar, stacked bar or line chart: title, legend when there are several series,
+	 * grid, axes with their labels and the data
+	 */
+	private static void drawCategoryChart(Graphics2D g, int width, int height, Kind kind, String title,
+			String xAxisLabel, String yAxisLabel, Map<String, Map<String, Integer>> series) {
+		Set<String> categorySet = new LinkedHashSet<>();
+		for (Map<String, Integer> values : series.values())
+			categorySet.addAll(values.keySet());
+		List<String> categories = new ArrayList<>(categorySet);
+		List<String> names = new ArrayList<>(series.keySet());
+
+		int max = 0;
+		for (String category : categories) {
+			int sum = 0;
+			for (Map<String, Integer> values : series.values()) {
+				int value = values.getOrDefault(category, 0);
+				sum += value;
+				max = Math.max(max, value);
+			}
+			if (kind == Kind.STACKED_BAR)
+				max = Math.max(max, sum);
+		}
+		int step = tickStep(max);
+		int top = ((max / step) + 1) * step; // Same headroom as the JavaFX axis (max + 1 tick)
+
+		int y = drawTitle(g, width, title);
+		int bottom = height - MARGIN;
+		if (names.size() > 1)
+			bottom = drawLegend(g, width, bottom, names) - 6;
+
+		g.setFont(TICK_FONT);
+		FontMetrics ticks = g.getFontMetrics();
+		g.setFont(LABEL_FONT);
+		FontMetrics labels = g.getFontMetrics();
+		int tickWidth = ticks.stringWidth(String.valueOf(top));
+		int categoryLabelWidth = 0;
+		for (String category : categories)
+			categoryLabelWidth = Math.max(categoryLabelWidth, ticks.stringWidth(category));
+
+		int plotLeft = MARGIN + labels.getHeight() + tickWidth + 8;
+		int plotRight = width - MARGIN;
+		int plotTop = y + 10;
+		int slot = categories.isEmpty() ? 0 : (plotRight - plotLeft) / categories.size();
+		boolean rotate = categoryLabelWidth + 4 > slot;
+		int categoryLabelHeight = rotate ? categoryLabelWidth : ticks.getHeight();
+		int plotBottom = bottom - labels.getHeight() - categoryLabelHeight - 10;
+		double scale = (plotBottom - plotTop) / (double) top;
+
+		// Grid and value axis
+		g.setFont(TICK_FONT);
+		for (int value = 0; value <= top; value += step) {
+			int ly = plotBottom - (int) Math.round(value * scale);
+			g.setColor(GRID_COLOR);
+			g.drawLine(plotLeft, ly, plotRight, ly);
+			g.setColor(AXIS_COLOR);
+			String text = String.valueOf(value);
+			g.drawString(text, plotLeft - 6 - ticks.stringWidth(text), ly + ticks.getAscent() / 2 - 1);
+		}
+		g.drawLine(plotLeft, plotTop, plotLeft, plotBottom);
+		g.drawLine(plotLeft, plotBottom, plotRight, plotBottom);
+
+		// Category labels, every n-th one when even the rotated labels do not fit
+		int every = rotate ? Math.max(1, (int) Math.ceil((ticks.getHeight() + 2) / (double) Math.max(1, slot))) : 1;
+		for (int i = 0; i < categories.size(); i += every) {
+			String text = categories.get(i);
+			int cx = plotLeft + slot * i + slot / 2;
+			if (rotate) {
+				AffineTransform saved = g.getTransform();
+				g.translate(cx + ticks.getAscent() / 2, plotBottom + 6);
+				g.rotate(Math.PI / 2);
+				g.drawString(text, 0, 0);
+				g.setTransform(saved);
+			} else {
+				g.drawString(text, cx - ticks.stringWidth(text) / 2, plotBottom + 4 + ticks.getAscent());
+			}
+		}
+
+		// Axis labels
+		g.setFont(LABEL_FONT);
+		g.setColor(Color.BLACK);
+		if (xAxisLabel != null)
+			g.drawString(xAxisLabel, (plotLeft + plotRight - labels.stringWidth(xAxisLabel)) / 2,
+					bottom - labels.getDescent());
+		if (yAxisLabel != null) {
+			AffineTransform saved = g.getTransform();
+			g.translate(MARGIN + labels.getAscent(), (plotTop + plotBottom + labels.stringWidth(yAxisLabel)) / 2);
+			g.rotate(-Math.PI / 2);
+			g.drawString(yAxisLabel, 0, 0);
+			g.setTransform(saved);
+		}
+
+		// Data
+		int barWidth = Math.max(1, slot - Math.max(2, slot / 5)); // A gap of a fifth of the slot between bars
+		if (kind == Kind.LINE)
+			g.setStroke(new BasicStroke(2f));
+		int[] stacked = new int[categories.size()];
+		for (int s = 0; s < names.size(); s++) {
+			Map<String, Integer> values = series.get(names.get(s));
+			g.setColor(PALETTE[s % PALETTE.length]);
+			Path2D.Double line = new Path2D.Double();
+			for (int i = 0; i < categories.size(); i++) {
+				int value = values.getOrDefault(categories.get(i), 0);
+				int x = plotLeft + slot * i + (slot - barWidth) / 2;
+				if (kind == Kind.LINE) {
+					double px = plotLeft + slot * i + slot / 2.0;
+					double py = plotBottom - value * scale;
+					if (i == 0)
+						line.moveTo(px, py);
+					else
+						line.lineTo(px, py);
+					g.fillOval((int) px - 3, (int) py - 3, 6, 6);
+				} else if (kind == Kind.STACKED_BAR) {
+					int from = plotBottom - (int) Math.round(stacked[i] * scale);
+					stacked[i] += value;
+					int to = plotBottom - (int) Math.round(stacked[i] * scale);
+					g.fillRect(x, to, barWidth, from - to);
+				} else {
+					int barWidthOfSeries = Math.max(1, barWidth / names.size());
+					int h = (int) Math.round(value * scale);
+					g.fillRect(x + barWidthOfSeries * s, plotBottom - h, barWidthOfSeries, h);
+				}
+			}
+			if (kind == Kind.LINE)
+				g.draw(line);
+		}
+	}
+
+	/**
+	 * Draws a pie chart, the slices start at the top and go clockwise
+	 */
+	private static void drawPieChart(Graphics2D g, int width, int height, String title, Map<String, Integer> data) {
+		List<String> names = new ArrayList<>(data.keySet());
+		int total = 0;
+		for (int value : data.values())
+			total += value;
+
+		List<String> legend = new ArrayList<>(names.size());
+		for (String name : names) {
+			int value = data.get(name);
+			legend.add(name + ": " + value + (total == 0 ? "" : " (" + Math.round(value * 100.0 / total) + "%)"));
+		}
+
+		int top = drawTitle(g, width, title) + 10;
+		int bottom = drawLegend(g, width, height - MARGIN, legend) - 10;
+		int diameter = Math.max(10, Math.min(width - 2 * MARGIN, bottom - top));
+		int x = (width - diameter) / 2;
+
+		if (total == 0) {
+			g.setColor(GRID_COLOR);
+			g.fillOval(x, top, diameter, diameter);
+			g.setColor(AXIS_COLOR);
+			g.setFont(LABEL_FONT);
+			String text = "No data";
+			g.drawString(text, (width - g.getFontMetrics().stringWidth(text)) / 2, top + diameter / 2);
+			return;
+		}
+
+		double start = 90;
+		for (int i = 0; i < names.size(); i++) {
+			double extent = -360.0 * data.get(names.get(i)) / total;
+			g.setColor(PALETTE[i % PALETTE.length]);
+			g.fill(new Arc2D.Double(x, top, diameter, diameter, start, extent, Arc2D.PIE));
+			start += extent;
+		}
+		g.setColor(Color.WHITE);
+		g.setStroke(new BasicStroke(1.5f));
+		start = 90;
+		for (int i = 0; i < names.size(); i++) {
+			double extent = -360.0 * data.get(names.get(i)) / total;
+			if (extent != 0)
+				g.draw(new Arc2D.Double(x, top, diameter, diameter, start, extent, Arc2D.PIE));
+			start += extent;
+		}
+	}
+
+	/**
+	 * Draws the title centered at the top
+	 *
+	 * @return the y under the title
+	 */
+	private static int drawTitle(Graphics2D g, int width, String title) {
+		if (title == null)
+			return MARGIN;
+		g.setFont(TITLE_FONT);
+		g.setColor(Color.BLACK);
+		FontMetrics metrics = g.getFontMetrics();
+		g.drawString(title, (width - metrics.stringWidth(title)) / 2, MARGIN + metrics.getAscent());
+		return MARGIN + metrics.getHeight();
+	}
+
+	/**
+	 * Draws the legend centered on one or more lines that end at the bottom
+	 *
+	 * @return the y above the legend
+	 */
+	private static int drawLegend(Graphics2D g, int width, int bottom, List<String> entries) {
+		g.setFont(LABEL_FONT);
+		FontMetrics metrics = g.getFontMetrics();
+		int box = metrics.getAscent();
+		int gap = 16;
+
+		List<List<Integer>> lines = new ArrayList<>();
+		List<Integer> line = new ArrayList<>();
+		int lineWidth = 0;
+		for (int i = 0; i < entries.size(); i++) {
+			int entryWidth = box + 4 + metrics.stringWidth(entries.get(i));
+			if (!line.isEmpty() && lineWidth + gap + entryWidth > width - 2 * MARGIN) {
+				lines.add(line);
+				line = new ArrayList<>();
+				lineWidth = 0;
+			}
+			lineWidth += (line.isEmpty() ? 0 : gap) + entryWidth;
+			line.add(i);
+		}
+		if (!line.isEmpty())
+			lines.add(line);
+
+		int y = bottom - lines.size() * metrics.getHeight();
+		for (int l = 0; l < lines.size(); l++) {
+			int total = 0;
+			for (int i : lines.get(l))
+				total += (total == 0 ? 0 : gap) + box + 4 + metrics.stringWidth(entries.get(i));
+			int x = (width - total) / 2;
+			int baseline = y + l * metrics.getHeight() + metrics.getAscent();
+			for (int i : lines.get(l)) {
+				g.setColor(PALETTE[i % PALETTE.length]);
+				g.fillRect(x, baseline - box + 1, box, box);
+				g.setColor(Color.BLACK);
+				g.drawString(entries.get(i), x + box + 4, baseline);
+				x += box + 4 + metrics.stringWidth(entries.get(i)) + gap;
+			}
+		}
+		return y;
+	}
+
+	/**
+	 * @return a step of 1, 2 or 5 times a power of ten that gives at most VALUE_TICKS ticks up to max
+	 */
+	private static int tickStep(int max) {
+		int step = 1;
+		while (true) {
+			for (int factor : new int[] { 1, 2, 5 }) {
+				if (max / (step * factor) < VALUE_TICKS)
+					return step * factor;
+			}
+			step *= 10;
+		}
+	}
+}
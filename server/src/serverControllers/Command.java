@@ -0,0 +1,226 @@
+package serverControllers;
+
+import java.io.Serializable;
+
+import jdbc.ParkingStore;
+import logic.*;
+
+/**
+ * The requests that the server knows, each one is an action with the type of its payload.
+ *
+ * A command is found by the {@link CommandRegistry} with a map lookup instead of going through
+ * the action string checks of {@link SendObjectHandler}. Commands of the action "Get" and
+ * "Check" with a String payload are also told apart by the payload (the selector).
+ * A verb command matches any action of its payload type that starts with its action
+ * (for example "Create Reservation: ..." with a Reservation).
+ */
+enum Command {
+	// Integer payload
+	CHECK_NEW_PARKING_CODE("Check new Parking Code", Integer.class,
+			(action, payload, con) -> SendObjectHandler.checkNewParkingCode((Integer) payload, con)),
+	CHECK_RECEIVED_PARKING_CODE("Check received Parking Code", Integer.class,
+			(action, payload, con) -> SendObjectHandler.checkReceivedParkingCode((Integer) payload, con)),
+	UPDATE_SPOT_TO_FREE("Update spot to Free", Integer.class,
+			(action, payload, con) -> SendObjectHandler.updateSpotToFree((Integer) payload, con)),
+	GET_SUBSCRIBER_RESERVATIONS("GetSubscribersResesrvations", Integer.class,
+			(action, payload, con) -> SendObjectHandler.getSubscriberReservations((Integer) payload, con)),
+	GET_HISTORY("Get history", Integer.class,
+			(action, payload, con) -> SendObjectHandler.getHistory((Integer) payload, con)),
+	GET_ACTIVE_PARKINGSESSIONS("Get Active Parkingsessions", Integer.class,
+			(action, payload, con) -> SendObjectHandler.getActiveParkingsessions((Integer) payload, con)),
+	GET_PARKINGSESSION("Get Parkingsession", Integer.class,
+			(action, payload, con) -> SendObjectHandler.getParkingsession((Integer) payload, con)),
+	GET_RESERVATION_WITH_CODE("Get reservation with code", Integer.class,
+			(action, payload, con) -> SendObjectHandler.getReservationWithCode((Integer) payload, con)),
+	GET_RESERVATION_WITH_ID("Get reservation with id", Integer.class,
+			(action, payload, con) -> SendObjectHandler.getReservationWithId((Integer) payload, con)),
+
+	// String payload
+	CHECK_AVAILABILITY("Check", "Availability", false,
+			(action, payload, con) -> SendObjectHandler.checkAvailability(con)),
+	GET_FREE_SPOT("Get", "Free spot", false,
+			(action, payload, con) -> SendObjectHandler.getFreeSpot(con)),
+	GET_ALL_RESERVATIONS("Get", "all reservations", false,
+			(action, payload, con) -> SendObjectHandler.getAllReservations(con)),
+	GET_ALL_SUBSCRIBERS("Get", "all subscribers", false,
+			(action, payload, con) -> SendObjectHandler.getAllSubscribers(con)),
+	GET_ALL_PARKINGSESSIONS("Get", "all parking sessions", false,
+			(action, payload, con) -> SendObjectHandler.getAllParkingsessions(con)),
+	GET_ALL_PARKING_SPOTS("Get", "all parking spots", false,
+			(action, payload, con) -> SendObjectHandler.getAllParkingSpots(con)),
+	GET_MONTHLY_REPORT("Get", "MonthlyReport_", true,
+			(action, payload, con) -> SendObjectHandler.getMonthlyReport((String) payload)),
+	GET_ACTIVE_SESSIONS_REPORT("Get ActiveSessions", String.class,
+			(action, payload, con) -> SendObjectHandler.getActiveSessionsReport((String) payload)),
+	GET_SUBSCRIBERS_REPORT("Get Subscribers Report", String.class,
+			(action, payload, con) -> SendObjectHandler.getSubscribersReport((String) payload)),
+	GET_SUBSCRIBER_REPORT("Get Subscriber Report", String.class,
+			(action, payload, con) -> SendObjectHandler.getSubscriberReport((String) payload)),
+	GET_RESERVATION_REPORT("Get Reservation Report", String.class,
+			(action, payload, con) -> SendObjectHandler.getReservationReport((String) payload)),
+
+	// Entity payload
+	CONNECT("connect", subscriber.class,
+			(action, payload, con) -> SendObjectHandler.connect(payload, con)),
+	CONNECT_GUEST("connect", null,
+			(action, payload, con) -> SendObjectHandler.connect(payload, con)),
+	LOGIN("login", subscriber.class, false,
+			(action, payload, con) -> {
+				SendObjectHandler.updateLoginState(payload, con);
+				return null;
+			}),
+	LOGGEDOFF("loggedoff", subscriber.class, false,
+			(action, payload, con) -> {
+				SendObjectHandler.updateLoginState(payload, con);
+				return null;
+			}),
+	UPDATE_TIME_IN_SESSION("Update time in session", Parkingsession.class, false,
+			(action, payload, con) -> SendObjectHandler.updateTimeInSession((Parkingsession) payload, con)),
+	UPDATE_SESSION("Update Session", Parkingsession.class,
+			(action, payload, con) -> SendObjectHandler.handleUpdateAction(payload, con)),
+	UPDATE_RESERVATION("Update", Reservation.class,
+			(action, payload, con) -> SendObjectHandler.handleUpdateAction(payload, con)),
+	UPDATE_SUBSCRIBER("Update", subscriber.class,
+			(action, payload, con) -> SendObjectHandler.handleUpdateAction(payload, con)),
+	CREATE_PARKINGSESSION("Create new", Parkingsession.class,
+			(action, payload, con) -> SendObjectHandler.handleCreateAction(payload, con)),
+	CREATE_SUBSCRIBER("Create new Subscriber", subscriber.class,
+			(action, payload, con) -> SendObjectHandler.handleCreateAction(payload, con)),
+	CREATE_RESERVATION("Create", Reservation.class, null, false, true, true,
+			(action, payload, con) -> SendObjectHandler.handleCreateAction(payload, con)),
+	SEND_PARKING_CODE("Send Parking Code by Email/SMS", subscriber.class, false,
+			(action, payload, con) -> {
+				SendObjectHandler.send(action, payload, con);
+				return null;
+			}),
+	SEND_LATE_MESSAGE("Send late message by Email/SMS", subscriber.class, false,
+			(action, payload, con) -> {
+				SendObjectHandler.send(action, payload, con);
+				return null;
+			}),
+	GET_PAGE("Get page", PageRequest.class,
+			(action, payload, con) -> SendObjectHandler.getPage((PageRequest) payload, con)),
+	FILE_TO_SERVER("File to server", FileTransferMessage.class, false,
+			(action, payload, con) -> {
+				SendObjectHandler.saveFile(payload);
+				return null;
+			});
+
+	/**
+	 * Runs the operation of a command
+	 */
+	@FunctionalInterface
+	interface Handler {
+		/**
+		 * @param action  the action of the request
+		 * @param payload the payload of the request
+		 * @param con     a ParkingStore instance
+		 * @return the result of the operation
+		 * @throws Exception if the operation fails
+		 */
+		Object handle(String action, Serializable payload, ParkingStore con) throws Exception;
+	}
+
+	private final String action;
+	private final Class<?> payloadType;
+	private final String selector;
+	private final boolean prefixSelector;
+	private final boolean verb;
+	private final boolean defineReply;
+	private final Handler handler;
+
+	/**
+	 * Command with an exact action whose result goes through the reply definer
+	 */
+	Command(String action, Class<?> payloadType, Handler handler) {
+		this(action, payloadType, null, false, false, true, handler);
+	}
+
+	/**
+	 * Command with an exact action
+	 *
+	 * @param defineReply false if the result is the reply as is (or there is no reply)
+	 */
+	Command(String action, Class<?> payloadType, boolean defineReply, Handler handler) {
+		this(action, payloadType, null, false, false, defineReply, handler);
+	}
+
+	/**
+	 * Command of an action with a String payload that is told apart by the payload
+	 *
+	 * @param selector       the payload that selects the command
+	 * @param prefixSelector true if the payload only has to start with the selector
+	 */
+	Command(String action, String selector, boolean prefixSelector, Handler handler) {
+		this(action, String.class, selector, prefixSelector, false, true, handler);
+	}
+
+	/**
+	 * @param action         the action, or its first word for a verb command
+	 * @param payloadType    the class of the payload, null for a request without a payload
+	 * @param selector       the payload that selects the command, or null
+	 * @param prefixSelector true if the payload only has to start with the selector
+	 * @param verb           true if the command matches any action that starts with its action
+	 * @param defineReply    true if the result goes through the reply definer
+	 * @param handler        the operation of the command
+	 */
+	Command(String action, Class<?> payloadType, String selector, boolean prefixSelector, boolean verb,
+			boolean defineReply, Handler handler) {
+		this.action = action;
+		this.payloadType = payloadType;
+		this.selector = selector;
+		this.prefixSelector = prefixSelector;
+		this.verb = verb;
+		this.defineReply = defineReply;
+		this.handler = handler;
+	}
+
+	/**
+	 * @return the action of the command
+	 */
+	String getAction() {
+		return action;
+	}
+
+	/**
+	 * @return the class of the payload, null for a request without a payload
+	 */
+	Class<?> getPayloadType() {
+		return payloadType;
+	}
+
+	/**
+	 * @return the payload that selects the command, or null
+	 */
+	String getSelector() {
+		return selector;
+	}
+
+	/**
+	 * @return true if the payload only has to start with the selector
+	 */
+	boolean isPrefixSelector() {
+		return prefixSelector;
+	}
+
+	/**
+	 * @return true if the command matches any action that starts with its verb
+	 */
+	boolean isVerb() {
+		return verb;
+	}
+
+	/**
+	 * @return true if the result goes through the reply definer of {@link SendObjectHandler}
+	 */
+	boolean definesReply() {
+		return defineReply;
+	}
+
+	/**
+	 * @return the operation of the command
+	 */
+	Handler getHandler() {
+		return handler;
+	}
+}
@@ -0,0 +1,202 @@
+package serverControllers;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jdbc.ParkingStore;
+import logic.SendObject;
+
+/**
+ * Finds the {@link Command} of a request and runs it.
+ *
+ * The commands are kept in a map by "action|payload class" (and "|selector" for the commands
+ * that are told apart by their String payload), so finding a command is one or two map lookups.
+ * Requests that are not found are handled by the action string checks of
+ * {@link SendObjectHandler}, they are counted and each unknown action is printed once.
+ *
+ * The registry also keeps the number of calls, the total time and the failures of every command.
+ */
+public class CommandRegistry {
+
+	/**
+	 * Notified after every command that runs
+	 */
+	public interface CommandListener {
+		/**
+		 * @param command the name of the command
+		 * @param nanos   the time the command took
+		 * @param failed  true if the command threw an exception
+		 */
+		void commandExecuted(String command, long nanos, boolean failed);
+	}
+
+	private static final Map<String, Command> commands = new HashMap<>();
+	private static final Map<String, List<Command>> prefixCommands = new HashMap<>();
+	private static final Map<Command, AtomicLong[]> metrics = new EnumMap<>(Command.class);
+	private static final AtomicLong legacyCount = new AtomicLong();
+	private static final Set<String> unknownActions = ConcurrentHashMap.newKeySet();
+	private static volatile CommandListener listener;
+
+	static {
+		for (Command command : Command.values()) {
+			String key = key(command.getAction(), command.getPayloadType());
+			if (command.isPrefixSelector())
+				prefixCommands.computeIfAbsent(key, k -> new ArrayList<>()).add(command);
+			else if (command.getSelector() != null)
+				commands.put(key + "|" + command.getSelector(), command);
+			else
+				commands.put(key, command);
+			metrics.put(command, new AtomicLong[] { new AtomicLong(), new AtomicLong(), new AtomicLong() });
+		}
+	}
+
+	/**
+	 * Finds the command of a request
+	 *
+	 * @param action  the action of the request
+	 * @param payload the payload of the request
+	 * @return the command, or null if the request is not a known command
+	 */
+	static Command resolve(String action, Object payload) {
+		Class<?> payloadType = payload == null ? null : payload.getClass();
+		String key = key(action, payloadType);
+		Command command;
+		if (payload instanceof String) {
+			command = commands.get(key + "|" + payload);
+			if (command != null)
+				return command;
+			List<Command> prefixed = prefixCommands.get(key);
+			if (prefixed != null) {
+				for (Command candidate : prefixed) {
+					if (((String) payload).startsWith(candidate.getSelector()))
+						return candidate;
+				}
+			}
+		}
+		command = commands.get(key);
+		if (command != null)
+			return command;
+		// Verb commands, for actions that have details after the verb
+		int space = action.indexOf(' ');
+		if (space > 0) {
+			command = commands.get(key(action.substring(0, space), payloadType));
+			if (command != null && command.isVerb())
+				return command;
+		}
+		return null;
+	}
+
+	/**
+	 * Runs a command and records its metrics
+	 *
+	 * @param command the command
+	 * @param action  the action of the request
+	 * @param payload the payload of the request
+	 * @param con     a ParkingStore instance
+	 * @return the reply to the request, or null if there is no reply
+	 * @throws Exception if the command fails
+	 */
+	@SuppressWarnings("unchecked")
+	static <T1 extends Serializable> SendObject<T1> execute(Command command, String action, Serializable payload,
+			ParkingStore con) throws Exception {
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			Object result = command.getHandler().handle(action, payload, con);
+			failed = false;
+			return command.definesReply() ? SendObjectHandler.replyDefiner(result) : (SendObject<T1>) result;
+		} finally {
+			long nanos = System.nanoTime() - start;
+			AtomicLong[] counters = metrics.get(command);
+			counters[0].incrementAndGet();
+			counters[1].addAndGet(nanos);
+			if (failed)
+				counters[2].incrementAndGet();
+			CommandListener current = listener;
+			if (current != null)
+				current.commandExecuted(command.name(), nanos, failed);
+		}
+	}
+
+	/**
+	 * Counts a request that is handled by the action string checks, prints its action the first time
+	 *
+	 * @param action  the action of the request
+	 * @param payload the payload of the request
+	 */
+	static void recordLegacy(String action, Object payload) {
+		legacyCount.incrementAndGet();
+		String key = key(action, payload == null ? null : payload.getClass());
+		if (unknownActions.add(key))
+			System.out.println("No command for action \"" + action + "\" ("
+					+ (payload == null ? "no payload" : payload.getClass().getSimpleName()) + "), using legacy handling");
+	}
+
+	/**
+	 * @param listener notified after every command, null to remove
+	 */
+	public static void setListener(CommandListener listener) {
+		CommandRegistry.listener = listener;
+	}
+
+	/**
+	 * @param command the name of the command
+	 * @return number of times the command ran
+	 */
+	public static long getCount(String command) {
+		return metrics.get(Command.valueOf(command))[0].get();
+	}
+
+	/**
+	 * @param command the name of the command
+	 * @return total time the command ran, in nanoseconds
+	 */
+	public static long getTotalNanos(String command) {
+		return metrics.get(Command.valueOf(command))[1].get();
+	}
+
+	/**
+	 * @param command the name of the command
+	 * @return number of times the command threw an exception
+	 */
+	public static long getFailures(String command) {
+		return metrics.get(Command.valueOf(command))[2].get();
+	}
+
+	/**
+	 * @return number of requests that were handled by the action string checks
+	 */
+	public static long getLegacyCount() {
+		return legacyCount.get();
+	}
+
+	/**
+	 * @return the metrics of the commands that ran, one line per command
+	 */
+	public static String metricsSummary() {
+		StringBuilder summary = new StringBuilder();
+		for (Map.Entry<Command, AtomicLong[]> entry : metrics.entrySet()) {
+			long count = entry.getValue()[0].get();
+			if (count == 0)
+				continue;
+			summary.append(String.format("%s: count=%d avgMs=%.2f failures=%d%n", entry.getKey().name(), count,
+					entry.getValue()[1].get() / 1e6 / count, entry.getValue()[2].get()));
+		}
+		summary.append("legacy: count=").append(legacyCount.get());
+		return summary.toString();
+	}
+
+	/**
+	 * Key of a command in the map
+	 */
+	private static String key(String action, Class<?> payloadType) {
+		return action + "|" + (payloadType == null ? "null" : payloadType.getSimpleName());
+	}
+}
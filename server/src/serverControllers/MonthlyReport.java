@@ -8,61 +8,47 @@ import com.itextpdf.layout.properties.AreaBreakType;
 import com.itextpdf.layout.properties.TextAlignment;
 import com.itextpdf.layout.properties.UnitValue;
 
-import javafx.application.Platform;
-import javafx.scene.Scene;
-import javafx.scene.SnapshotParameters;
-import javafx.scene.chart.BarChart;
-import javafx.scene.chart.CategoryAxis;
-import javafx.scene.chart.NumberAxis;
-import javafx.scene.chart.PieChart;
-import javafx.scene.chart.XYChart;
-import javafx.scene.image.WritableImage;
-
 import com.itextpdf.io.image.ImageData;
 import com.itextpdf.io.image.ImageDataFactory;
-import com.itextpdf.io.source.ByteArrayOutputStream;
 import com.itextpdf.kernel.font.PdfFont;
 import com.itextpdf.kernel.font.PdfFontFactory;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.Serializable;
-import java.lang.reflect.Field;
 import java.time.LocalDate;
 import java.time.Month;
 import java.time.YearMonth;
 import java.time.ZoneId;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
-import java.util.concurrent.CountDownLatch;
-import java.util.stream.Collectors;
-
-import javax.imageio.ImageIO;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
 
-import jdbc.DataBaseQuery;
+import jdbc.ParkingStore;
 import logic.*;
 
 /**
  * Generates a comprehensive monthly PDF report that includes data and visualizations
  * for parking sessions, reservations, subscribers, and parking spots.
  * 
- * The report is generated using data fetched from the database via a {@link DataBaseQuery}
+ * The report is generated using data fetched from the database via a {@link ParkingStore}
  * and includes:
  * 
  * Tabular data for each entity type
  * Bar charts and stacked bar charts for visual representation
  * 
- * Charts are rendered using JavaFX and embedded into the PDF using iText.
+ * Charts are rendered with {@link ChartRenderer} and embedded into the PDF using iText.
+ * The charts and the tables are built in parallel on the common fork-join pool.
  * 
  */
 public class MonthlyReport {
 
-	private DataBaseQuery con;
+	private ParkingStore con;
 	private int year;
 	private Month month;
 	private boolean firstSection = true;
@@ -74,7 +60,7 @@ public class MonthlyReport {
      * @param year  Year of the report.
      * @param month Month of the report.
 	 */
-	public MonthlyReport(DataBaseQuery con, int year, Month month) {
+	public MonthlyReport(ParkingStore con, int year, Month month) {
 		this.con = con;
 		this.year = year;
 		this.month = month;
@@ -83,7 +69,7 @@ public class MonthlyReport {
 	/**
      * Generates a PDF report file summarizing the parking activity of the specified month and year.
      *
-     * It retrieves all relevant data from the database, filters by date, and builds a report containing:
+     * It retrieves the sessions and reservations of the month from the database and builds a report containing:
      * Parking sessions
      * Reservations (used and canceled)
      * Parking spots usage
@@ -91,62 +77,61 @@ public class MonthlyReport {
      * 
      * @param outputPdfFile File to save the PDF report to.
 	 */
-	@SuppressWarnings({ "unchecked" })
 	public void getPDF(File outputPdfFile) {
-		// TODO Auto-generated method stub
-		List<Parkingsession> parkingsessionList = new ArrayList<>();
-		List<ParkingSpot> parkingSpotList = new ArrayList<>();
-		List<subscriber> subscriberList = new ArrayList<>();
-		List<Reservation> reservationList = new ArrayList<>();
-		try {
-			SendObject<Serializable> result = SendObjectHandler
-					.sendObjectHandle(new SendObject<String>("Get", "all parking sessions"), con);
-			parkingsessionList = (List<Parkingsession>) result.getObj();
-			result = SendObjectHandler.sendObjectHandle(new SendObject<String>("Get", "all parking spots"), con);
-			parkingSpotList = (List<ParkingSpot>) result.getObj();
-			result = SendObjectHandler.sendObjectHandle(new SendObject<String>("Get", "all subscribers"), con);
-			subscriberList = (List<subscriber>) result.getObj();
-			result = SendObjectHandler.sendObjectHandle(new SendObject<String>("Get", "all reservations"), con);
-			reservationList = (List<Reservation>) result.getObj();
-		} catch (Exception e) {
-			e.printStackTrace();
+		long started = System.nanoTime();
+		// Only the sessions and the reservations of the month are read, not the whole history
+		LocalDate from = LocalDate.of(year, month, 1);
+		LocalDate to = from.plusMonths(1);
+		List<Parkingsession> parkingsessionList = con.getParkingsessionsBetween(from, to);
+		List<Reservation> reservationList = con.getReservationsBetween(from, to);
+		List<ParkingSpot> parkingSpotList = con.getAllParkingSpots();
+		List<subscriber> subscriberList = con.getAllSubscribersList();
+		if (parkingsessionList == null || reservationList == null) {
+			System.out.println("Failed to read the data of " + month + " " + year);
 			return;
 		}
-		// Filter by year and month
-		parkingsessionList = parkingsessionList.stream().filter(ps -> {
-			LocalDate localDate = ps.getInTime().toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-			return localDate.getYear() == year && localDate.getMonth() == month;
-		}).collect(Collectors.toList());
-
-		reservationList = reservationList.stream()
-				.filter(res -> res.getDate().getYear() == year && res.getDate().getMonth() == month)
-				.collect(Collectors.toList());
+		long read = System.nanoTime();
 
 		try {
+			PdfFont boldFont = PdfFontFactory.createFont("Helvetica-Bold");
+			// The charts and the tables are built in parallel, only adding them to the document is sequential
+			CompletableFuture<Image> parkingsessionBarChart = async(
+					() -> createSessionsPerDayChart(parkingsessionList));
+			CompletableFuture<Image> reservationBarChart = async(() -> createReservationsPieChart(reservationList));
+			CompletableFuture<Image> parkingSpotsParkingSessionChart = async(
+					() -> createParkingSessionsPerSpotChart(parkingsessionList, parkingSpotList));
+			CompletableFuture<Image> lateSubscriberChart = async(
+					() -> createLateSubscribersChart(parkingsessionList, subscriberList));
+			CompletableFuture<Table> parkingsessionTable = async(
+					() -> createTable(boldFont, ReportColumns.PARKING_SESSIONS, parkingsessionList));
+			CompletableFuture<Table> reservationTable = async(
+					() -> createTable(boldFont, ReportColumns.RESERVATIONS, reservationList));
+			CompletableFuture<Table> parkingSpotTable = async(
+					() -> createTable(boldFont, ReportColumns.PARKING_SPOTS, parkingSpotList));
+			CompletableFuture<Table> subscriberTable = async(
+					() -> createTable(boldFont, ReportColumns.SUBSCRIBERS, subscriberList));
+
 			PdfWriter writer = new PdfWriter(outputPdfFile);
 			PdfDocument pdfDoc = new PdfDocument(writer);
 			Document document = new Document(pdfDoc);
-			PdfFont boldFont = PdfFontFactory.createFont("Helvetica-Bold");
 
 			// Title
 			document.add(new Paragraph("Monthly Report: " + month + " " + year).setFont(boldFont).setFontSize(20)
 					.setTextAlignment(TextAlignment.CENTER));
 			document.add(
 					new Paragraph("Generated on: " + new Date()).setFontSize(10).setTextAlignment(TextAlignment.RIGHT));
-			// BarCharts creations
-			Image parkingsessionBarChart = createSessionsPerDayChartFX(parkingsessionList);
-			Image reservationBarChart = createReservationsPieChartFX(reservationList);
-			Image parkingSpotsParkingSessionChart = createParkingSessionsPerSpotChart(parkingsessionList,
-					parkingSpotList);
-			Image lateSubscriberChart = createLateSubscribersChartFX(parkingsessionList, subscriberList);
 			// Sections - Tables
-			addSection(document, "Parking Sessions", boldFont, parkingsessionList, parkingsessionBarChart);
-			addSection(document, "Reservations", boldFont, reservationList, reservationBarChart);
-			addSection(document, "Parking Spots", boldFont, parkingSpotList, parkingSpotsParkingSessionChart);
-			addSection(document, "Subscribers", boldFont, subscriberList, lateSubscriberChart);
+			addSection(document, "Parking Sessions", boldFont, parkingsessionTable.join(),
+					parkingsessionBarChart.join());
+			addSection(document, "Reservations", boldFont, reservationTable.join(), reservationBarChart.join());
+			addSection(document, "Parking Spots", boldFont, parkingSpotTable.join(),
+					parkingSpotsParkingSessionChart.join());
+			addSection(document, "Subscribers", boldFont, subscriberTable.join(), lateSubscriberChart.join());
 
 			document.close();
-			System.out.println("Monthly PDF report generated: " + outputPdfFile.getAbsolutePath());
+			long finished = System.nanoTime();
+			System.out.println("Monthly PDF report generated: " + outputPdfFile.getAbsolutePath() + " in "
+					+ (finished - started) / 1_000_000 + " ms (data " + (read - started) / 1_000_000 + " ms)");
 		} catch (Exception e) {
 			System.out.println("Failed to generate PDF:");
 			e.printStackTrace();
@@ -154,17 +139,33 @@ public class MonthlyReport {
 	}
 
 	/**
-     * Adds a section to the PDF document including a title, a table generated from the data,
+     * Runs a step of the report on the fork-join pool.
+     *
+     * @param task The step, a chart or a table.
+     * @param <T>  The type of the result.
+     * @return The result of the step, completed exceptionally if the step failed.
+	 */
+	private static <T> CompletableFuture<T> async(Callable<T> task) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return task.call();
+			} catch (Exception e) {
+				throw new CompletionException(e);
+			}
+		}, ForkJoinPool.commonPool());
+	}
+
+	/**
+     * Adds a section to the PDF document including a title, a table,
      * and an optional chart image.
      *
      * @param document PDF document to add content to.
      * @param title    Section title.
-     * @param boldFont Font for section titles and headers.
-     * @param list     Data list to display in table form.
+     * @param boldFont Font for section titles.
+     * @param table    Table of the data (null if there is no data).
      * @param chart    Chart image to include in the section (can be null).
-     * @param <T>      The type of data in the list.
      */
-	private <T> void addSection(Document document, String title, PdfFont boldFont, List<T> list, Image chart) {
+	private void addSection(Document document, String title, PdfFont boldFont, Table table, Image chart) {
 		if (!firstSection) {
 			document.add(new AreaBreak(AreaBreakType.NEXT_PAGE));
 		}
@@ -173,77 +174,57 @@ public class MonthlyReport {
 		document.add(new Paragraph(title).setFont(boldFont).setFontSize(16).setMarginTop(15)
 				.setTextAlignment(TextAlignment.LEFT));
 
-		if (list == null || list.isEmpty()) {
+		if (table == null) {
 			document.add(new Paragraph("No data available."));
 			return;
 		}
 
-		T firstItem = list.get(0);
-
-		List<Field> allFields = new ArrayList<>();
-
-		// Collect classes from topmost superclass down to the actual class
-		List<Class<?>> classHierarchy = new ArrayList<>();
-		Class<?> current = firstItem.getClass();
-		while (current != null && current != Object.class) {
-			classHierarchy.add(0, current); // Insert at start to reverse the order
-			current = current.getSuperclass();
+		document.add(table);
+		// Add chart image if provided
+		if (chart != null) {
+			chart.setAutoScale(true);
+			chart.setMarginTop(15);
+			document.add(chart);
 		}
 
-		// Now collect fields in order: superclass first, subclass later
-		for (Class<?> cls : classHierarchy) {
-			allFields.addAll(Arrays.asList(cls.getDeclaredFields()));
-		}
+	}
 
-		// Exclude the "history" field if the type is subscriber
-		if (firstItem instanceof subscriber) {
-			allFields.removeIf(field -> field.getName().equalsIgnoreCase("history"));
-			allFields.removeIf(field -> field.getName().equalsIgnoreCase("loggedIn"));
+	/**
+     * Creates a table of the data, with the given columns.
+     * The table is not added to a document, so it can be created on any thread.
+     *
+     * @param boldFont Font for the headers.
+     * @param columns  The columns of the type.
+     * @param list     Data list to display in table form.
+     * @param <T>      The type of data in the list.
+     * @return The table, or null if the list is empty.
+     */
+	private <T> Table createTable(PdfFont boldFont, ReportColumns<T> columns, List<T> list) {
+		if (list == null || list.isEmpty()) {
+			return null;
 		}
 
-		List<String> fieldNames = allFields.stream().map(Field::getName).collect(Collectors.toList());
-
-		Table table = new Table(fieldNames.size());
+		Table table = new Table(columns.size());
 
 		// Add header cells
-		for (String header : fieldNames) {
-			table.addHeaderCell(new Cell().add(new Paragraph(header).setFont(boldFont).setFontSize(9)).setPadding(3)
-					.setTextAlignment(TextAlignment.LEFT));
+		for (int column = 0; column < columns.size(); column++) {
+			table.addHeaderCell(new Cell().add(new Paragraph(columns.header(column)).setFont(boldFont).setFontSize(9))
+					.setPadding(3).setTextAlignment(TextAlignment.LEFT));
 		}
 
 		// Add data rows
 		for (T item : list) {
-			for (String field : fieldNames) {
-				try {
-					Field f = allFields.stream().filter(fl -> fl.getName().equals(field)).findFirst().orElse(null);
-
-					if (f != null) {
-						f.setAccessible(true);
-						Object value = f.get(item);
-						table.addCell(
-								new Cell().add(new Paragraph(String.valueOf(value)).setFontSize(8)).setPadding(2));
-					} else {
-						table.addCell(new Cell().add(new Paragraph("N/A")));
-					}
-				} catch (Exception e) {
-					table.addCell(new Cell().add(new Paragraph("N/A")));
-				}
+			for (int column = 0; column < columns.size(); column++) {
+				table.addCell(new Cell().add(new Paragraph(columns.format(item, column)).setFontSize(8)).setPadding(2));
 			}
 		}
 
 		table.setWidth(UnitValue.createPercentValue(100));
-		document.add(table);
-		// Add chart image if provided
-		if (chart != null) {
-			chart.setAutoScale(true);
-			chart.setMarginTop(15);
-			document.add(chart);
-		}
-
+		return table;
 	}
 
 	/**
-     * Renders a bar chart using JavaFX based on a given data map.
+     * Renders a bar chart based on a given data map.
      *
      * @param title       Chart title.
      * @param xAxisLabel  Label for the X-axis.
@@ -252,99 +233,37 @@ public class MonthlyReport {
      * @param chartWidth  Width of the chart.
      * @param chartHeight Height of the chart.
      * @return Image object to embed in a PDF.
-     * @throws Exception If JavaFX rendering fails.
+     * @throws Exception If the image can't be encoded.
 	 */
-	@SuppressWarnings("unused")
 	private Image renderBarChart(String title, String xAxisLabel, String yAxisLabel, Map<String, Integer> data,
 			int chartWidth, int chartHeight) throws Exception {
-		final CountDownLatch latch = new CountDownLatch(1);
-		final BufferedImage[] chartImage = new BufferedImage[1];
-
-		Platform.runLater(() -> {
-			try {
-				CategoryAxis xAxis = new CategoryAxis();
-				xAxis.setLabel(xAxisLabel);
-
-				int max = data.values().stream().max(Integer::compareTo).orElse(1);
-				NumberAxis yAxis = new NumberAxis(0, max + 1, 1);
-				yAxis.setLabel(yAxisLabel);
-				yAxis.setTickUnit(1);
-				yAxis.setMinorTickCount(0);
-
-				BarChart<String, Number> barChart = new BarChart<>(xAxis, yAxis);
-				barChart.setTitle(title);
-				barChart.setCategoryGap(10);
-				barChart.setBarGap(0);
-				barChart.setPrefSize(chartWidth, chartHeight);
-
-				XYChart.Series<String, Number> series = new XYChart.Series<>();
-				for (Map.Entry<String, Integer> entry : data.entrySet()) {
-					series.getData().add(new XYChart.Data<>(entry.getKey(), entry.getValue()));
-				}
-
-				barChart.getData().add(series);
-
-				Scene scene = new Scene(barChart);
-				WritableImage fxImage = barChart.snapshot(new SnapshotParameters(), null);
-				chartImage[0] = javafx.embed.swing.SwingFXUtils.fromFXImage(fxImage, null);
-			} catch (Exception e) {
-				e.printStackTrace();
-			} finally {
-				latch.countDown();
-			}
-		});
-
-		latch.await();
-
-		ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		ImageIO.write(chartImage[0], "png", baos);
-		byte[] imageBytes = baos.toByteArray();
-		ImageData imageData = ImageDataFactory.create(imageBytes);
-
-		return new Image(imageData).setWidth(UnitValue.createPercentValue(100));
+		return toPdfImage(ChartRenderer.barChart(title, xAxisLabel, yAxisLabel, data, chartWidth, chartHeight));
 	}
 
 	/**
-	 * Renders a pie chart using JavaFX based on a given data map.
+	 * Renders a pie chart based on a given data map.
 	 *
 	 * @param title  Chart title.
 	 * @param data   Data to plot.
 	 * @param width  Width of the chart.
 	 * @param height Height of the chart.
 	 * @return Image object to embed in a PDF.
-	 * @throws Exception If JavaFX rendering fails.
+	 * @throws Exception If the image can't be encoded.
 	 */
-	@SuppressWarnings("unused")
 	private Image renderPieChart(String title, Map<String, Integer> data, int width, int height) throws Exception {
-	    final CountDownLatch latch = new CountDownLatch(1);
-	    final BufferedImage[] chartImage = new BufferedImage[1];
-
-	    Platform.runLater(() -> {
-	        try {
-	            PieChart pieChart = new PieChart();
-	            pieChart.setTitle(title);
-
-	            for (Map.Entry<String, Integer> entry : data.entrySet()) {
-	                PieChart.Data slice = new PieChart.Data(entry.getKey(), entry.getValue());
-	                pieChart.getData().add(slice);
-	            }
-
-	            Scene scene = new Scene(pieChart, width, height);
-	            WritableImage fxImage = pieChart.snapshot(new SnapshotParameters(), null);
-	            chartImage[0] = javafx.embed.swing.SwingFXUtils.fromFXImage(fxImage, null);
-	        } catch (Exception e) {
-	            e.printStackTrace();
-	        } finally {
-	            latch.countDown();
-	        }
-	    });
-
-	    latch.await();
-	    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-	    ImageIO.write(chartImage[0], "png", baos);
-	    byte[] imageBytes = baos.toByteArray();
-	    ImageData imageData = ImageDataFactory.create(imageBytes);
-	    return new Image(imageData).setWidth(UnitValue.createPercentValue(100));
+		return toPdfImage(ChartRenderer.pieChart(title, data, width, height));
+	}
+
+	/**
+	 * Converts a chart to a PDF image that takes the width of the page.
+	 *
+	 * @param chart The chart.
+	 * @return Image object to embed in a PDF.
+	 * @throws Exception If the image can't be encoded.
+	 */
+	private Image toPdfImage(BufferedImage chart) throws Exception {
+		ImageData imageData = ImageDataFactory.create(ChartRenderer.toPng(chart));
+		return new Image(imageData).setWidth(UnitValue.createPercentValue(100));
 	}
 
 
@@ -355,7 +274,7 @@ public class MonthlyReport {
      * @return Image of the chart.
      * @throws Exception If chart rendering fails.
 	 */
-	private Image createSessionsPerDayChartFX(List<Parkingsession> sessions) throws Exception {
+	private Image createSessionsPerDayChart(List<Parkingsession> sessions) throws Exception {
 		YearMonth yearMonth = YearMonth.of(year, month.getValue());
 		int daysInMonth = yearMonth.lengthOfMonth();
 		Map<String, Integer> dayCounts = new LinkedHashMap<>();
@@ -383,7 +302,7 @@ public class MonthlyReport {
 	 * @return Image of the chart.
 	 * @throws Exception If chart rendering fails.
 	 */
-	private Image createReservationsPieChartFX(List<Reservation> reservations) throws Exception {
+	private Image createReservationsPieChart(List<Reservation> reservations) throws Exception {
 	    Map<String, Integer> counts = new LinkedHashMap<>();
 	    counts.put("Used", 0);
 	    counts.put("Canceled", 0);
@@ -407,7 +326,7 @@ public class MonthlyReport {
      * @return Image of the chart.
      * @throws Exception If chart rendering fails.
 	 */
-	private Image createLateSubscribersChartFX(List<Parkingsession> sessions, List<subscriber> subscribers)
+	private Image createLateSubscribersChart(List<Parkingsession> sessions, List<subscriber> subscribers)
 			throws Exception {
 		Map<Integer, Integer> lateCounts = new TreeMap<>();
 		for (subscriber s : subscribers) {
@@ -6,7 +6,7 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.Month;
 
-import jdbc.DataBaseQuery;
+import jdbc.ParkingStore;
 
 /**
  * A scheduled task runner that generates a monthly PDF report on the first day of each month.
@@ -17,14 +17,14 @@ import jdbc.DataBaseQuery;
  * 
  */
 public class MonthlyTaskRunner implements Runnable {
-	private DataBaseQuery con;
+	private ParkingStore con;
 	private Boolean startUp = true;
 	/**
 	 * Constructor of the class
 	 * 
 	 * @param con connection to database
 	 */
-	public MonthlyTaskRunner(DataBaseQuery con) {
+	public MonthlyTaskRunner(ParkingStore con) {
 		this.con = con;
 	}
 	
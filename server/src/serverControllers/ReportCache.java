@@ -0,0 +1,209 @@
+package serverControllers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the PDF reports that were already generated, so asking for the same report again returns
+ * its bytes without generating it.
+ *
+ * A report is found by its type, its parameters and the version of its data. The reports are
+ * generated from the files the client exported to the server (the CSV table and the charts), so
+ * the version is a SHA-256 of the content of those files: exporting different data gives a new
+ * key, exporting the same data again finds the cached report.
+ *
+ * The reports are kept in memory and in a directory, each up to a number of bytes. When a limit
+ * is passed the reports used least recently are removed. The reports in the directory are kept
+ * when the server restarts.
+ */
+public class ReportCache {
+	private static final String SUFFIX = ".pdf";
+
+	/**
+	 * Generates a report that is not in the cache
+	 */
+	@FunctionalInterface
+	public interface Generator {
+		/**
+		 * @return the bytes of the report
+		 * @throws Exception if the report can't be generated
+		 */
+		byte[] generate() throws Exception;
+	}
+
+	private final File directory;
+	private final long memoryBytes;
+	private final long diskBytes;
+	private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(16, 0.75f, true); // Access order
+	private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(16, 0.75f, true); // Key -> size
+	private long memoryUsed;
+	private long diskUsed;
+	private boolean diskLoaded;
+
+	/**
+	 * Constructor of the class
+	 *
+	 * @param directory   directory of the reports kept on disk, created when the first report is written
+	 * @param memoryBytes maximum size of the reports kept in memory (0 = none)
+	 * @param diskBytes   maximum size of the reports kept in the directory (0 = none)
+	 */
+	public ReportCache(File directory, long memoryBytes, long diskBytes) {
+		this.directory = directory;
+		this.memoryBytes = memoryBytes;
+		this.diskBytes = diskBytes;
+	}
+
+	/**
+	 * Returns a report from the cache, or generates it and adds it to the cache
+	 *
+	 * @param type       the type of the report
+	 * @param parameters the parameters of the report
+	 * @param inputs     the files the report is generated from
+	 * @param generator  generates the report when it is not in the cache
+	 * @return the bytes of the report
+	 * @throws Exception if the report can't be generated
+	 */
+	public byte[] get(String type, String parameters, File[] inputs, Generator generator) throws Exception {
+		String key = key(type, parameters, inputs);
+		byte[] report = lookup(key);
+		if (report != null)
+			return report;
+		report = generator.generate();
+		store(key, report);
+		return report;
+	}
+
+	/**
+	 * Finds a report in memory, then on disk
+	 */
+	private synchronized byte[] lookup(String key) {
+		byte[] report = memory.get(key);
+		if (report != null)
+			return report;
+		loadDisk();
+		if (disk.get(key) == null)
+			return null;
+		File file = new File(directory, key + SUFFIX);
+		try {
+			report = Files.readAllBytes(file.toPath());
+			file.setLastModified(System.currentTimeMillis()); // Keeps the order of use after a restart
+		} catch (IOException e) {
+			diskUsed -= disk.remove(key);
+			return null;
+		}
+		putInMemory(key, report);
+		return report;
+	}
+
+	/**
+	 * Adds a generated report to the memory and to the directory
+	 */
+	private synchronized void store(String key, byte[] report) {
+		putInMemory(key, report);
+		if (report.length > diskBytes)
+			return;
+		loadDisk();
+		directory.mkdirs();
+		File file = new File(directory, key + SUFFIX);
+		File temp = new File(directory, key + ".tmp");
+		try {
+			Files.write(temp.toPath(), report);
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			System.out.println("Failed to write the report cache file " + file + ": " + e.getMessage());
+			temp.delete();
+			return;
+		}
+		Long previous = disk.put(key, (long) report.length);
+		diskUsed += report.length - (previous == null ? 0 : previous);
+		Iterator<Map.Entry<String, Long>> eldest = disk.entrySet().iterator();
+		while (diskUsed > diskBytes && eldest.hasNext()) {
+			Map.Entry<String, Long> entry = eldest.next();
+			new File(directory, entry.getKey() + SUFFIX).delete();
+			diskUsed -= entry.getValue();
+			eldest.remove();
+		}
+	}
+
+	private void putInMemory(String key, byte[] report) {
+		if (report.length > memoryBytes)
+			return;
+		byte[] previous = memory.put(key, report);
+		memoryUsed += report.length - (previous == null ? 0 : previous.length);
+		Iterator<Map.Entry<String, byte[]>> eldest = memory.entrySet().iterator();
+		while (memoryUsed > memoryBytes && eldest.hasNext()) {
+			memoryUsed -= eldest.next().getValue().length;
+			eldest.remove();
+		}
+	}
+
+	/**
+	 * Reads the reports that are in the directory, least recently used first
+	 */
+	private void loadDisk() {
+		if (diskLoaded)
+			return;
+		diskLoaded = true;
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+		if (files == null)
+			return;
+		List<File> ordered = new ArrayList<>(Arrays.asList(files));
+		ordered.sort(Comparator.comparingLong(File::lastModified));
+		for (File file : ordered) {
+			String name = file.getName();
+			disk.put(name.substring(0, name.length() - SUFFIX.length()), file.length());
+			diskUsed += file.length();
+		}
+	}
+
+	/**
+	 * @return the SHA-256 of the type, the parameters and the name and content of every input, in hex
+	 */
+	private static String key(String type, String parameters, File[] inputs) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // Every Java platform has SHA-256
+		}
+		update(digest, type);
+		update(digest, parameters);
+		if (inputs != null) {
+			for (File input : inputs) {
+				update(digest, input.getName());
+				if (input.isFile())
+					digest.update(Files.readAllBytes(input.toPath()));
+				else
+					update(digest, "missing");
+			}
+		}
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest())
+			hex.append(String.format("%02x", b));
+		return hex.toString();
+	}
+
+	/**
+	 * Adds a string and its length, so different splits of the same characters give different keys
+	 */
+	private static void update(MessageDigest digest, String value) {
+		byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+		digest.update((byte) (bytes.length >>> 24));
+		digest.update((byte) (bytes.length >>> 16));
+		digest.update((byte) (bytes.length >>> 8));
+		digest.update((byte) bytes.length);
+		digest.update(bytes);
+	}
+}
@@ -0,0 +1,103 @@
+package serverControllers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+import logic.*;
+
+/**
+ * The columns of the tables of the monthly report, one set per entity type.
+ *
+ * Every column is a header and a getter of the entity, written once here, so a table is filled
+ * without reflection: a row costs one call per column. The int and boolean columns are
+ * formatted from the primitive value. The columns are the fields of the entity in declaration
+ * order, superclass first, like the table showed when it was filled by reflection.
+ *
+ * @param <T> the type of the entity
+ */
+final class ReportColumns<T> {
+	static final ReportColumns<Parkingsession> PARKING_SESSIONS = new ReportColumns<Parkingsession>()
+			.intColumn("sessionId", Parkingsession::getSessionId)
+			.intColumn("subscriberId", Parkingsession::getSubscriberId)
+			.intColumn("spotId", Parkingsession::getSpotId)
+			.intColumn("parkingCode", Parkingsession::getParkingCode)
+			.column("inTime", Parkingsession::getInTime)
+			.column("outTime", Parkingsession::getOutTime)
+			.booleanColumn("extended", Parkingsession::isExtended)
+			.booleanColumn("late", Parkingsession::isLate)
+			.booleanColumn("active", Parkingsession::getActive);
+
+	static final ReportColumns<Reservation> RESERVATIONS = new ReportColumns<Reservation>()
+			.intColumn("id", Reservation::getId)
+			.intColumn("subscriberId", Reservation::getSubscriberId)
+			.intColumn("spotId", Reservation::getSpot)
+			.column("date", Reservation::getDate)
+			.column("startTime", Reservation::getStartTime)
+			.column("endTime", Reservation::getEndTime)
+			.intColumn("code", Reservation::getCode);
+
+	static final ReportColumns<ParkingSpot> PARKING_SPOTS = new ReportColumns<ParkingSpot>()
+			.intColumn("spotId", ParkingSpot::getSpotId)
+			.column("status", ParkingSpot::getStatus);
+
+	// The history and the logged in flag are not shown
+	static final ReportColumns<subscriber> SUBSCRIBERS = new ReportColumns<subscriber>()
+			.intColumn("id", subscriber::getId)
+			.column("name", subscriber::getName)
+			.column("phone", subscriber::getPhone)
+			.column("email", subscriber::getEmail)
+			.column("role", subscriber::getRole)
+			.column("tag", subscriber::getTag)
+			.intColumn("code", subscriber::getCode);
+
+	private final List<String> headers = new ArrayList<>();
+	private final List<Function<T, String>> formatters = new ArrayList<>();
+
+	private ReportColumns() {
+	}
+
+	private ReportColumns<T> intColumn(String header, ToIntFunction<T> getter) {
+		return add(header, item -> Integer.toString(getter.applyAsInt(item)));
+	}
+
+	private ReportColumns<T> booleanColumn(String header, Predicate<T> getter) {
+		return add(header, item -> getter.test(item) ? "true" : "false");
+	}
+
+	private ReportColumns<T> column(String header, Function<T, ?> getter) {
+		return add(header, item -> String.valueOf(getter.apply(item)));
+	}
+
+	private ReportColumns<T> add(String header, Function<T, String> formatter) {
+		headers.add(header);
+		formatters.add(formatter);
+		return this;
+	}
+
+	/**
+	 * @return the number of columns
+	 */
+	int size() {
+		return headers.size();
+	}
+
+	/**
+	 * @param column the index of a column
+	 * @return the header of the column
+	 */
+	String header(int column) {
+		return headers.get(column);
+	}
+
+	/**
+	 * @param item   an entity
+	 * @param column the index of a column
+	 * @return the value of the column for the entity, "null" if it has no value
+	 */
+	String format(T item, int column) {
+		return formatters.get(column).apply(item);
+	}
+}
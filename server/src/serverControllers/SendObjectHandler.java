@@ -11,31 +11,56 @@ import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
-import jdbc.DataBaseQuery;
+import jdbc.BookingResult;
+import jdbc.ParkingStore;
 
 /**
  * Handles the processing of SendObject requests, routing them to appropriate
  * handlers based on the action string and the type of the embedded object.
  */
 public class SendObjectHandler {
+	// Generated PDF reports, asking again for a report of the same exported files returns the cached bytes
+	private static final ReportCache reportCache = new ReportCache(new File("reports", "cache"),
+			ServerConfig.reportCacheMemoryBytes(), ServerConfig.reportCacheDiskBytes());
+
 	/**
 	 * Main method to process incoming SendObject requests.
 	 * 
+	 * The request is first looked up in the {@link CommandRegistry} by its action and payload
+	 * type, requests that don't match a known command go through the action string checks.
+	 * 
 	 * @param obj The received SendObject containing action and payload
-	 * @param con A DataBaseQuery instance for database operations
+	 * @param con A ParkingStore instance for database operations
 	 * @return A response SendObject with results or messages
 	 * @throws Exception if action is null or unprocessable
 	 */
-	@SuppressWarnings("unchecked")
 	public static <T extends Serializable, T1 extends Serializable> SendObject<T1> sendObjectHandle(SendObject<T> obj,
-			DataBaseQuery con) throws Exception {
+			ParkingStore con) throws Exception {
 		String action = obj.getObjectMessage();
 		T object = obj.getObj();
 		if (action == null) {
 			throw new Exception("Null Action was received");
-		} else if (object instanceof String) {
+		}
+		Command command = CommandRegistry.resolve(action, object);
+		if (command != null)
+			return CommandRegistry.execute(command, action, object, con);
+		CommandRegistry.recordLegacy(action, object);
+		return handleLegacy(action, object, con);
+	}
+
+	/**
+	 * Processes a request that is not a known command by checking the action string.
+	 * 
+	 * @param action The action of the request
+	 * @param object The payload of the request
+	 * @param con    A ParkingStore instance for database operations
+	 * @return A response SendObject with results or messages
+	 * @throws Exception if the request is unprocessable
+	 */
+	private static <T extends Serializable, T1 extends Serializable> SendObject<T1> handleLegacy(String action,
+			T object, ParkingStore con) throws Exception {
+		if (object instanceof String) {
 			// Uses handleStringType() method to handle String type objects
 			if (action.contains("Get") || action.contains("Check")) {
 				Object genericObject = handleStringType(action, (String) object, con);
@@ -46,28 +71,12 @@ public class SendObjectHandler {
 			Object genericObject = handleIntegerType(action, (Integer) object, con);
 			return replyDefiner(genericObject);
 		} else if (action.contains("connect")) {
-			if (object == null) {
-				// For guest screen
-				double percent = con.getPrecentageAvailableSpaceFromDatabase();
-				return new SendObject<T1>("Percent", (T1) (Double) percent);
-			}
-			// Connects the subscriber to the client application
-			Object genericObject = handleGetAction(object, con);
-			return replyDefiner(genericObject);
+			return replyDefiner(connect(object, con));
 		} else if (action.contains("loggedoff") || action.contains("login")) {
-			if (object != null)
-				con.updateUserInDatabase((subscriber) object);
+			updateLoginState(object, con);
 		} else if (action.contains("Update")) {
 			if (action.contains("time in session")) {
-				// Manages time extension update of parking sessions
-				Parkingsession session = (Parkingsession) obj.getObj();
-				if (con.checkExtendTimeParkingsessionWithAllReservations(session)) {
-					handleUpdateAction(object, con);
-					return new SendObject<T1>("Time Extension", (T1) "Accapted");
-				} else {
-					return new SendObject<T1>("Time Extension", (T1) "Not Accapted");
-				}
-
+				return updateTimeInSession((Parkingsession) object, con);
 			} else {
 				// Updates other objects in DB
 				Object genericObject = handleUpdateAction(object, con);
@@ -78,26 +87,9 @@ public class SendObjectHandler {
 			Object genericObject = handleCreateAction(object, con);
 			return replyDefiner(genericObject);
 		} else if (action.contains("Send")) {
-			if (object instanceof subscriber) {
-				// Uses handleSendAction() to send Email to subscribers
-				handleSendAction(action, (subscriber) object, con);
-			} else {
-				System.err.println("Unknown SendObject received: action = " + action + ", object = " + object);
-				throw new Exception("No send option is capable without subscriber object");
-			}
-
-		} else if (action.contains("File to server")) { // Creates reports directory and creates a new file in it
-			if (object instanceof FileTransferMessage) {
-				FileTransferMessage fileMsg = (FileTransferMessage) object;
-				File reportsDir = new File("reports");
-				if (!reportsDir.exists())
-					reportsDir.mkdirs();
-
-				File reportFile = new File(reportsDir, fileMsg.getFilename());
-				try (FileOutputStream fos = new FileOutputStream(reportFile)) {
-					fos.write(fileMsg.getData());
-				}
-			}
+			send(action, object, con);
+		} else if (action.contains("File to server")) {
+			saveFile(object);
 		} else { // Default for not unknown SendObject
 			System.err.println("Unknown SendObject received: action = " + action + ", object = " + object);
 			throw new Exception("No possible classes were chosen");
@@ -105,6 +97,90 @@ public class SendObjectHandler {
 		return null;
 	}
 
+	/**
+	 * Connects the subscriber to the client application, or returns the available space
+	 * for the guest screen when there is no subscriber.
+	 * 
+	 * @param object The subscriber, or null for a guest
+	 * @param con    A ParkingStore instance
+	 * @return The subscriber, an error SendObject, or SendObject "Percent" for a guest
+	 * @throws Exception if retrieval fails
+	 */
+	@SuppressWarnings("unchecked")
+	static <T extends Serializable> Object connect(T object, ParkingStore con) throws Exception {
+		if (object == null) {
+			// For guest screen
+			double percent = con.getPrecentageAvailableSpaceFromDatabase();
+			return new SendObject<Double>("Percent", (Double) percent);
+		}
+		// Connects the subscriber to the client application
+		return handleGetAction(object, con);
+	}
+
+	/**
+	 * Saves the logged in state of the subscriber on login and logoff
+	 * 
+	 * @param object The subscriber
+	 * @param con    A ParkingStore instance
+	 */
+	static <T extends Serializable> void updateLoginState(T object, ParkingStore con) {
+		if (object != null)
+			con.updateUserInDatabase((subscriber) object);
+	}
+
+	/**
+	 * Manages time extension update of parking sessions
+	 * 
+	 * @param session The parking session with the new out time
+	 * @param con     A ParkingStore instance
+	 * @return SendObject "Time Extension" with "Accapted" or "Not Accapted"
+	 * @throws Exception if the update fails
+	 */
+	@SuppressWarnings("unchecked")
+	static <T1 extends Serializable> SendObject<T1> updateTimeInSession(Parkingsession session, ParkingStore con)
+			throws Exception {
+		if (con.checkExtendTimeParkingsessionWithAllReservations(session)) {
+			handleUpdateAction(session, con);
+			return new SendObject<T1>("Time Extension", (T1) "Accapted");
+		} else {
+			return new SendObject<T1>("Time Extension", (T1) "Not Accapted");
+		}
+	}
+
+	/**
+	 * Sends Email to subscribers
+	 * 
+	 * @param action The send action
+	 * @param object The subscriber
+	 * @param con    A ParkingStore instance
+	 * @throws Exception if the object is not a subscriber or the message can't be sent
+	 */
+	static <T extends Serializable> void send(String action, T object, ParkingStore con) throws Exception {
+		if (object instanceof subscriber) {
+			// Uses handleSendAction() to send Email to subscribers
+			handleSendAction(action, (subscriber) object, con);
+		} else {
+			System.err.println("Unknown SendObject received: action = " + action + ", object = " + object);
+			throw new Exception("No send option is capable without subscriber object");
+		}
+	}
+
+	/**
+	 * Creates reports directory and creates a new file in it
+	 * 
+	 * @param object The file
+	 * @throws Exception if the file can't be written
+	 */
+	static <T extends Serializable> void saveFile(T object) throws Exception {
+		if (object instanceof FileTransferMessage) {
+			FileTransferMessage fileMsg = (FileTransferMessage) object;
+			File reportFile = new File(reportsDir(), fileMsg.getFilename());
+			try (FileOutputStream fos = new FileOutputStream(reportFile)) {
+				fos.write(fileMsg.getData());
+			}
+		}
+	}
+
 	/**
 	 * Defines a reply based on the type of the object returned.
 	 * 
@@ -113,7 +189,7 @@ public class SendObjectHandler {
 	 * @return A new SendObject instance containing a descriptive message and object
 	 */
 	@SuppressWarnings("unchecked")
-	private static <T1 extends Serializable> SendObject<T1> replyDefiner(Object genericObject) {
+	static <T1 extends Serializable> SendObject<T1> replyDefiner(Object genericObject) {
 		String reply = "received object";
 		if (genericObject != null) {
 			if (genericObject instanceof Boolean) {
@@ -142,88 +218,168 @@ public class SendObjectHandler {
 	 * @param <T1>      The return type, must be Serializable
 	 * @param action    The specified action to perform
 	 * @param intObject The Integer object received
-	 * @param con       A DataBaseQuery instance
+	 * @param con       A ParkingStore instance
 	 * @return A SendObject containing result based on integer processing
 	 */
-	@SuppressWarnings("unchecked")
 	private static <T extends Serializable, T1 extends Serializable> SendObject<T1> handleIntegerType(String action,
-			Integer intObject, DataBaseQuery con) {
+			Integer intObject, ParkingStore con) {
 		if (action.contains("Check")) {
 			if (action.equals("Check new Parking Code")) {
-				// Returns boolean if the code is being used
-				boolean isUsed = true;
-				int code = intObject;
-				isUsed = con.checkParkingCodeInAllActiveSessionsInDatabase(code);
-				return new SendObject<T1>("isUsed", (T1) (Boolean) isUsed);
+				return checkNewParkingCode(intObject, con);
 			} else if (action.equals("Check received Parking Code")) {
-				// Returns the session by code if exists
-				Parkingsession mySession = null;
-				int parkingcode = intObject;
-				mySession = con.getActiveParkingsessionWithThatCodeFromDatabase(parkingcode);
-				return new SendObject<T1>("Parkingsession from code", (T1) (Parkingsession) mySession);
+				return checkReceivedParkingCode(intObject, con);
 			}
 		} else if (action.contains("Update")) {
 			if (action.contains("Update spot to Free")) {
-				// Update spot to free
-				int spotId = intObject;
-				ParkingSpot spot = new ParkingSpot(spotId, SpotStatus.FREE);
-				con.updateParkingSpotInDatabase(spot);
+				return updateSpotToFree(intObject, con);
 			}
 		} else if (action.contains("Get")) {
 			if (action.contains("SubscribersResesrvations")) {
-				// Return list of reservations of the subscriber intObject
-				List<Reservation> reservationListOfSubscriber = new ArrayList<>();
-				reservationListOfSubscriber = con.getReservationListOfSubscriberbyIdFromDatabase(intObject);
-				return new SendObject<T1>("Reservation list of subscriber",
-						(T1) (List<Reservation>) reservationListOfSubscriber);
+				return getSubscriberReservations(intObject, con);
 			} else if (action.contains("history")) {
-				// Return list of past parking sessions of the subscriber intObject
-				List<Parkingsession> historyParkingsessionsListOfSubscriber = new ArrayList<>();
-				int subscriberId = intObject;
-				historyParkingsessionsListOfSubscriber = con
-						.gethistoryParkingsessionsListOfSubscriberbyIdFromDatabase(subscriberId);
-				if (historyParkingsessionsListOfSubscriber == null) {
-				}
-				// send back the list
-				return new SendObject<T1>("Parkingsession list of subscriber",
-						(T1) (List<Parkingsession>) historyParkingsessionsListOfSubscriber);
+				return getHistory(intObject, con);
 			} else if (action.contains("Active Parkingsessions")) {
-				// Return list of active parking sessions of the subscriber intObject
-				List<Parkingsession> activeParkingsessionsListOfSubscriber = new ArrayList<>();
-				int subscriberId = intObject;
-				activeParkingsessionsListOfSubscriber = con
-						.getActiveParkingsessionsListOfSubscriberbyIdFromDatabase(subscriberId);
-				// send back the list
-				return new SendObject<T1>("Active Sessions",
-						(T1) (List<Parkingsession>) activeParkingsessionsListOfSubscriber);
+				return getActiveParkingsessions(intObject, con);
 			} else if (action.contains("Parkingsession")) {
-				// Return parking session by id
-				Parkingsession session = null;
-				int sessionId = intObject;
-				session = con.getParkingsessionById(sessionId);
-				if (session != null) {
-					return new SendObject<T1>("Session found", (T1) session);
-				} else {
-					return new SendObject<T1>("Session found:", (T1) "False");
-				}
+				return getParkingsession(intObject, con);
 			} else if (action.contains("reservation with code")) {
-				Reservation reservation;
-				int reservationCode = intObject;
-				reservation = con.getReservationByCode(reservationCode);
-				return new SendObject<T1>("Received reservation", (T1) reservation);
+				return getReservationWithCode(intObject, con);
 			} else if (action.contains("reservation with id")) {
-				Reservation reservation;
-				int reservationId = intObject;
-				reservation = con.getReservationById(reservationId);
-				if (reservation == null)
-					return new SendObject<T1>("No such", (T1) "Reservation");
-				else
-					return new SendObject<T1>("Received reservation", (T1) reservation);
+				return getReservationWithId(intObject, con);
 			}
 		}
 		return null;
 	}
 
+	/**
+	 * Returns boolean if the parking code is being used
+	 * 
+	 * @param code The parking code
+	 * @param con  A ParkingStore instance
+	 * @return SendObject "isUsed" with a Boolean
+	 */
+	@SuppressWarnings("unchecked")
+	static <T1 extends Serializable> SendObject<T1> checkNewParkingCode(int code, ParkingStore con) {
+		boolean isUsed = con.checkParkingCodeInAllActiveSessionsInDatabase(code);
+		return new SendObject<T1>("isUsed", (T1) (Boolean) isUsed);
+	}
+
+	/**
+	 * Returns the active session with the parking code if exists
+	 * 
+	 * @param parkingcode The parking code
+	 * @param con         A ParkingStore instance
+	 * @return SendObject "Parkingsession from code" with the session (null if not found)
+	 */
+	@SuppressWarnings("unchecked")
+	static <T1 extends Serializable> SendObject<T1> checkReceivedParkingCode(int parkingcode, ParkingStore con) {
+		Parkingsession mySession = con.getActiveParkingsessionWithThatCodeFromDatabase(parkingcode);
+		return new SendObject<T1>("Parkingsession from code", (T1) (Parkingsession) mySession);
+	}
+
+	/**
+	 * Updates a spot to free
+	 * 
+	 * @param spotId The spot id
+	 * @param con    A ParkingStore instance
+	 * @return null, there is no reply
+	 */
+	static <T1 extends Serializable> SendObject<T1> updateSpotToFree(int spotId, ParkingStore con) {
+		ParkingSpot spot = new ParkingSpot(spotId, SpotStatus.FREE);
+		con.updateParkingSpotInDatabase(spot);
+		return null;
+	}
+
+	/**
+	 * Returns the list of reservations of a subscriber
+	 * 
+	 * @param subscriberId The subscriber id
+	 * @param con          A ParkingStore instance
+	 * @return SendObject "Reservation list of subscriber" with the list
+	 */
+	@SuppressWarnings("unchecked")
+	static <T1 extends Serializable> SendObject<T1> getSubscriberReservations(int subscriberId, ParkingStore con) {
+		List<Reservation> reservationListOfSubscriber = con.getReservationListOfSubscriberbyIdFromDatabase(subscriberId);
+		return new SendObject<T1>("Reservation list of subscriber", (T1) (List<Reservation>) reservationListOfSubscriber);
+	}
+
+	/**
+	 * Returns the list of past parking sessions of a subscriber
+	 * 
+	 * @param subscriberId The subscriber id
+	 * @param con          A ParkingStore instance
+	 * @return SendObject "Parkingsession list of subscriber" with the list
+	 */
+	@SuppressWarnings("unchecked")
+	static <T1 extends Serializable> SendObject<T1> getHistory(int subscriberId, ParkingStore con) {
+		List<Parkingsession> historyParkingsessionsListOfSubscriber = con
+				.gethistoryParkingsessionsListOfSubscriberbyIdFromDatabase(subscriberId);
+		// send back the list
+		return new SendObject<T1>("Parkingsession list of subscriber",
+				(T1) (List<Parkingsession>) historyParkingsessionsListOfSubscriber);
+	}
+
+	/**
+	 * Returns the list of active parking sessions of a subscriber
+	 * 
+	 * @param subscriberId The subscriber id
+	 * @param con          A ParkingStore instance
+	 * @return SendObject "Active Sessions" with the list
+	 */
+	@SuppressWarnings("unchecked")
+	static <T1 extends Serializable> SendObject<T1> getActiveParkingsessions(int subscriberId, ParkingStore con) {
+		List<Parkingsession> activeParkingsessionsListOfSubscriber = con
+				.getActiveParkingsessionsListOfSubscriberbyIdFromDatabase(subscriberId);
+		// send back the list
+		return new SendObject<T1>("Active Sessions", (T1) (List<Parkingsession>) activeParkingsessionsListOfSubscriber);
+	}
+
+	/**
+	 * Returns a parking session by id
+	 * 
+	 * @param sessionId The session id
+	 * @param con       A ParkingStore instance
+	 * @return SendObject "Session found" with the session, or "False" if it doesn't exist
+	 */
+	@SuppressWarnings("unchecked")
+	static <T1 extends Serializable> SendObject<T1> getParkingsession(int sessionId, ParkingStore con) {
+		Parkingsession session = con.getParkingsessionById(sessionId);
+		if (session != null) {
+			return new SendObject<T1>("Session found", (T1) session);
+		} else {
+			return new SendObject<T1>("Session found:", (T1) "False");
+		}
+	}
+
+	/**
+	 * Returns a reservation by code
+	 * 
+	 * @param reservationCode The reservation code
+	 * @param con             A ParkingStore instance
+	 * @return SendObject "Received reservation" with the reservation (null if not found)
+	 */
+	@SuppressWarnings("unchecked")
+	static <T1 extends Serializable> SendObject<T1> getReservationWithCode(int reservationCode, ParkingStore con) {
+		Reservation reservation = con.getReservationByCode(reservationCode);
+		return new SendObject<T1>("Received reservation", (T1) reservation);
+	}
+
+	/**
+	 * Returns a reservation by id
+	 * 
+	 * @param reservationId The reservation id
+	 * @param con           A ParkingStore instance
+	 * @return SendObject "Received reservation" with the reservation, or "No such" if it doesn't exist
+	 */
+	@SuppressWarnings("unchecked")
+	static <T1 extends Serializable> SendObject<T1> getReservationWithId(int reservationId, ParkingStore con) {
+		Reservation reservation = con.getReservationById(reservationId);
+		if (reservation == null)
+			return new SendObject<T1>("No such", (T1) "Reservation");
+		else
+			return new SendObject<T1>("Received reservation", (T1) reservation);
+	}
+
 	/**
 	 * Handles Email/SMS sending for subscribers based on action.
 	 * 
@@ -232,7 +388,7 @@ public class SendObjectHandler {
 	 * @param con    Database connector
 	 * @throws Exception if the email is invalid or no active session found
 	 */
-	private static <T extends Serializable> void handleSendAction(String action, subscriber object, DataBaseQuery con)
+	private static <T extends Serializable> void handleSendAction(String action, subscriber object, ParkingStore con)
 			throws Exception {
 		if (action.contains("Email/SMS")) {
 			String to = object.getEmail();
@@ -264,133 +420,262 @@ public class SendObjectHandler {
 	 * @param <T1>   Return type, must be Serializable
 	 * @param action The specified action to perform
 	 * @param object The String object received
-	 * @param con    A DataBaseQuery instance
+	 * @param con    A ParkingStore instance
 	 * @return A SendObject containing result based on string processing
 	 * @throws Exception if database query fails
 	 */
-	@SuppressWarnings("unchecked")
 	private static <T extends Serializable, T1 extends Serializable> SendObject<T1> handleStringType(String action,
-			String object, DataBaseQuery con) throws Exception {
+			String object, ParkingStore con) throws Exception {
 		if (action.contains("Check") && object.contains("Availability")) {
-			// Returns availablity boolean
-			double availablePrecentage = 0;
-			availablePrecentage = con.getPrecentageAvailableSpaceFromDatabase();
-			if (availablePrecentage > 0)
-				return new SendObject<T1>("Availability", (T1) (Boolean) true);
-			else
-				return new SendObject<T1>("Availability", (T1) (Boolean) false);
+			return checkAvailability(con);
 		} else if (action.contains("Get")) {
 			if (object.equals("Free spot")) {
-				ParkingSpot spot;
-				DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm");
-				spot = con.getFreeParkingSpotFromDatabase(LocalDate.now(), LocalTime.now().format(timeFormatter),
-						LocalTime.now().plusHours(4).format(timeFormatter)).get(0);
-				if (spot != null) {
-					// Returns an available spot
-					spot.setStatus(SpotStatus.OCCUPIED);
-					handleUpdateAction(spot, con);
-					return new SendObject<T1>("new Spot", (T1) (ParkingSpot) spot);
-				}
-
+				return getFreeSpot(con);
 			} else if (object.equals("all reservations")) {
-				// Returns a list of all resrervations
-				List<Reservation> allReservationList = new ArrayList<>();
-				allReservationList = con.getAllReservationList();
-				return new SendObject<T1>("Received all reservations", (T1) (List<Reservation>) allReservationList);
+				return getAllReservations(con);
 			} else if (object.equals("all subscribers")) {
-				// Returns a list of all subscribers
-				List<subscriber> allSubscribersList = new ArrayList<subscriber>();
-				allSubscribersList = con.getAllSubscribersList();
-				return new SendObject<T1>("Received all subscribers", (T1) (List<subscriber>) allSubscribersList);
+				return getAllSubscribers(con);
 			} else if (object.equals("all parking sessions")) {
-				// Returns a list of all parkingsessions
-				List<Parkingsession> allParkingsessions = new ArrayList<Parkingsession>();
-				allParkingsessions = con.getAllParkingsession();
-				return new SendObject<T1>("Received active parking sessions",
-						(T1) (List<Parkingsession>) allParkingsessions);
+				return getAllParkingsessions(con);
 			} else if (object.equals("all parking spots")) {
-				List<ParkingSpot> allParkingSpots = new ArrayList<ParkingSpot>();
-				allParkingSpots = con.getAllParkingSpots();
-				return new SendObject<T1>("Received active parking spots", (T1) (List<ParkingSpot>) allParkingSpots);
-			} else if (action.contains("Get ActiveSessions")) { // Creates ActiveSessions PDF file
-				File reportsDir = new File("reports"); 
-				if (!reportsDir.exists()) {
-					reportsDir.mkdirs(); 
-				}
-				File csvFile = new File(reportsDir, "SessionsReport_" + object.toString() + ".csv");
-				File pngFile1 = new File(reportsDir, "SessionsChart_" + object.toString() + ".png");
-				File pngFile2 = new File(reportsDir, "ParkingSpotsChart_" + object.toString() + ".png");
-				File[] images = new File[] { pngFile1, pngFile2 };
-				File ActiveSessionsPdf = new File(reportsDir, "SessionsReport_" + object.toString() + ".pdf");
-				PDFReport.generatePdfReport(csvFile, images, ActiveSessionsPdf, "Sessions " + object.toString(),
-						null);
-				byte[] data = Files.readAllBytes(ActiveSessionsPdf.toPath());
-				FileTransferMessage message = new FileTransferMessage(ActiveSessionsPdf.getName(), data);
-				return new SendObject<T1>("SessionsPDF", (T1) (FileTransferMessage) message);
-			} else if (action.contains("Subscribers Report")) { // // Creates Subscribers PDF file
-				File reportsDir = new File("reports"); 
-				if (!reportsDir.exists()) {
-					reportsDir.mkdirs();
-				}
-				File csvFile = new File(reportsDir, "SubscribersReport_" + object.toString() + ".csv");
-				File SubscribersReportPdf = new File(reportsDir, "SubscribersReport_" + object.toString() + ".pdf");
-				PDFReport.generatePdfReport(csvFile, null, SubscribersReportPdf,
-						"Subscribers Report " + object.toString(), null);
-				byte[] data = Files.readAllBytes(SubscribersReportPdf.toPath());
-				FileTransferMessage message = new FileTransferMessage(SubscribersReportPdf.getName(), data);
-				return new SendObject<T1>("SubscribersReportPDF", (T1) (FileTransferMessage) message);
-			} else if (action.contains("Subscriber Report")) { // Creates a subscriber's PDF file
-				File reportsDir = new File("reports");
-				if (!reportsDir.exists()) {
-					reportsDir.mkdirs(); 
-				}
-				String subIdAndInfo[] = object.split(",");
-				File csvFile = new File(reportsDir, "SubscriberReport_" + subIdAndInfo[0] + ".csv");
-				File pngFile = new File(reportsDir, "SubscriberHistorySessionsChart_" + subIdAndInfo[0] + ".png");
-				File SubscribersReportPdf = new File(reportsDir, "SubscriberReport_" + subIdAndInfo[0] + ".pdf");
-				PDFReport.generatePdfReport(csvFile, new File[] { pngFile }, SubscribersReportPdf,
-						"Subscriber Report ID:" + subIdAndInfo[0], subIdAndInfo[1]);
-				byte[] data = Files.readAllBytes(SubscribersReportPdf.toPath());
-				FileTransferMessage message = new FileTransferMessage(SubscribersReportPdf.getName(), data);
-				return new SendObject<T1>("SubscriberReportPDF", (T1) (FileTransferMessage) message);
-
-			} else if (action.contains("Get Reservation Report")) { // Creates Reservations PDF file
-				// File handling and creation logic
-				File reportsDir = new File("reports");
-				if (!reportsDir.exists())
-					reportsDir.mkdirs();
-				File ReservationsReportPdf = new File(reportsDir, "ReservationsReport_" + object.toString() + ".pdf");
-				File reportFile = new File(reportsDir, "ReservationsReport_" + object.toString() + ".csv");
-				File pngFile = new File(reportsDir, "ReservationsChart_" + object.toString() + ".png");
-				PDFReport.generatePdfReport(reportFile, new File[] { pngFile }, ReservationsReportPdf,
-						"Reservations Report", null);
-				byte[] data = Files.readAllBytes(ReservationsReportPdf.toPath());
-				FileTransferMessage message = new FileTransferMessage(ReservationsReportPdf.getName(), data);
-				// Send back the successful result
-				return new SendObject<T1>("ReservationReportPDF", (T1) (FileTransferMessage) message);
-
-			}else if(object.contains("MonthlyReport_")){ // Sends Monthly report to client
-				// File handling and creation logic
-				try {
-					File reportsDir = new File("reports");
-					if (!reportsDir.exists())
-						reportsDir.mkdirs();
-					File MonthlyReportPdf = new File(reportsDir, object.toString() + ".pdf");
-					if(MonthlyReportPdf.exists()) {
-					byte[] data = Files.readAllBytes(MonthlyReportPdf.toPath());
-					FileTransferMessage message = new FileTransferMessage(MonthlyReportPdf.getName(), data);
-					// Send back the successful result
-					return new SendObject<T1>("MonthlyReportPDF", (T1) (FileTransferMessage) message);}
-				}catch(Exception e) {
-					e.printStackTrace();
-					return new SendObject<T1>("Error", (T1) "Such file doesn't exist");
-				}
+				return getAllParkingSpots(con);
+			} else if (action.contains("Get ActiveSessions")) {
+				return getActiveSessionsReport(object);
+			} else if (action.contains("Subscribers Report")) {
+				return getSubscribersReport(object);
+			} else if (action.contains("Subscriber Report")) {
+				return getSubscriberReport(object);
+			} else if (action.contains("Get Reservation Report")) {
+				return getReservationReport(object);
+			} else if (object.contains("MonthlyReport_")) {
+				return getMonthlyReport(object);
 			}
 		}
 		// Default or fallback return value
 		return new SendObject<T1>("Invalid request", null);
 	}
 
+	/**
+	 * Returns availablity boolean
+	 * 
+	 * @param con A ParkingStore instance
+	 * @return SendObject "Availability" with true if there is available space
+	 */
+	@SuppressWarnings("unchecked")
+	static <T1 extends Serializable> SendObject<T1> checkAvailability(ParkingStore con) {
+		double availablePrecentage = con.getPrecentageAvailableSpaceFromDatabase();
+		if (availablePrecentage > 0)
+			return new SendObject<T1>("Availability", (T1) (Boolean) true);
+		else
+			return new SendObject<T1>("Availability", (T1) (Boolean) false);
+	}
+
+	/**
+	 * Returns an available spot for the next 4 hours and marks it as occupied
+	 * 
+	 * @param con A ParkingStore instance
+	 * @return SendObject "new Spot" with the spot, or "Invalid request" if there is none
+	 * @throws Exception if the spot can't be updated
+	 */
+	@SuppressWarnings("unchecked")
+	static <T1 extends Serializable> SendObject<T1> getFreeSpot(ParkingStore con) throws Exception {
+		DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm");
+		ParkingSpot spot = con.getFreeParkingSpotFromDatabase(LocalDate.now(), LocalTime.now().format(timeFormatter),
+				LocalTime.now().plusHours(4).format(timeFormatter)).get(0);
+		if (spot != null) {
+			spot.setStatus(SpotStatus.OCCUPIED);
+			handleUpdateAction(spot, con);
+			return new SendObject<T1>("new Spot", (T1) (ParkingSpot) spot);
+		}
+		return new SendObject<T1>("Invalid request", null);
+	}
+
+	/**
+	 * Returns a list of all resrervations
+	 * 
+	 * @param con A ParkingStore instance
+	 * @return SendObject "Received all reservations" with the list
+	 */
+	@SuppressWarnings("unchecked")
+	static <T1 extends Serializable> SendObject<T1> getAllReservations(ParkingStore con) {
+		List<Reservation> allReservationList = con.getAllReservationList();
+		return new SendObject<T1>("Received all reservations", (T1) (List<Reservation>) allReservationList);
+	}
+
+	/**
+	 * Returns a list of all subscribers
+	 * 
+	 * @param con A ParkingStore instance
+	 * @return SendObject "Received all subscribers" with the list
+	 */
+	@SuppressWarnings("unchecked")
+	static <T1 extends Serializable> SendObject<T1> getAllSubscribers(ParkingStore con) {
+		List<subscriber> allSubscribersList = con.getAllSubscribersList();
+		return new SendObject<T1>("Received all subscribers", (T1) (List<subscriber>) allSubscribersList);
+	}
+
+	/**
+	 * Returns a list of all parkingsessions
+	 * 
+	 * @param con A ParkingStore instance
+	 * @return SendObject "Received active parking sessions" with the list
+	 */
+	@SuppressWarnings("unchecked")
+	static <T1 extends Serializable> SendObject<T1> getAllParkingsessions(ParkingStore con) {
+		List<Parkingsession> allParkingsessions = con.getAllParkingsession();
+		return new SendObject<T1>("Received active parking sessions", (T1) (List<Parkingsession>) allParkingsessions);
+	}
+
+	/**
+	 * Returns a list of all parking spots
+	 * 
+	 * @param con A ParkingStore instance
+	 * @return SendObject "Received active parking spots" with the list
+	 */
+	@SuppressWarnings("unchecked")
+	static <T1 extends Serializable> SendObject<T1> getAllParkingSpots(ParkingStore con) {
+		List<ParkingSpot> allParkingSpots = con.getAllParkingSpots();
+		return new SendObject<T1>("Received active parking spots", (T1) (List<ParkingSpot>) allParkingSpots);
+	}
+
+	/**
+	 * Returns one keyset page of a table, so the admin screens can load a large
+	 * table page by page instead of in one list
+	 * 
+	 * @param request The table, the id the page starts after and the size of the page
+	 * @param con     A ParkingStore instance
+	 * @return SendObject "Page" with the page, or "Invalid request" if it can't be read
+	 */
+	@SuppressWarnings("unchecked")
+	static <T1 extends Serializable> SendObject<T1> getPage(PageRequest request, ParkingStore con) {
+		Page<?> page = con.getPage(request);
+		if (page == null)
+			return new SendObject<T1>("Invalid request", null);
+		return new SendObject<T1>("Page", (T1) page);
+	}
+
+	/**
+	 * Creates ActiveSessions PDF file, or takes it from the report cache
+	 * 
+	 * @param date The date of the report
+	 * @return SendObject "SessionsPDF" with the file
+	 * @throws Exception if the file can't be created
+	 */
+	@SuppressWarnings("unchecked")
+	static <T1 extends Serializable> SendObject<T1> getActiveSessionsReport(String date) throws Exception {
+		File reportsDir = reportsDir();
+		File csvFile = new File(reportsDir, "SessionsReport_" + date + ".csv");
+		File pngFile1 = new File(reportsDir, "SessionsChart_" + date + ".png");
+		File pngFile2 = new File(reportsDir, "ParkingSpotsChart_" + date + ".png");
+		File[] images = new File[] { pngFile1, pngFile2 };
+		File ActiveSessionsPdf = new File(reportsDir, "SessionsReport_" + date + ".pdf");
+		byte[] data = reportCache.get("SessionsReport", date, new File[] { csvFile, pngFile1, pngFile2 }, () -> {
+			PDFReport.generatePdfReport(csvFile, images, ActiveSessionsPdf, "Sessions " + date, null);
+			return Files.readAllBytes(ActiveSessionsPdf.toPath());
+		});
+		FileTransferMessage message = new FileTransferMessage(ActiveSessionsPdf.getName(), data);
+		return new SendObject<T1>("SessionsPDF", (T1) (FileTransferMessage) message);
+	}
+
+	/**
+	 * Creates Subscribers PDF file, or takes it from the report cache
+	 * 
+	 * @param date The date of the report
+	 * @return SendObject "SubscribersReportPDF" with the file
+	 * @throws Exception if the file can't be created
+	 */
+	@SuppressWarnings("unchecked")
+	static <T1 extends Serializable> SendObject<T1> getSubscribersReport(String date) throws Exception {
+		File reportsDir = reportsDir();
+		File csvFile = new File(reportsDir, "SubscribersReport_" + date + ".csv");
+		File SubscribersReportPdf = new File(reportsDir, "SubscribersReport_" + date + ".pdf");
+		byte[] data = reportCache.get("SubscribersReport", date, new File[] { csvFile }, () -> {
+			PDFReport.generatePdfReport(csvFile, null, SubscribersReportPdf, "Subscribers Report " + date, null);
+			return Files.readAllBytes(SubscribersReportPdf.toPath());
+		});
+		FileTransferMessage message = new FileTransferMessage(SubscribersReportPdf.getName(), data);
+		return new SendObject<T1>("SubscribersReportPDF", (T1) (FileTransferMessage) message);
+	}
+
+	/**
+	 * Creates a subscriber's PDF file, or takes it from the report cache
+	 * 
+	 * @param subIdAndInfo The subscriber id and the subscriber info, separated by a comma
+	 * @return SendObject "SubscriberReportPDF" with the file
+	 * @throws Exception if the file can't be created
+	 */
+	@SuppressWarnings("unchecked")
+	static <T1 extends Serializable> SendObject<T1> getSubscriberReport(String subIdAndInfo) throws Exception {
+		File reportsDir = reportsDir();
+		String idAndInfo[] = subIdAndInfo.split(",");
+		File csvFile = new File(reportsDir, "SubscriberReport_" + idAndInfo[0] + ".csv");
+		File pngFile = new File(reportsDir, "SubscriberHistorySessionsChart_" + idAndInfo[0] + ".png");
+		File SubscribersReportPdf = new File(reportsDir, "SubscriberReport_" + idAndInfo[0] + ".pdf");
+		byte[] data = reportCache.get("SubscriberReport", subIdAndInfo, new File[] { csvFile, pngFile }, () -> {
+			PDFReport.generatePdfReport(csvFile, new File[] { pngFile }, SubscribersReportPdf,
+					"Subscriber Report ID:" + idAndInfo[0], idAndInfo[1]);
+			return Files.readAllBytes(SubscribersReportPdf.toPath());
+		});
+		FileTransferMessage message = new FileTransferMessage(SubscribersReportPdf.getName(), data);
+		return new SendObject<T1>("SubscriberReportPDF", (T1) (FileTransferMessage) message);
+	}
+
+	/**
+	 * Creates Reservations PDF file, or takes it from the report cache
+	 * 
+	 * @param date The date of the report
+	 * @return SendObject "ReservationReportPDF" with the file
+	 * @throws Exception if the file can't be created
+	 */
+	@SuppressWarnings("unchecked")
+	static <T1 extends Serializable> SendObject<T1> getReservationReport(String date) throws Exception {
+		File reportsDir = reportsDir();
+		File ReservationsReportPdf = new File(reportsDir, "ReservationsReport_" + date + ".pdf");
+		File reportFile = new File(reportsDir, "ReservationsReport_" + date + ".csv");
+		File pngFile = new File(reportsDir, "ReservationsChart_" + date + ".png");
+		byte[] data = reportCache.get("ReservationsReport", date, new File[] { reportFile, pngFile }, () -> {
+			PDFReport.generatePdfReport(reportFile, new File[] { pngFile }, ReservationsReportPdf,
+					"Reservations Report", null);
+			return Files.readAllBytes(ReservationsReportPdf.toPath());
+		});
+		FileTransferMessage message = new FileTransferMessage(ReservationsReportPdf.getName(), data);
+		// Send back the successful result
+		return new SendObject<T1>("ReservationReportPDF", (T1) (FileTransferMessage) message);
+	}
+
+	/**
+	 * Sends Monthly report to client
+	 * 
+	 * @param reportName The name of the report, "MonthlyReport_" followed by the month
+	 * @return SendObject "MonthlyReportPDF" with the file, "Invalid request" if it wasn't created yet
+	 */
+	@SuppressWarnings("unchecked")
+	static <T1 extends Serializable> SendObject<T1> getMonthlyReport(String reportName) {
+		try {
+			File MonthlyReportPdf = new File(reportsDir(), reportName + ".pdf");
+			if (MonthlyReportPdf.exists()) {
+				byte[] data = Files.readAllBytes(MonthlyReportPdf.toPath());
+				FileTransferMessage message = new FileTransferMessage(MonthlyReportPdf.getName(), data);
+				// Send back the successful result
+				return new SendObject<T1>("MonthlyReportPDF", (T1) (FileTransferMessage) message);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			return new SendObject<T1>("Error", (T1) "Such file doesn't exist");
+		}
+		return new SendObject<T1>("Invalid request", null);
+	}
+
+	/**
+	 * Returns the reports directory, creates it if needed
+	 */
+	private static File reportsDir() {
+		File reportsDir = new File("reports");
+		if (!reportsDir.exists())
+			reportsDir.mkdirs();
+		return reportsDir;
+	}
+
 	/**
 	 * Retrieves an object from the database based on the subscriber details.
 	 * 
@@ -402,7 +687,7 @@ public class SendObjectHandler {
 	 * @throws Exception if retrieval fails
 	 */
 	@SuppressWarnings("unchecked")
-	private static <T extends Serializable, T1 extends Serializable> T1 handleGetAction(T object, DataBaseQuery con)
+	private static <T extends Serializable, T1 extends Serializable> T1 handleGetAction(T object, ParkingStore con)
 			throws Exception {
 		try {
 			if (object instanceof subscriber) {
@@ -437,8 +722,8 @@ public class SendObjectHandler {
 	 * @throws Exception if database update fails
 	 */
 	@SuppressWarnings("unchecked")
-	private static <T extends Serializable, T1 extends Serializable> SendObject<T1> handleUpdateAction(T object,
-			DataBaseQuery con) throws Exception {
+	static <T extends Serializable, T1 extends Serializable> SendObject<T1> handleUpdateAction(T object,
+			ParkingStore con) throws Exception {
 		try {
 			if (object instanceof subscriber) {
 				subscriber user = (subscriber) object;
@@ -479,8 +764,8 @@ public class SendObjectHandler {
 	 * @throws Exception if creation fails
 	 */
 	@SuppressWarnings("unchecked")
-	private static <T extends Serializable, T1 extends Serializable> SendObject<T1> handleCreateAction(T object,
-			DataBaseQuery con) throws Exception {
+	static <T extends Serializable, T1 extends Serializable> SendObject<T1> handleCreateAction(T object,
+			ParkingStore con) throws Exception {
 		try {
 			if (object instanceof subscriber) {
 				subscriber user = (subscriber) object;
@@ -488,8 +773,8 @@ public class SendObjectHandler {
 				checkEmail = con.checkUserEmailDuplicates(user);
 				if (!checkEmail) {
 					Object codeAndTag[] = new Object[2];
-					codeAndTag[0] = (Integer) generateCode(con, "Subscriber");
-					codeAndTag[1] = (String) generateTag(con);
+					codeAndTag[0] = (Integer) con.allocateSubscriberCode();
+					codeAndTag[1] = (String) con.allocateRFIDTag();
 					user.setCode((Integer) codeAndTag[0]);
 					user.setTag((String) codeAndTag[1]);
 					// Create User In the database using received object
@@ -510,28 +795,24 @@ public class SendObjectHandler {
 			}
 			if (object instanceof Reservation) {
 				Reservation reservation = (Reservation) object;
-				// create Reservation in the database using received object
-				ParkingSpot spot = null;
-				if (con.getPrecentageAvailableSpaceFromDatabase() >= 40) {
-					spot = con.getFreeParkingSpotFromDatabase(reservation.getDate(), reservation.getStartTime(),
-							reservation.getEndTime()).get(0);
-				} else {
+				// Quick reject without a transaction, bookReservation checks it again under the lock
+				if (con.getPrecentageAvailableSpaceFromDatabase() < 40) {
 					return new SendObject<T1>("Reservation",
 							(T1) (String) "Not Created because there is less than 40% space available");
 				}
-				if (spot != null) {
-					spot.setStatus(SpotStatus.RESERVED);
-					con.updateParkingSpotInDatabase(spot);
-					int reservationCode = generateCode(con, "Reservation");
-					Reservation reservationToBeSent = new Reservation(reservation.getSubscriberId(), spot.getSpotId(),
-							reservation.getDate(), reservation.getStartTime(), reservation.getEndTime(),
-							reservationCode);
-					int reservationId = con.createReservationInDatabase(reservationToBeSent);
-					reservationToBeSent.setId(reservationId);
-					con.updateReservationInDatabase(reservationId, reservationToBeSent);
+				// Checks the space, claims a spot and creates the Reservation in one transaction
+				int reservationCode = con.allocateReservationCode();
+				BookingResult result = con.bookReservation(new Reservation(reservation.getSubscriberId(), 0,
+						reservation.getDate(), reservation.getStartTime(), reservation.getEndTime(), reservationCode),
+						40);
+				switch (result.getStatus()) {
+				case BOOKED:
 					return new SendObject<T1>("Reservation",
 							(T1) (String) String.format("Created with code:%d", reservationCode));
-				} else {
+				case NOT_ENOUGH_SPACE:
+					return new SendObject<T1>("Reservation",
+							(T1) (String) "Not Created because there is less than 40% space available");
+				default:
 					return new SendObject<T1>("Reservation", (T1) (String) "Not Created");
 				}
 			}
@@ -541,45 +822,4 @@ public class SendObjectHandler {
 		}
 		return new SendObject<T1>("Error", (T1) (String) "creating data in database");
 	}
-
-	/**
-	 * Generates a unique RFID tag string.
-	 * 
-	 * @param con Database connector
-	 * @return A unique RFID tag string
-	 */
-	private static String generateTag(DataBaseQuery con) {
-		Random random = new Random();
-		StringBuilder tag;
-		boolean isDifferent = false;
-		do {
-			tag = new StringBuilder();
-			for (int i = 0; i < 12; i++) {
-				int byteValue = random.nextInt(256); // 0 to 255
-				tag.append(String.format("%02X", byteValue));
-			}
-			isDifferent = con.checkRFIDTagDifferentFromAllSubscribers(tag.toString());
-		} while (!isDifferent);
-		return tag.toString();
-	}
-
-	/**
-	 * Generates a unique subscriber code.
-	 * 
-	 * @param con Database connector
-	 * @return A unique integer code
-	 */
-	private static Integer generateCode(DataBaseQuery con, String type) {
-		int code;
-		Random random = new Random(); // Generate code
-		boolean isDifferent = false;
-		do {
-			code = 100000 + random.nextInt(900000);
-			if (type.equals("Subscriber"))
-				isDifferent = con.checkCodeDifferentFromAllSubscribers(code);
-			else
-				isDifferent = con.checkCodeDifferentFromAllReservations(code);
-		} while (!isDifferent);
-		return code;
-	}
 }
@@ -0,0 +1,205 @@
+package serverControllers;
+
+/**
+ * Reads the server settings from Java system properties (-Dbpark.name=value),
+ * each setting has a default so the server runs without any configuration.
+ *
+ * bpark.transport   - "ocsf" for a thread per connection (default) or "nio" for the selector based transport
+ * bpark.nio.threads - number of I/O threads of the nio transport
+ * bpark.nio.max.message.mb - largest message a client may send over the nio transport, bigger ones close the connection
+ * bpark.execution   - "inline" to handle requests on the connection thread (default) or "concurrent"
+ *                     to handle each request on its own (virtual) thread, in order per client
+ * bpark.storage     - "mysql" to keep the data in the database (default) or "memory" to keep it in the
+ *                     memory of the server only, e.g. to measure the server without a database
+ * bpark.storage.spots - number of parking spots of the "memory" storage
+ * bpark.db.pool.min - database connections kept open when the server is idle
+ * bpark.db.pool.max - maximum number of database connections (queries that run at the same time)
+ * bpark.db.pool.timeout.ms  - how long a query waits for a connection when all of them are in use
+ * bpark.db.pool.leak.ms     - a connection held longer than this is reported as a possible leak
+ * bpark.db.pool.lifetime.ms - connections are replaced after this time
+ * bpark.db.stmt.cache       - prepared statements cached per database connection (0 = off)
+ * bpark.db.explain          - "true" to print the EXPLAIN plan of every query the first time it runs
+ * bpark.occupancy.reconcile.s - how often the occupancy counters are checked against the database
+ * bpark.coalesce.ms - how long changes are collected before they are broadcast as one update
+ * bpark.outbound.capacity - messages that may wait for a client before it is disconnected as too slow
+ * bpark.outbound.writers  - number of threads that write the outbound queues
+ * bpark.report.cache.memory.mb - megabytes of generated PDF reports kept in memory (0 = none)
+ * bpark.report.cache.disk.mb   - megabytes of generated PDF reports kept in reports/cache (0 = none)
+ */
+public class ServerConfig {
+
+	/**
+	 * Returns a string setting
+	 *
+	 * @param name         name of the setting without the "bpark." prefix
+	 * @param defaultValue value used when the setting is not given
+	 * @return the value of the setting
+	 */
+	public static String getString(String name, String defaultValue) {
+		return System.getProperty("bpark." + name, defaultValue);
+	}
+
+	/**
+	 * Returns an integer setting
+	 *
+	 * @param name         name of the setting without the "bpark." prefix
+	 * @param defaultValue value used when the setting is not given or is not a number
+	 * @return the value of the setting
+	 */
+	public static int getInt(String name, int defaultValue) {
+		String value = getString(name, null);
+		if (value == null)
+			return defaultValue;
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			System.out.println("Illegal value for bpark." + name + ": " + value + ", using " + defaultValue);
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Returns a boolean setting
+	 *
+	 * @param name         name of the setting without the "bpark." prefix
+	 * @param defaultValue value used when the setting is not given
+	 * @return the value of the setting
+	 */
+	public static boolean getBoolean(String name, boolean defaultValue) {
+		String value = getString(name, null);
+		return value == null ? defaultValue : Boolean.parseBoolean(value.trim());
+	}
+
+	/**
+	 * @return true if the server should use the selector based transport
+	 */
+	public static boolean useNioTransport() {
+		return getString("transport", "ocsf").equalsIgnoreCase("nio");
+	}
+
+	/**
+	 * @return number of I/O threads of the nio transport
+	 */
+	public static int nioThreads() {
+		return getInt("nio.threads", Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+	}
+
+	/**
+	 * @return largest message a client may send over the nio transport, in bytes
+	 */
+	public static int nioMaxMessageBytes() {
+		return Math.max(1, Math.min(getInt("nio.max.message.mb", 16), 1024)) * 1024 * 1024;
+	}
+
+	/**
+	 * @return true if requests should be handled concurrently instead of on the connection thread
+	 */
+	public static boolean concurrentExecution() {
+		return getString("execution", "inline").equalsIgnoreCase("concurrent");
+	}
+
+	/**
+	 * @return number of database connections kept open when the server is idle
+	 */
+	public static int dbPoolMin() {
+		return getInt("db.pool.min", 2);
+	}
+
+	/**
+	 * @return maximum number of database connections
+	 */
+	public static int dbPoolMax() {
+		return getInt("db.pool.max", 10);
+	}
+
+	/**
+	 * @return how long a query waits for a free connection, in milliseconds
+	 */
+	public static int dbPoolTimeoutMillis() {
+		return getInt("db.pool.timeout.ms", 10000);
+	}
+
+	/**
+	 * @return how long a connection may be held before it is reported as a leak, in milliseconds (0 = off)
+	 */
+	public static int dbPoolLeakMillis() {
+		return getInt("db.pool.leak.ms", 60000);
+	}
+
+	/**
+	 * @return how long a connection is used before it is replaced, in milliseconds (0 = forever)
+	 */
+	public static int dbPoolLifetimeMillis() {
+		return getInt("db.pool.lifetime.ms", 30 * 60 * 1000);
+	}
+
+	/**
+	 * @return number of prepared statements cached per database connection
+	 */
+	public static int dbStatementCache() {
+		return getInt("db.stmt.cache", 64);
+	}
+
+	/**
+	 * @return true if the data is kept in the memory of the server instead of the database
+	 */
+	public static boolean inMemoryStorage() {
+		return "memory".equalsIgnoreCase(getString("storage", "mysql"));
+	}
+
+	/**
+	 * @return number of parking spots of the in-memory storage
+	 */
+	public static int storageSpots() {
+		return Math.max(1, getInt("storage.spots", 15));
+	}
+
+	/**
+	 * @return true if the EXPLAIN plans of the queries are printed (diagnostics mode)
+	 */
+	public static boolean dbExplain() {
+		return getBoolean("db.explain", false);
+	}
+
+	/**
+	 * @return how often the occupancy counters are reconciled with the database, in seconds
+	 */
+	public static int occupancyReconcileSeconds() {
+		return Math.max(1, getInt("occupancy.reconcile.s", 60));
+	}
+
+	/**
+	 * @return the broadcast coalescing window in milliseconds
+	 */
+	public static int coalesceMillis() {
+		return getInt("coalesce.ms", 100);
+	}
+
+	/**
+	 * @return maximum number of messages waiting in the outbound queue of a client
+	 */
+	public static int outboundCapacity() {
+		return getInt("outbound.capacity", 256);
+	}
+
+	/**
+	 * @return number of threads that write the outbound queues of the clients
+	 */
+	public static int outboundWriters() {
+		return getInt("outbound.writers", 4);
+	}
+
+	/**
+	 * @return maximum size of the PDF reports kept in memory, in bytes
+	 */
+	public static long reportCacheMemoryBytes() {
+		return getInt("report.cache.memory.mb", 32) * 1024L * 1024L;
+	}
+
+	/**
+	 * @return maximum size of the PDF reports kept on disk, in bytes
+	 */
+	public static long reportCacheDiskBytes() {
+		return getInt("report.cache.disk.mb", 256) * 1024L * 1024L;
+	}
+}
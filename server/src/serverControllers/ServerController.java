@@ -3,8 +3,10 @@ package serverControllers;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.List;
 
+import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -30,6 +32,8 @@ public class ServerController {
 	private TableColumn<List<String>, String> clientHostNameColumn; // HostName column
 	@FXML
 	private TableColumn<List<String>, String> clientStatusColumn; // Status column
+	@FXML
+	private TableColumn<List<String>, String> clientQueueColumn; // Outbound queue depth column
 
 	@FXML
 	private Label ipLabel; // Server IP
@@ -41,7 +45,7 @@ public class ServerController {
 	@FXML
 	public void initialize() {
 		try {
-			server.listen();
+			server.startListening();
 		} catch (IOException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -63,6 +67,11 @@ public class ServerController {
 																													// at
 																													// index
 																													// 3
+		clientQueueColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().get(4))); // Queue
+																													// depth
+																													// at
+																													// index
+																													// 4
 
 	}
 
@@ -74,7 +83,7 @@ public class ServerController {
 		System.out.println("Closing application...");
 		server.sendToAllClients(new Exception("Server Shutdown"));
 		Thread.sleep(500);
-		server.close();
+		server.shutdown();
 		System.gc();
 		System.exit(0);
 	}
@@ -97,7 +106,11 @@ public class ServerController {
 	 * Gets all clients and starts method that will update the TableView
 	 */
 	public void recievedServerUpdate(List<List<String>> clientInfoList) {
-		updateClientList(clientInfoList);
+		// Called from the server threads, the table is updated on the JavaFX thread with a copy of the list
+		List<List<String>> copy = new ArrayList<>();
+		for (List<String> clientInfo : clientInfoList)
+			copy.add(new ArrayList<>(clientInfo));
+		Platform.runLater(() -> updateClientList(copy));
 	}
 
 	/**
@@ -109,8 +122,8 @@ public class ServerController {
 		clientData.clear();
 
 		// Add updated client information to the TableView
-		for (List<String> clientString : clientInfoList) { // Each string has 4 Strings: id, IP, HostName, Status
-			if (clientString.size() == 4) {
+		for (List<String> clientString : clientInfoList) { // Each string has 5 Strings: id, IP, HostName, Status, Queue depth
+			if (clientString.size() == 5) {
 				clientData.add(0, clientString);
 			}
 		}
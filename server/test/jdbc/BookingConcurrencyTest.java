@@ -0,0 +1,218 @@
+package jdbc;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import logic.*;
+
+/**
+ * Stress test of {@link ParkingStore#bookReservation}: many threads book the same date and
+ * window at the same time, and no spot, window or reservation code may be given out twice,
+ * and the free space threshold must stop at the same count as bookings made one by one.
+ *
+ * The test is aimed at {@link DataBaseQuery}, whose bookings are serialized by the row locks
+ * of MySQL. It runs against the bpark database of localhost when it is reachable and is skipped
+ * otherwise. It books on dates far in the future and deletes its reservations and restores
+ * the spot statuses when it ends, but it must not run while a server uses the database.
+ * The same scenarios run first on {@link InMemoryParkingStore}, whose bookings are serialized
+ * by a Java lock, as a check of the test itself.
+ *
+ * The projects have no test framework, run it as a Java application; it throws an
+ * AssertionError on the first failure.
+ */
+public class BookingConcurrencyTest {
+	private static final String START = "10:00";
+	private static final String END = "14:00";
+	private static final int THREADS = 16;
+
+	public static void main(String[] args) throws Exception {
+		bookConcurrently("memory", new InMemoryParkingStore(50), LocalDate.of(2099, 1, 15), 1, 2000, 0);
+		bookConcurrently("memory", new InMemoryParkingStore(20), LocalDate.of(2099, 1, 15), 1, 400, 40);
+
+		if (!mysqlReachable()) {
+			System.out.println("MySQL is not reachable on localhost, the DataBaseQuery run was skipped");
+			return;
+		}
+		DataBaseQuery db = new DataBaseQuery();
+		List<subscriber> subscribers = db.getAllSubscribersList();
+		check(!subscribers.isEmpty(), "the database has no subscriber to book for");
+		int subscriberId = subscribers.get(0).getId();
+		Map<Integer, SpotStatus> statuses = statuses(db);
+		LocalDate noThreshold = LocalDate.of(2099, 1, 15);
+		LocalDate withThreshold = LocalDate.of(2099, 1, 16);
+		try {
+			bookConcurrently("mysql", db, noThreshold, subscriberId, statuses.size() * 4, 0);
+			restore(db, statuses, noThreshold);
+			bookConcurrently("mysql", db, withThreshold, subscriberId, statuses.size() * 4, 40);
+		} finally {
+			restore(db, statuses, noThreshold);
+			restore(db, statuses, withThreshold);
+		}
+	}
+
+	/**
+	 * Books the same date and window from many threads, all released at once, and checks the
+	 * results and the stored reservations against the same bookings made one by one
+	 *
+	 * @param minFreePercentage the threshold passed to bookReservation, 0 for none
+	 */
+	private static void bookConcurrently(String name, ParkingStore store, LocalDate date, int subscriberId,
+			int attempts, double minFreePercentage) throws Exception {
+		int[] expected = bookOneByOne(store, date, minFreePercentage); // booked, rejected for space
+		long started = System.nanoTime();
+
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		Map<Integer, BookingResult> results = new ConcurrentHashMap<>();
+		AtomicInteger next = new AtomicInteger();
+		List<Future<?>> futures = new ArrayList<>();
+		try {
+			for (int i = 0; i < THREADS; i++) {
+				futures.add(pool.submit(() -> {
+					start.await();
+					for (int attempt; (attempt = next.getAndIncrement()) < attempts;) {
+						int code = store.allocateReservationCode();
+						Reservation request = new Reservation(subscriberId, 0, date, START, END, code);
+						results.put(attempt, store.bookReservation(request, minFreePercentage));
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures)
+				future.get();
+		} finally {
+			pool.shutdownNow();
+		}
+		check(results.size() == attempts, results.size() + " results for " + attempts + " bookings");
+
+		Set<Integer> spots = new HashSet<>();
+		Set<Integer> codes = new HashSet<>();
+		Set<Integer> ids = new HashSet<>();
+		int booked = 0, notEnoughSpace = 0;
+		for (BookingResult result : results.values()) {
+			switch (result.getStatus()) {
+			case BOOKED:
+				Reservation reservation = result.getReservation();
+				check(spots.add(reservation.getSpot()), "spot " + reservation.getSpot() + " booked twice for the same window");
+				check(codes.add(reservation.getCode()), "reservation code " + reservation.getCode() + " given twice");
+				check(ids.add(reservation.getId()), "reservation id " + reservation.getId() + " given twice");
+				booked++;
+				break;
+			case NOT_ENOUGH_SPACE:
+				notEnoughSpace++;
+				break;
+			case NO_FREE_SPOT:
+				break;
+			default:
+				throw new AssertionError("unexpected result " + result);
+			}
+		}
+		check(booked == expected[0], booked + " bookings, one by one there would be " + expected[0]);
+		check(notEnoughSpace == (expected[1] > 0 ? attempts - booked : 0),
+				notEnoughSpace + " bookings rejected for space, expected " + (expected[1] > 0 ? attempts - booked : 0));
+
+		// The store must agree with the results
+		Set<Integer> storedSpots = new HashSet<>();
+		Set<Integer> storedCodes = new HashSet<>();
+		for (Reservation reservation : store.getAllReservationList()) {
+			if (!date.equals(reservation.getDate()) || reservation.getStartTime() == null)
+				continue;
+			check(storedSpots.add(reservation.getSpot()), "spot " + reservation.getSpot() + " stored twice for the window");
+			check(storedCodes.add(reservation.getCode()), "code " + reservation.getCode() + " stored twice");
+		}
+		check(storedSpots.equals(spots), "stored spots " + storedSpots + " differ from the booked spots " + spots);
+
+		System.out.println(String.format("%s, threshold %.0f%%: %d attempts, %d booked, %d rejected for space in %d ms",
+				name, minFreePercentage, attempts, booked, notEnoughSpace, (System.nanoTime() - started) / 1000000));
+	}
+
+	/**
+	 * Counts what the bookings would give when made one after the other: bookReservation takes
+	 * the free spot with the lowest id, and rejects the booking once too few spots are FREE
+	 *
+	 * @return the number of bookings, and 1 if the threshold stopped them (0 if the spots ran out)
+	 */
+	private static int[] bookOneByOne(ParkingStore store, LocalDate date, double minFreePercentage) {
+		Map<Integer, SpotStatus> statuses = statuses(store);
+		int total = statuses.size();
+		int free = 0;
+		for (SpotStatus status : statuses.values())
+			if (status == SpotStatus.FREE)
+				free++;
+		TreeSet<Integer> candidates = new TreeSet<>();
+		for (ParkingSpot spot : store.getFreeParkingSpotFromDatabase(date, START, END))
+			if (statuses.get(spot.getSpotId()) != SpotStatus.OCCUPIED)
+				candidates.add(spot.getSpotId());
+		int booked = 0;
+		for (int spotId : candidates) {
+			if (total == 0 || (double) free / total * 100.0 < minFreePercentage)
+				return new int[] { booked, 1 };
+			if (statuses.get(spotId) == SpotStatus.FREE)
+				free--;
+			booked++;
+		}
+		boolean stopped = total == 0 || (double) free / total * 100.0 < minFreePercentage;
+		return new int[] { booked, stopped ? 1 : 0 };
+	}
+
+	private static Map<Integer, SpotStatus> statuses(ParkingStore store) {
+		Map<Integer, SpotStatus> statuses = new HashMap<>();
+		for (ParkingSpot spot : store.getAllParkingSpots())
+			statuses.put(spot.getSpotId(), spot.getStatus());
+		return statuses;
+	}
+
+	/**
+	 * Deletes the reservations of a test date and puts the spots back in their former status
+	 */
+	private static void restore(DataBaseQuery db, Map<Integer, SpotStatus> statuses, LocalDate date)
+			throws SQLException {
+		try (Connection con = db.getCon();
+				PreparedStatement ps = con.prepareStatement("DELETE FROM reservations WHERE date = ?")) {
+			ps.setDate(1, java.sql.Date.valueOf(date));
+			ps.executeUpdate();
+		}
+		for (ParkingSpot spot : db.getAllParkingSpots()) {
+			SpotStatus former = statuses.get(spot.getSpotId());
+			if (former != null && former != spot.getStatus())
+				db.updateParkingSpotInDatabase(new ParkingSpot(spot.getSpotId(), former));
+		}
+		// The availability index still holds the deleted reservations, the dates are not used again
+	}
+
+	/**
+	 * @return true if the MySQL server of {@link MySQLConnection} accepts a connection
+	 */
+	private static boolean mysqlReachable() {
+		DriverManager.setLoginTimeout(2);
+		try (Connection con = DriverManager.getConnection(
+				"jdbc:mysql://localhost?serverTimezone=Asia/Jerusalem&useSSL=false&connectTimeout=2000", "root",
+				"Aa123456")) {
+			return true;
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition)
+			throw new AssertionError(message);
+	}
+}
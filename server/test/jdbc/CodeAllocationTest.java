@@ -0,0 +1,148 @@
+package jdbc;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Random;
+
+import logic.*;
+
+/**
+ * Test and benchmark of the code allocation.
+ *
+ * First checks that {@link CodeAllocator.Permutation} is a bijection: for a few range sizes and
+ * keys every index maps to a different number of the range. Then fills the 100000-999999 range of
+ * an {@link InMemoryParkingStore} to 50% and 90% with codes given outside the allocator (like the
+ * codes given before it existed), times allocateReservationCode and allocateSubscriberCode on
+ * that range, and checks that every issued code is in the range, free and never issued twice.
+ * At 90% the allocation goes on until the range is full, it must hand out exactly the codes that
+ * were left and then fail.
+ *
+ * The projects have no test framework, run it as a Java application; it throws an
+ * AssertionError on the first failure.
+ */
+public class CodeAllocationTest {
+	private static final int FIRST = 100000;
+	private static final int SIZE = 900000;
+	private static final int TIMED = 20000; // Codes allocated for the timing
+	private static final LocalDate DATE = LocalDate.of(2099, 1, 15);
+
+	/**
+	 * Allocates a code of the store
+	 */
+	@FunctionalInterface
+	private interface Allocation {
+		int allocate(InMemoryParkingStore store) throws SQLException;
+	}
+
+	/**
+	 * Stores an owner of a code
+	 */
+	@FunctionalInterface
+	private interface CodeOwner {
+		void add(InMemoryParkingStore store, int code);
+	}
+
+	public static void main(String[] args) throws Exception {
+		Random keys = new Random(18);
+		for (long size : new long[] { 1, 2, 3, 7, 100, 900000, 1 << 20, (1 << 20) + 1 }) {
+			for (int i = 0; i < 3; i++)
+				checkBijection(size, keys.nextLong());
+		}
+		System.out.println("Permutation is a bijection for every size and key tried");
+
+		for (double fill : new double[] { 0.5, 0.9 }) {
+			allocate("reservation", fill, CodeAllocationTest::addReservation, InMemoryParkingStore::allocateReservationCode);
+			allocate("subscriber", fill, CodeAllocationTest::addSubscriber, InMemoryParkingStore::allocateSubscriberCode);
+		}
+	}
+
+	/**
+	 * Checks that every index of the range is mapped to a different number of the range
+	 */
+	private static void checkBijection(long size, long key) {
+		CodeAllocator.Permutation permutation = new CodeAllocator.Permutation(key, size);
+		BitSet seen = new BitSet((int) size);
+		for (long index = 0; index < size; index++) {
+			long value = permutation.apply(index);
+			check(value >= 0 && value < size, "size " + size + ": " + index + " is mapped out of the range to " + value);
+			check(!seen.get((int) value), "size " + size + ", key " + key + ": " + value + " is mapped twice");
+			seen.set((int) value);
+		}
+	}
+
+	/**
+	 * Fills the range to a part with random codes, then times the allocation on the rest of it.
+	 * Every issued code is stored like the server does, only the allocation itself is timed.
+	 */
+	private static void allocate(String name, double fill, CodeOwner owner, Allocation allocation) throws Exception {
+		InMemoryParkingStore store = new InMemoryParkingStore(1);
+		BitSet used = new BitSet(SIZE);
+		int filled = (int) (SIZE * fill);
+		int[] codes = new int[SIZE];
+		for (int i = 0; i < SIZE; i++)
+			codes[i] = FIRST + i;
+		Random random = new Random(filled);
+		for (int i = 0; i < filled; i++) {
+			int j = i + random.nextInt(SIZE - i);
+			int code = codes[j];
+			codes[j] = codes[i];
+			owner.add(store, code);
+			used.set(code - FIRST);
+		}
+
+		long nanos = 0;
+		for (int i = 0; i < TIMED; i++) {
+			long started = System.nanoTime();
+			int code = allocation.allocate(store);
+			nanos += System.nanoTime() - started;
+			issue(name, code, used);
+			owner.add(store, code);
+		}
+		System.out.println(String.format("%s codes, range %.0f%% full: %.2f us per code", name, fill * 100,
+				nanos / 1000.0 / TIMED));
+
+		if (fill < 0.9)
+			return;
+		// The allocation must find every code that is left, and then fail
+		int left = SIZE - filled - TIMED;
+		for (int i = 0; i < left; i++) {
+			int code = allocation.allocate(store);
+			issue(name, code, used);
+			owner.add(store, code);
+		}
+		check(used.cardinality() == SIZE, "the range is not full after " + left + " more codes");
+		try {
+			int code = allocation.allocate(store);
+			throw new AssertionError(name + " code " + code + " was issued when the range was full");
+		} catch (SQLException e) {
+			// Expected, all the codes are in use
+		}
+		System.out.println(name + " codes: the last " + left + " free codes were issued once each");
+	}
+
+	/**
+	 * Checks an issued code and marks it as used
+	 */
+	private static void issue(String name, int code, BitSet used) {
+		check(code >= FIRST && code < FIRST + SIZE, name + " code " + code + " is out of the range");
+		check(!used.get(code - FIRST), name + " code " + code + " was issued while in use");
+		used.set(code - FIRST);
+	}
+
+	private static void addReservation(InMemoryParkingStore store, int code) {
+		store.createReservationInDatabase(
+				new Reservation(1, InMemoryParkingStore.FIRST_SPOT_ID, DATE, "10:00", "14:00", code));
+	}
+
+	private static void addSubscriber(InMemoryParkingStore store, int code) {
+		String id = Integer.toString(code);
+		store.createUserInDatabase(new subscriber(0, id, id, id, Role.SUBSCRIBER, false, new ArrayList<>(), id, code));
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition)
+			throw new AssertionError(message);
+	}
+}
@@ -0,0 +1,157 @@
+package serverControllers;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import jdbc.InMemoryParkingStore;
+import logic.*;
+
+/**
+ * Benchmark of the request dispatch: requests go through {@link SendObjectHandler#sendObjectHandle}
+ * and the {@link CommandRegistry} against an {@link InMemoryParkingStore}, so the numbers are the
+ * cost of finding the command, running it and building the reply, without MySQL or the network.
+ *
+ * Every request type runs for a fixed time on one thread and then on several threads, and the
+ * operations per second are printed, followed by the metrics of the registry. The reservations
+ * that are created soon leave less than 40% of the spots free, after that "Create" times the
+ * rejection of a booking.
+ *
+ * The projects have no test framework, run it as a Java application; it throws an
+ * AssertionError if a request is not answered as expected.
+ */
+public class CommandBenchmark {
+	private static final int SPOTS = 1000;
+	private static final int SUBSCRIBERS = 500;
+	private static final int RESERVATIONS = 5000;
+	private static final int THREADS = 8;
+	private static final long WARMUP_MILLIS = 300;
+	private static final long RUN_MILLIS = 1000;
+
+	public static void main(String[] args) throws Exception {
+		InMemoryParkingStore store = new InMemoryParkingStore(SPOTS);
+		List<Integer> reservationCodes = seed(store);
+		int[] codes = reservationCodes.stream().mapToInt(Integer::intValue).toArray();
+		LocalDate tomorrow = LocalDate.now().plusDays(1);
+
+		System.out.println(String.format("%-28s %14s %14s", "request", "1 thread", THREADS + " threads"));
+		run(store, "resolve only", null, null);
+		run(store, "Check new Parking Code", () -> new SendObject<Serializable>("Check new Parking Code",
+				100000 + ThreadLocalRandom.current().nextInt(900000)), null);
+		run(store, "Get reservation with code", () -> new SendObject<Serializable>("Get reservation with code",
+				codes[ThreadLocalRandom.current().nextInt(codes.length)]), "Received reservation");
+		run(store, "GetSubscribersResesrvations", () -> new SendObject<Serializable>("GetSubscribersResesrvations",
+				1 + ThreadLocalRandom.current().nextInt(SUBSCRIBERS)), null);
+		run(store, "Check Availability", () -> new SendObject<Serializable>("Check", "Availability"), "Availability");
+		run(store, "Get page", () -> new SendObject<Serializable>("Get page",
+				new PageRequest(EntityType.RESERVATION, ThreadLocalRandom.current().nextInt(RESERVATIONS), 200)), "Page");
+		run(store, "Create reservation", () -> new SendObject<Serializable>("Create",
+				new Reservation(1 + ThreadLocalRandom.current().nextInt(SUBSCRIBERS), 0, tomorrow, "10:00", "14:00", 0)),
+				"Reservation");
+
+		System.out.println();
+		System.out.println(CommandRegistry.metricsSummary());
+		check(CommandRegistry.getLegacyCount() == 0, CommandRegistry.getLegacyCount() + " requests missed the registry");
+	}
+
+	/**
+	 * Fills the store with subscribers and reservations spread over the spots and the next days
+	 *
+	 * @return the codes of the reservations
+	 */
+	private static List<Integer> seed(InMemoryParkingStore store) throws Exception {
+		for (int i = 0; i < SUBSCRIBERS; i++) {
+			store.createUserInDatabase(new subscriber(0, "Subscriber " + i, "05000000" + i, "sub" + i + "@bpark.test",
+					Role.SUBSCRIBER, false, new ArrayList<>(), store.allocateRFIDTag(), store.allocateSubscriberCode()));
+		}
+		List<Integer> codes = new ArrayList<>();
+		for (int i = 0; i < RESERVATIONS; i++) {
+			int code = store.allocateReservationCode();
+			store.createReservationInDatabase(new Reservation(1 + i % SUBSCRIBERS, InMemoryParkingStore.FIRST_SPOT_ID
+					+ i % SPOTS, LocalDate.now().plusDays(2 + i / SPOTS), "08:00", "12:00", code));
+			codes.add(code);
+		}
+		return codes;
+	}
+
+	/**
+	 * Runs one request type on one thread and then on {@link #THREADS} threads, and prints the
+	 * operations per second of both runs
+	 *
+	 * @param requests     makes the next request, or null to time only {@link CommandRegistry#resolve}
+	 * @param replyMessage the message every reply must have, null to accept any reply
+	 */
+	private static void run(InMemoryParkingStore store, String name, Supplier<SendObject<Serializable>> requests,
+			String replyMessage) throws Exception {
+		Operation operation;
+		if (requests == null) {
+			operation = () -> check(CommandRegistry.resolve("Get reservation with code", 123456) != null,
+					"the request was not resolved");
+		} else {
+			operation = () -> {
+				SendObject<Serializable> reply = SendObjectHandler.sendObjectHandle(requests.get(), store);
+				if (replyMessage != null)
+					check(reply != null && replyMessage.equals(reply.getObjectMessage()),
+							name + " was answered with " + reply);
+			};
+		}
+		measure(operation, 1, WARMUP_MILLIS);
+		double single = measure(operation, 1, RUN_MILLIS);
+		double parallel = measure(operation, THREADS, RUN_MILLIS);
+		System.out.println(String.format("%-28s %14.0f %14.0f", name, single, parallel));
+	}
+
+	/**
+	 * Runs an operation on some threads for a fixed time
+	 *
+	 * @return operations per second of all the threads together
+	 */
+	private static double measure(Operation operation, int threads, long millis) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicLong operations = new AtomicLong();
+		List<Future<?>> futures = new ArrayList<>();
+		long[] window = new long[2];
+		try {
+			for (int i = 0; i < threads; i++) {
+				futures.add(pool.submit(() -> {
+					start.await();
+					long count = 0;
+					long end = window[1];
+					while (System.nanoTime() < end) {
+						operation.run();
+						count++;
+					}
+					operations.addAndGet(count);
+					return null;
+				}));
+			}
+			window[0] = System.nanoTime();
+			window[1] = window[0] + millis * 1000000;
+			start.countDown(); // Publishes the window to the threads
+			for (Future<?> future : futures)
+				future.get();
+		} finally {
+			pool.shutdownNow();
+		}
+		return operations.get() * 1e9 / (System.nanoTime() - window[0]);
+	}
+
+	@FunctionalInterface
+	private interface Operation {
+		void run() throws Exception;
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition)
+			throw new AssertionError(message);
+	}
+}